@@ -3,6 +3,7 @@ package com.sbomfinder.controller;
 import com.sbomfinder.dto.*;
 import com.sbomfinder.model.Device;
 import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.model.SbomExportArtifact;
 import com.sbomfinder.repository.DeviceRepository;
 import com.sbomfinder.repository.SbomArchiveRepository;
 import org.springframework.http.HttpStatus;
@@ -21,19 +22,27 @@ import com.sbomfinder.dto.SoftwarePackageDTO;
 import com.sbomfinder.dto.ExternalReferenceDTO;
 import com.sbomfinder.dto.DeviceDetailsDTO;
 import com.sbomfinder.dto.VulnerabilityDTO;
+import com.sbomfinder.service.ArchiveDiffService;
+import com.sbomfinder.service.DeviceComparisonService;
+import com.sbomfinder.service.DeviceDetailsCacheService;
+import com.sbomfinder.service.DeviceSearchService;
 import com.sbomfinder.service.DeviceService;
 import com.sbomfinder.service.VulnerabilityService;
 import com.sbomfinder.service.SbomArchiveService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.util.SbomExportWriter;
 
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 import java.util.Optional;
 import java.util.List;
@@ -63,6 +72,18 @@ public class DeviceController {
     @Autowired
     private VulnerabilityService vulnerabilityService;
 
+    @Autowired
+    private ArchiveDiffService archiveDiffService;
+
+    @Autowired
+    private DeviceComparisonService deviceComparisonService;
+
+    @Autowired
+    private DeviceSearchService deviceSearchService;
+
+    @Autowired
+    private DeviceDetailsCacheService deviceDetailsCacheService;
+
     @Autowired
     private ExternalReferenceRepository externalReferenceRepository;
 
@@ -73,12 +94,19 @@ public class DeviceController {
     }
     // Fetch Device Details by ID
     @GetMapping("/{deviceId}/details")
-    public ResponseEntity<?> getDeviceDetails(@PathVariable Long deviceId) {
+    public ResponseEntity<?> getDeviceDetails(@PathVariable Long deviceId) throws IOException {
         Optional<Device> optionalDevice = deviceRepository.findById(deviceId);
 
         if (optionalDevice.isPresent()) {
             Device device = optionalDevice.get();
 
+            // cached per SBOM version, already serialized
+            Long sbomId = device.getSbom() != null ? device.getSbom().getId() : null;
+            byte[] cached = deviceDetailsCacheService.get(deviceId, sbomId, device.getDeviceName(), device.getManufacturer());
+            if (cached != null) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cached);
+            }
+
             // 1. Fetch Software Packages
             List<SoftwarePackage> softwarePackages = softwarePackageRepository.findByDeviceId(device.getId());
             List<SoftwarePackageDTO> softwarePackageDTOs = softwarePackages.stream().map(pkg -> {
@@ -123,12 +151,19 @@ public class DeviceController {
                     vulnDTOs
             );
 
-            return ResponseEntity.ok(deviceDetails);
+            byte[] body = deviceDetailsCacheService.put(deviceId, sbomId, device.getDeviceName(), device.getManufacturer(), deviceDetails);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
         } else {
             return ResponseEntity.status(404).body("Device not found");
         }
     }
 
+    // Hit counts and sizes of the device details cache
+    @GetMapping("/details/cache")
+    public ResponseEntity<?> getDetailsCacheStats() {
+        return ResponseEntity.ok(deviceDetailsCacheService.getStats());
+    }
+
     // Fetch All Devices
      @GetMapping("/all")
      public ResponseEntity<List<DeviceDetailsDTO>> getAllDevices() {
@@ -278,6 +313,21 @@ public class DeviceController {
         return ResponseEntity.ok(comparisonDTO);
     }
 
+    // Server-side comparison of two or more devices: common, partial and only-in packages
+    @PostMapping("/compare")
+    public ResponseEntity<?> compareDeviceSet(@RequestBody CompareDevicesRequest request) {
+        List<Long> deviceIds = request.resolveDeviceIds();
+        if (deviceIds.size() < 2) {
+            return ResponseEntity.badRequest().body("At least two device ids are required");
+        }
+
+        DeviceSetComparisonDTO comparison = deviceComparisonService.compare(deviceIds);
+        if (comparison == null) {
+            return ResponseEntity.status(404).body("One or more devices not found");
+        }
+        return ResponseEntity.ok(comparison);
+    }
+
     //List all details
     @GetMapping ("/list")
     public ResponseEntity<List<Map<String, Object>>> listAllDevices() {
@@ -292,6 +342,31 @@ public class DeviceController {
         return ResponseEntity.ok(result);
     }
 
+    // ranked, paginated search returning light rows; details are fetched per device on demand
+    @GetMapping("/search/ranked")
+    public ResponseEntity<?> searchDevicesRanked(
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String manufacturer,
+            @RequestParam(required = false) String operatingSystem,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 200) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size between 1 and 200");
+        }
+
+        long start = System.currentTimeMillis();
+        DeviceSearchService.SearchPage result = deviceSearchService.search(query, manufacturer, operatingSystem, category, page, size);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", result.getTotal());
+        response.put("page", page);
+        response.put("size", size);
+        response.put("results", result.getResults());
+        response.put("elapsedMs", System.currentTimeMillis() - start);
+        return ResponseEntity.ok(response);
+    }
+
     //search api
     @GetMapping("/search")
     public ResponseEntity<List<DeviceDetailsDTO>> searchDevices(
@@ -361,48 +436,21 @@ public class DeviceController {
 
 
 
-// download the sbom of device
-@GetMapping("/download/{deviceId}")
-public ResponseEntity<Resource> downloadArchivedSbom(
-        @PathVariable Long deviceId,
-        @RequestParam(name = "format", defaultValue = "cyclonedx") String format
-) {
-    try {
+    // download the sbom of device
+    @GetMapping("/download/{deviceId}")
+    public ResponseEntity<?> downloadArchivedSbom(
+            @PathVariable Long deviceId,
+            @RequestParam(name = "format", defaultValue = "cyclonedx") String format,
+            @RequestParam(name = "pretty", defaultValue = "true") boolean pretty,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
         Optional<SbomArchive> optionalArchive = sbomArchiveRepository.findTopByDeviceIdAndIsLatestTrue(deviceId);
         if (optionalArchive.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-
-        SbomArchive archive = optionalArchive.get();
-        String unifiedJson = archive.getSbomContent();
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        UnifiedSbomData sbomData = objectMapper.readValue(unifiedJson, UnifiedSbomData.class);
-
-        String outputJson;
-
-        if (format.equalsIgnoreCase("cyclonedx")) {
-            outputJson = sbomArchiveService.generateCycloneDxJson(sbomData);
-        } else if (format.equalsIgnoreCase("spdx")) {
-            outputJson = sbomArchiveService.generateSpdxJson(sbomData);
-        } else {
-            return ResponseEntity.badRequest().body(null);
-        }
-
-        byte[] jsonBytes = outputJson.getBytes(StandardCharsets.UTF_8);
-        ByteArrayResource resource = new ByteArrayResource(jsonBytes);
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=sbom_device_" + deviceId + "." + format.toLowerCase() + ".json")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(jsonBytes.length)
-                .body(resource);
-
-    } catch (Exception e) {
-        e.printStackTrace();
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        return serveArchive(optionalArchive.get(), format, pretty, acceptEncoding,
+                "sbom_device_" + deviceId + "." + format.toLowerCase() + ".json");
     }
-}
 
     // get all the archived SBOMs
     @GetMapping("/archives/all")
@@ -433,42 +481,96 @@ public ResponseEntity<Resource> downloadArchivedSbom(
         return ResponseEntity.ok(deviceArchiveList);
     }
 
+    // Diff between two archived versions of a device
+    @GetMapping("/{deviceId}/archives/diff")
+    public ResponseEntity<?> diffArchives(@PathVariable Long deviceId, @RequestParam Long from, @RequestParam Long to) {
+        Optional<SbomArchive> fromArchive = sbomArchiveRepository.findById(from);
+        Optional<SbomArchive> toArchive = sbomArchiveRepository.findById(to);
+        if (fromArchive.isEmpty() || toArchive.isEmpty()
+                || !deviceId.equals(fromArchive.get().getDevice().getId())
+                || !deviceId.equals(toArchive.get().getDevice().getId())) {
+            return ResponseEntity.status(404).body("Archive versions not found for device " + deviceId);
+        }
+
+        try {
+            return ResponseEntity.ok(archiveDiffService.diff(fromArchive.get(), toArchive.get()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to diff archives: " + e.getMessage());
+        }
+    }
+
     //Download from the archoved sboms
     @GetMapping("/download/archive/{archiveId}")
-    public ResponseEntity<Resource> downloadArchivedSbomById(
+    public ResponseEntity<?> downloadArchivedSbomById(
             @PathVariable Long archiveId,
-            @RequestParam(name = "format", defaultValue = "cyclonedx") String format
+            @RequestParam(name = "format", defaultValue = "cyclonedx") String format,
+            @RequestParam(name = "pretty", defaultValue = "true") boolean pretty,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
-        try {
-            Optional<SbomArchive> optionalArchive = sbomArchiveRepository.findById(archiveId);
-            if (optionalArchive.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-            }
-
-            SbomArchive archive = optionalArchive.get();
-            String unifiedJson = archive.getSbomContent();
+        Optional<SbomArchive> optionalArchive = sbomArchiveRepository.findById(archiveId);
+        if (optionalArchive.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return serveArchive(optionalArchive.get(), format, pretty, acceptEncoding,
+                "sbom_archive_" + archiveId + "." + format.toLowerCase() + ".json");
+    }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            UnifiedSbomData sbomData = objectMapper.readValue(unifiedJson, UnifiedSbomData.class);
+    // download the latest version's sbom
+    @GetMapping("/download/{deviceId}/latest")
+    public ResponseEntity<?> downloadLatestSbom(
+            @PathVariable Long deviceId,
+            @RequestParam(name = "format", defaultValue = "cyclonedx") String format,
+            @RequestParam(name = "pretty", defaultValue = "true") boolean pretty,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        Optional<SbomArchive> optionalArchive = sbomArchiveRepository.findTopByDeviceIdAndIsLatestTrue(deviceId);
+        if (optionalArchive.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return serveArchive(optionalArchive.get(), format, pretty, acceptEncoding,
+                "latest_sbom_device_" + deviceId + "." + format + ".json");
+    }
 
-            String outputJson;
+    // Pretty exports come from the pre-rendered gzip artifact of the archive. Gzip-capable clients get
+    // the stored bytes as-is, other clients the artifact decompressed on the fly with its stored length.
+    // Both are Resources, so Range and If-None-Match are answered by Spring from the Resource and ETag.
+    // Compact exports are rare and are streamed from the archive JSON instead.
+    private ResponseEntity<?> serveArchive(SbomArchive archive, String format, boolean pretty, String acceptEncoding,
+                                           String filename) {
+        if (!SbomExportWriter.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().body(null);
+        }
 
-            if (format.equalsIgnoreCase("cyclonedx")) {
-                outputJson = sbomArchiveService.generateCycloneDxJson(sbomData);
-            } else if (format.equalsIgnoreCase("spdx")) {
-                outputJson = sbomArchiveService.generateSpdxJson(sbomData);
-            } else {
-                return ResponseEntity.badRequest().body(null);
+        try {
+            if (!pretty) {
+                String unifiedJson = sbomArchiveService.readArchiveContent(archive);
+                StreamingResponseBody body = out -> SbomExportWriter.write(format, unifiedJson, out, false);
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(body);
             }
 
-            byte[] jsonBytes = outputJson.getBytes(StandardCharsets.UTF_8);
-            ByteArrayResource resource = new ByteArrayResource(jsonBytes);
+            SbomExportArtifact artifact = sbomArchiveService.getOrCreateExportArtifact(archive, format);
+            if (acceptsGzip(acceptEncoding)) {
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .eTag(artifact.getContentHash() + "-gzip")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new ByteArrayResource(artifact.getGzipContent()));
+            }
 
             return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=sbom_archive_" + archiveId + "." + format.toLowerCase() + ".json")
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .eTag(artifact.getContentHash())
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(jsonBytes.length)
-                    .body(resource);
+                    .body(new GunzippedResource(artifact.getGzipContent(), artifact.getContentLength()));
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -476,43 +578,66 @@ public ResponseEntity<Resource> downloadArchivedSbom(
         }
     }
 
-    // download the latest version's sbom
-    @GetMapping("/download/{deviceId}/latest")
-    public ResponseEntity<Resource> downloadLatestSbom(
-            @PathVariable Long deviceId,
-            @RequestParam(name="format", defaultValue = "cyclonedx") String format
-    )
-    {
-        try {
-            Optional<SbomArchive> optionalArchive = sbomArchiveRepository.findTopByDeviceIdAndIsLatestTrue(deviceId);
-            if (optionalArchive.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+    // gzip is acceptable when listed (or covered by "*") with a q-value above 0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
             }
-
-            String unifiedJson = optionalArchive.get().getSbomContent();
-            ObjectMapper objectMapper = new ObjectMapper();
-            UnifiedSbomData sbomData = objectMapper.readValue(unifiedJson, UnifiedSbomData.class);
-
-            String outputJson;
-            if (format.equalsIgnoreCase("cyclonedx")) {
-                outputJson = sbomArchiveService.generateCycloneDxJson(sbomData);
-            } else if (format.equalsIgnoreCase("spdx")) {
-                outputJson = sbomArchiveService.generateSpdxJson(sbomData);
-            } else {
-                return ResponseEntity.badRequest().body(null);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                any = q;
             }
+        }
+        double q = gzip != null ? gzip : any != null ? any : 0;
+        return q > 0;
+    }
 
-            byte[] jsonBytes = outputJson.getBytes(StandardCharsets.UTF_8);
-            ByteArrayResource resource = new ByteArrayResource(jsonBytes);
+    // The stored artifact decompressed on every read. The length is known up front, so Spring
+    // can answer Range requests from it without buffering the whole export.
+    private static class GunzippedResource extends AbstractResource {
+        private final byte[] gzipContent;
+        private final long contentLength;
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=latest_sbom_device_" + deviceId + "." + format + ".json")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(jsonBytes.length)
-                    .body(resource);
+        GunzippedResource(byte[] gzipContent, long contentLength) {
+            this.gzipContent = gzipContent;
+            this.contentLength = contentLength;
+        }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new GZIPInputStream(new ByteArrayInputStream(gzipContent));
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public String getDescription() {
+            return "decompressed export artifact";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.sbomfinder.controller;
+
+import com.sbomfinder.model.Device;
+import com.sbomfinder.repository.DeviceRepository;
+import com.sbomfinder.service.PackageIndexService;
+import com.sbomfinder.util.PurlUtils;
+import com.sbomfinder.util.VersionRange;
+import com.sbomfinder.util.VersionScheme;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/api/packages")
+public class PackageController {
+
+    private static final String PREFIX = "/api/packages/";
+    private static final String DEVICES_SUFFIX = "/devices";
+
+    @Autowired
+    private PackageIndexService packageIndexService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    // Devices shipping a package, e.g.
+    // GET /api/packages/pkg:maven/org.apache.logging.log4j/log4j-core/devices?range=<2.17
+    // The purl contains slashes, so it is taken from the request path rather than a path variable.
+    @GetMapping("/**")
+    public ResponseEntity<?> getDevicesForPackage(HttpServletRequest request,
+                                                  @RequestParam(required = false) String range,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "100") int size) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(PREFIX) || !path.endsWith(DEVICES_SUFFIX) || path.length() <= PREFIX.length() + DEVICES_SUFFIX.length()) {
+            return ResponseEntity.notFound().build();
+        }
+        // keep '+' (build metadata) instead of turning it into a space
+        String purl = URLDecoder.decode(path.substring(PREFIX.length(), path.length() - DEVICES_SUFFIX.length())
+                .replace("+", "%2B"), StandardCharsets.UTF_8);
+
+        VersionRange versionRange;
+        try {
+            // compare with the ecosystem's ordering when the purl names one
+            versionRange = VersionRange.parse(range, VersionScheme.forEcosystem(PurlUtils.osvEcosystem(purl)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid version range: " + e.getMessage());
+        }
+        if (page < 0 || size < 1 || size > 1000) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size between 1 and 1000");
+        }
+
+        List<PackageIndexService.DeviceMatch> matches = packageIndexService.findDevices(purl, versionRange);
+        int from = Math.min(page * size, matches.size());
+        List<PackageIndexService.DeviceMatch> pageMatches = matches.subList(from, Math.min(from + size, matches.size()));
+
+        // names only for the devices on this page
+        List<Long> ids = new ArrayList<>();
+        for (PackageIndexService.DeviceMatch match : pageMatches) {
+            ids.add(match.getDeviceId());
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (Device device : deviceRepository.findAllById(ids)) {
+            names.put(device.getId(), device.getDeviceName());
+        }
+
+        List<Map<String, Object>> devices = new ArrayList<>();
+        for (PackageIndexService.DeviceMatch match : pageMatches) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("deviceId", match.getDeviceId());
+            map.put("deviceName", names.get(match.getDeviceId()));
+            map.put("versions", match.getVersions());
+            devices.add(map);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("package", purl.startsWith("pkg:") ? PurlUtils.packageKey(purl, null) : PurlUtils.packageKey(null, purl));
+        result.put("range", range);
+        result.put("totalDevices", matches.size());
+        result.put("page", page);
+        result.put("size", size);
+        result.put("devices", devices);
+        return ResponseEntity.ok(result);
+    }
+}
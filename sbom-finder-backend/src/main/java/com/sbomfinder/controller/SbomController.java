@@ -13,12 +13,14 @@ import com.sbomfinder.repository.SbomRepository;
 import com.sbomfinder.repository.SoftwarePackageRepository;
 import com.sbomfinder.repository.SupplierRepository;
 import com.sbomfinder.repository.SbomArchiveRepository;
+import com.sbomfinder.service.BulkIngestService;
+import com.sbomfinder.service.ChunkedUploadService;
 import com.sbomfinder.service.SbomGenerationResult;
-import com.sbomfinder.service.ExternalReferenceService;
+import com.sbomfinder.service.DeviceService;
 import com.sbomfinder.service.SbomGeneratorService;
 import com.sbomfinder.service.SbomArchiveService;
-import com.sbomfinder.util.ArchiveUtils;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,6 +34,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.List;
 
 
@@ -62,10 +66,16 @@ public class SbomController {
     private SbomArchiveService sbomArchiveService;
 
     @Autowired
-    private ExternalReferenceService externalReferenceService;
+    private DeviceService deviceService;
 
     @Autowired
     private SupplierRepository supplierRepository;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private BulkIngestService bulkIngestService;
     // api to upload the source code of the device
     @PostMapping("/upload-source")
     public ResponseEntity<?> uploadSourceZip(@RequestParam("file") MultipartFile file,
@@ -74,56 +84,26 @@ public class SbomController {
                                              @RequestParam(value = "manufacturer", required = false) String manufacturer,
                                              @RequestParam(value = "operatingSystem", required = false) String operatingSystem,
                                              @RequestParam(value = "osVersion", required = false) String osVersion,
-                                             @RequestParam(value = "kernelVersion", required = false) String kernelVersion) {
+                                             @RequestParam(value = "kernelVersion", required = false) String kernelVersion,
+                                             @RequestParam(value = "incremental", required = false) Boolean incremental) {
         try {
             // Save uploaded file properly
             String filename = file.getOriginalFilename().toLowerCase();
             Path tempFile = Files.createTempFile("upload-", filename.substring(filename.lastIndexOf('.')));
             file.transferTo(tempFile.toFile()); // Save only once
 
-// Extract
-            Path extractedDir = Files.createTempDirectory("extracted-source");
-            String fileExtension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
-
-            if (filename.endsWith(".zip")) {
-                ArchiveUtils.unzip(tempFile.toFile().getAbsolutePath(), extractedDir.toString());
-            } else if (filename.endsWith(".tar.gz") || filename.endsWith(".tgz")) {
-                ArchiveUtils.extractTarGz(tempFile.toFile().getAbsolutePath(), extractedDir.toString());
-            } else if (filename.endsWith(".tar")) {
-                ArchiveUtils.extractTar(tempFile.toFile().getAbsolutePath(), extractedDir.toString());
-            } else {
-                throw new IllegalArgumentException("Unsupported file type: only .zip, .tar, .tar.gz supported");
+            SbomGenerationResult result;
+            try {
+                result = sbomGeneratorService.generateFromSourceArchive(tempFile, filename, deviceName, category,
+                        manufacturer, operatingSystem, osVersion, kernelVersion, incremental, null);
+            } finally {
+                Files.deleteIfExists(tempFile);
             }
-
-// 3. Use common service
-            SbomGenerationResult result = sbomGeneratorService.generateSbomAndDeviceFromDirectory(
-                    extractedDir,
-                    deviceName,
-                    category != null ? category : "Unknown",
-                    manufacturer != null ? manufacturer : "Unknown",
-                    operatingSystem != null ? operatingSystem : "Unknown OS",
-                    osVersion != null ? osVersion : "Unknown Version",
-                    kernelVersion != null ? kernelVersion : "Unknown Kernel",
-                    "Source Upload"
-            );
-
             Device device = result.getDevice();
             String version = result.getVersion();
-            Sbom sbom = device.getSbom();
 
-            //save SBOM in Archive
-            Optional<Device> optionalDevice = deviceRepository.findById(device.getId());
-            if (optionalDevice.isEmpty()) {
-                return ResponseEntity.status(404).body(null);
-            }
-            Device archDevice = optionalDevice.get();
-            List<SoftwarePackage> archSoftwarePackages = softwarePackageRepository.findByDeviceId(archDevice.getId());
-            sbomArchiveService.saveToArchive(sbom, archDevice, version, archSoftwarePackages);
-            //save external references
-            List<String> extractedLinks = externalReferenceService.extractExternalReferences(extractedDir);
-            externalReferenceService.saveExternalReferences(sbom, extractedLinks);
-
-            return ResponseEntity.ok("SBOM and device uploaded successfully! Device ID: " + device.getId() + ", Version: " + version);
+            return ResponseEntity.ok("SBOM and device uploaded successfully! Device ID: " + device.getId() + ", Version: " + version
+                    + ", Dependency files parsed: " + result.getParsedFiles() + " of " + result.getDependencyFiles());
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -131,60 +111,151 @@ public class SbomController {
         }
     }
 
-    //delete a device from the list
-    @Transactional
-    @DeleteMapping("/{deviceId}")
-    public ResponseEntity<String> deleteDevice(@PathVariable Long deviceId) {
-        Optional<Device> deviceOpt = deviceRepository.findById(deviceId);
-        if (deviceOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    // Chunked, resumable upload for sources too big for upload-source: POST /uploads with the
+    // same parameters plus fileName and totalSize, PUT every chunk to /uploads/{id}/chunks/{n}
+    // with its SHA-256 in X-Chunk-Sha256, in any order. Ingestion starts when the last chunk
+    // lands; GET /uploads/{id} lists missing chunks (to resume) and reports the result.
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initChunkedUpload(@RequestParam("fileName") String fileName,
+                                               @RequestParam("totalSize") long totalSize,
+                                               @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+                                               @RequestParam("category") String category,
+                                               @RequestParam(value = "deviceName", required = false) String deviceName,
+                                               @RequestParam(value = "manufacturer", required = false) String manufacturer,
+                                               @RequestParam(value = "operatingSystem", required = false) String operatingSystem,
+                                               @RequestParam(value = "osVersion", required = false) String osVersion,
+                                               @RequestParam(value = "kernelVersion", required = false) String kernelVersion,
+                                               @RequestParam(value = "incremental", required = false) Boolean incremental) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("deviceName", deviceName);
+        params.put("manufacturer", manufacturer);
+        params.put("operatingSystem", operatingSystem);
+        params.put("osVersion", osVersion);
+        params.put("kernelVersion", kernelVersion);
+        params.put("incremental", incremental != null ? incremental.toString() : null);
+        try {
+            ChunkedUploadService.UploadSession session = chunkedUploadService.createSession(fileName, totalSize, chunkSize, params);
+            return ResponseEntity.status(201).body(chunkedUploadService.describe(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Could not create upload: " + e.getMessage());
         }
+    }
 
-        Device device = deviceOpt.get();
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @PathVariable int index,
+                                         @RequestHeader(name = "X-Chunk-Sha256", required = false) String sha256,
+                                         HttpServletRequest request) {
+        ChunkedUploadService.UploadSession session = chunkedUploadService.getSession(uploadId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            chunkedUploadService.writeChunk(session, index, sha256, request.getInputStream());
+            return ResponseEntity.ok(chunkedUploadService.describe(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (Exception e) {
+            // typically the client went away; the chunk stays missing and can be sent again
+            System.err.println("Chunk " + index + " of upload " + uploadId + " failed: " + e.getMessage());
+            return ResponseEntity.status(500).body("Chunk not stored: " + e.getMessage());
+        }
+    }
 
-        // Fetch all SBOMs linked to this Device
-        Optional<Sbom> sbomOpt = sbomRepository.findByDevice(device);
-        if (sbomOpt.isPresent()) {
-            Sbom sbom = sbomOpt.get();
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getChunkedUpload(@PathVariable String uploadId) {
+        ChunkedUploadService.UploadSession session = chunkedUploadService.getSession(uploadId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(chunkedUploadService.describe(session));
+    }
 
+    // Starts (or retries) ingestion of a fully received upload; 409 with the status while
+    // chunks are missing or still being written.
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable String uploadId) {
+        ChunkedUploadService.UploadSession session = chunkedUploadService.getSession(uploadId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!chunkedUploadService.startProcessing(session)) {
+            return ResponseEntity.status(409).body(chunkedUploadService.describe(session));
+        }
+        return ResponseEntity.accepted().body(chunkedUploadService.describe(session));
+    }
 
-            // 1b. Find Software Packages BEFORE deleting them
-            List<SoftwarePackage> packages = softwarePackageRepository.findByDeviceId(deviceId);
-            Set<Long> checkedSupplierIds = new HashSet<>();
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        ChunkedUploadService.UploadSession session = chunkedUploadService.getSession(uploadId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            chunkedUploadService.abort(session);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }
+    }
 
-            for (SoftwarePackage pkg : packages) {
-                // Clear vulnerability links (join table)
-                pkg.getVulnerabilities().clear();
-                softwarePackageRepository.save(pkg);
+    // Bulk onboarding: the body is a JSON or CSV manifest (or manifestFile names one in
+    // sbom.bulk.staging-dir) listing devices and their source archives in the staging directory.
+    // Ingests in the background; poll GET /bulk/{batchId} for per-device results and throughput.
+    @PostMapping("/bulk")
+    public ResponseEntity<?> startBulkIngest(@RequestBody(required = false) String manifest,
+                                             @RequestParam(value = "manifestFile", required = false) String manifestFile) {
+        try {
+            BulkIngestService.BulkBatch batch = manifestFile != null
+                    ? bulkIngestService.startFromFile(manifestFile)
+                    : bulkIngestService.start(manifest);
+            return ResponseEntity.accepted().body(bulkIngestService.describe(batch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Could not read manifest: " + e.getMessage());
+        }
+    }
 
-                // Handle supplier deletion
-                Supplier supplier = pkg.getSupplier();
-                if (supplier != null && !checkedSupplierIds.contains(supplier.getId())) {
-                    long count = softwarePackageRepository.countBySupplierId(supplier.getId());
-                    if (count <= 1) {
-                        supplierRepository.deleteById(supplier.getId());
-                    }
-                    checkedSupplierIds.add(supplier.getId());
-                }
-            }
+    @GetMapping("/bulk/{batchId}")
+    public ResponseEntity<?> getBulkIngest(@PathVariable String batchId) {
+        BulkIngestService.BulkBatch batch = bulkIngestService.getBatch(batchId);
+        if (batch == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(bulkIngestService.describe(batch));
+    }
 
-            // 1. Delete Software Packages linked to this Device
-            softwarePackageRepository.deleteByDeviceId(deviceId);
+    //delete a device from the list
+    @DeleteMapping("/{deviceId}")
+    public ResponseEntity<String> deleteDevice(@PathVariable Long deviceId) {
+        if (!deviceRepository.existsById(deviceId)) {
+            return ResponseEntity.notFound().build();
+        }
 
-            // 2. Delete External References linked to this SBOM
-            externalReferenceRepository.deleteBySbom_Id(sbom.getId());
+        deviceService.deleteDevices(List.of(deviceId));
 
-            // 3. Delete Archive entries for this Device
-            sbomArchiveRepository.deleteByDeviceId(deviceId);
+        return ResponseEntity.ok("Device and all associated SBOMs deleted successfully!");
+    }
 
-            // 4. Delete the SBOM itself
-            sbomRepository.delete(sbom);
+    //delete several devices at once, e.g. DELETE /api/sboms?ids=1,2,3
+    @DeleteMapping
+    public ResponseEntity<String> deleteDevices(@RequestParam("ids") List<Long> deviceIds) {
+        if (deviceIds.isEmpty()) {
+            return ResponseEntity.badRequest().body("No device ids given");
         }
 
-        // 4. Finally delete the Device
-        deviceRepository.delete(device);
+        int deleted = deviceService.deleteDevices(new HashSet<>(deviceIds));
 
-        return ResponseEntity.ok("Device and all associated SBOMs deleted successfully!");
+        return ResponseEntity.ok(deleted + " device(s) and all associated SBOMs deleted successfully!");
     }
 
     public static class DeviceDetailsResponse {
@@ -0,0 +1,82 @@
+package com.sbomfinder.controller;
+
+import com.sbomfinder.service.SearchIndexService;
+import com.sbomfinder.service.SuggestionIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final Set<String> TYPES = Set.of(
+            SearchIndexService.TYPE_DEVICE, SearchIndexService.TYPE_PACKAGE, SearchIndexService.TYPE_SUPPLIER);
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private SuggestionIndexService suggestionIndexService;
+
+    // Search across devices, packages and suppliers from the in-process index, e.g.
+    // GET /api/search?q=openssl&types=package,device&size=8 for the search bar's typeahead.
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(required = false) List<String> types,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        if (!searchIndexService.isEnabled() || !searchIndexService.isReady()) {
+            return ResponseEntity.status(503).body(searchIndexService.isEnabled()
+                    ? "Search index is still being built" : "Search index is disabled");
+        }
+        if (page < 0 || size < 1 || size > 200 || (long) page * size > 10000) {
+            return ResponseEntity.badRequest().body("page must be >= 0, size between 1 and 200, and page * size at most 10000");
+        }
+        Set<String> typeFilter = new HashSet<>();
+        if (types != null) {
+            for (String type : types) {
+                String t = type.trim().toLowerCase(Locale.ROOT);
+                if (!TYPES.contains(t)) {
+                    return ResponseEntity.badRequest().body("Unknown type: " + type + " (expected one of " + TYPES + ")");
+                }
+                typeFilter.add(t);
+            }
+        }
+
+        SearchIndexService.SearchPage result = searchIndexService.search(query, typeFilter, page * size, size);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", query);
+        response.put("total", result.getTotal());
+        response.put("page", page);
+        response.put("size", size);
+        response.put("hits", result.getHits());
+        return ResponseEntity.ok(response);
+    }
+
+    // Completions for the search bar as the user types, e.g. GET /api/search/suggest?q=fitb&limit=8
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam("q") String query,
+                                     @RequestParam(required = false) String type,
+                                     @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > SuggestionIndexService.MAX_SUGGESTIONS) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + SuggestionIndexService.MAX_SUGGESTIONS);
+        }
+        if (type != null && !type.equals(SuggestionIndexService.TYPE_DEVICE)
+                && !type.equals(SuggestionIndexService.TYPE_MANUFACTURER)
+                && !type.equals(SuggestionIndexService.TYPE_PACKAGE)) {
+            return ResponseEntity.badRequest().body("type must be one of device, manufacturer, package");
+        }
+        return ResponseEntity.ok(suggestionIndexService.suggest(query, type, limit));
+    }
+
+    // Build time, memory footprint and query latency of the index
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(searchIndexService.getStats());
+    }
+}
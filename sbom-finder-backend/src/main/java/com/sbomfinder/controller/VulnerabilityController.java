@@ -0,0 +1,138 @@
+package com.sbomfinder.controller;
+
+import com.sbomfinder.service.AdvisoryImportService;
+import com.sbomfinder.service.CveDeviceIndexService;
+import com.sbomfinder.service.OrphanCleanupService;
+import com.sbomfinder.service.VulnerabilityRescanService;
+import com.sbomfinder.service.VulnerabilityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/api/vulnerabilities")
+public class VulnerabilityController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BULK_CVES = 1000;
+
+    @Autowired
+    private VulnerabilityService vulnerabilityService;
+
+    @Autowired
+    private CveDeviceIndexService cveDeviceIndexService;
+
+    @Autowired
+    private AdvisoryImportService advisoryImportService;
+
+    @Autowired
+    private VulnerabilityRescanService vulnerabilityRescanService;
+
+    @Autowired
+    private OrphanCleanupService orphanCleanupService;
+
+    // Import the OSV exports in sbom.advisories.import-dir into the local advisory store.
+    // Runs in the background; poll GET /api/vulnerabilities/import for progress.
+    @PostMapping("/import")
+    public ResponseEntity<?> startAdvisoryImport() {
+        if (!advisoryImportService.startImport()) {
+            return ResponseEntity.status(409).body("An advisory import is already running");
+        }
+        return ResponseEntity.accepted().body(advisoryImportService.getStatus());
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<?> getAdvisoryImportStatus() {
+        return ResponseEntity.ok(advisoryImportService.getStatus());
+    }
+
+    // Re-scan progress: coordinates tracked, due and failing, and totals since startup,
+    // plus what the last orphan cleanup reclaimed (it drops vulnerabilities no longer linked)
+    @GetMapping("/rescan")
+    public ResponseEntity<?> getRescanStatus() {
+        Map<String, Object> status = vulnerabilityRescanService.getStatus();
+        status.put("orphanCleanup", orphanCleanupService.getStatus());
+        return ResponseEntity.ok(status);
+    }
+
+    // Runs one re-scan pass now instead of waiting for the schedule
+    @PostMapping("/rescan")
+    public ResponseEntity<?> runRescan() {
+        Map<String, Object> run = vulnerabilityRescanService.runRescan();
+        if (run == null) {
+            return ResponseEntity.status(409).body("A re-scan is already running");
+        }
+        return ResponseEntity.ok(run);
+    }
+
+    // devices affected by one CVE, with the vulnerable package versions
+    @GetMapping("/{cveId}/devices")
+    public ResponseEntity<?> getAffectedDevices(@PathVariable String cveId,
+                                                @RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "100") int size) {
+        return affectedDevices(List.of(cveId), page, size);
+    }
+
+    // same for a list of CVE ids, e.g. everything in a new advisory
+    @PostMapping("/devices")
+    public ResponseEntity<?> getAffectedDevicesBulk(@RequestBody List<String> cveIds,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "100") int size) {
+        return affectedDevices(cveIds, page, size);
+    }
+
+    // Fleet-wide fan-out from the in-memory index: affected device ids and counts per CVE,
+    // without package details and without a database round trip.
+    @PostMapping("/triage")
+    public ResponseEntity<?> triage(@RequestBody List<String> cveIds) {
+        Set<String> ids = normalize(cveIds);
+        if (ids.isEmpty() || ids.size() > MAX_BULK_CVES) {
+            return ResponseEntity.badRequest().body("Between 1 and " + MAX_BULK_CVES + " CVE ids are required");
+        }
+
+        long start = System.nanoTime();
+        CveDeviceIndexService.FanOut fanOut = cveDeviceIndexService.fanOut(ids);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("devicesPerCve", fanOut.getDevicesPerCve());
+        result.put("affectedDeviceCount", fanOut.getDeviceIds().length);
+        result.put("deviceIds", fanOut.getDeviceIds());
+        result.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<?> affectedDevices(List<String> cveIds, int page, int size) {
+        Set<String> ids = normalize(cveIds);
+        if (ids.isEmpty() || ids.size() > MAX_BULK_CVES) {
+            return ResponseEntity.badRequest().body("Between 1 and " + MAX_BULK_CVES + " CVE ids are required");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        VulnerabilityService.AffectedDevicesPage result = vulnerabilityService.findAffectedDevices(ids, page, size);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cveIds", ids);
+        response.put("total", result.getTotal());
+        response.put("page", page);
+        response.put("size", size);
+        response.put("results", result.getResults());
+        return ResponseEntity.ok(response);
+    }
+
+    private static Set<String> normalize(List<String> cveIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (cveIds != null) {
+            for (String id : cveIds) {
+                if (id != null && !id.isBlank()) {
+                    ids.add(id.trim());
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,22 @@
+package com.sbomfinder.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AffectedDeviceDTO {
+    private String cveId;
+    private Long deviceId;
+    private String deviceName;
+    private List<AffectedPackageDTO> packages = new ArrayList<>();
+
+    public AffectedDeviceDTO(String cveId, Long deviceId, String deviceName) {
+        this.cveId = cveId;
+        this.deviceId = deviceId;
+        this.deviceName = deviceName;
+    }
+
+    public String getCveId() { return cveId; }
+    public Long getDeviceId() { return deviceId; }
+    public String getDeviceName() { return deviceName; }
+    public List<AffectedPackageDTO> getPackages() { return packages; }
+}
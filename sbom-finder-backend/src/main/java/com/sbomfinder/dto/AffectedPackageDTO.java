@@ -0,0 +1,14 @@
+package com.sbomfinder.dto;
+
+public class AffectedPackageDTO {
+    private String name;
+    private String version;
+
+    public AffectedPackageDTO(String name, String version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getName() { return name; }
+    public String getVersion() { return version; }
+}
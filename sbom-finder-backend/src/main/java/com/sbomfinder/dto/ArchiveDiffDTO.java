@@ -0,0 +1,44 @@
+package com.sbomfinder.dto;
+
+import java.util.List;
+
+public class ArchiveDiffDTO {
+    private Long fromArchiveId;
+    private Long toArchiveId;
+    private String fromVersion;
+    private String toVersion;
+    private List<SoftwareUpdateDTO> added;
+    private List<SoftwareUpdateDTO> removed;
+    private List<SoftwareUpdateDTO> upgraded;
+    private List<SoftwareUpdateDTO> downgraded;
+    private List<UnifiedVulnerability> introducedVulnerabilities;
+    private List<UnifiedVulnerability> resolvedVulnerabilities;
+
+    public ArchiveDiffDTO(Long fromArchiveId, Long toArchiveId, String fromVersion, String toVersion,
+                          List<SoftwareUpdateDTO> added, List<SoftwareUpdateDTO> removed,
+                          List<SoftwareUpdateDTO> upgraded, List<SoftwareUpdateDTO> downgraded,
+                          List<UnifiedVulnerability> introducedVulnerabilities,
+                          List<UnifiedVulnerability> resolvedVulnerabilities) {
+        this.fromArchiveId = fromArchiveId;
+        this.toArchiveId = toArchiveId;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.added = added;
+        this.removed = removed;
+        this.upgraded = upgraded;
+        this.downgraded = downgraded;
+        this.introducedVulnerabilities = introducedVulnerabilities;
+        this.resolvedVulnerabilities = resolvedVulnerabilities;
+    }
+
+    public Long getFromArchiveId() { return fromArchiveId; }
+    public Long getToArchiveId() { return toArchiveId; }
+    public String getFromVersion() { return fromVersion; }
+    public String getToVersion() { return toVersion; }
+    public List<SoftwareUpdateDTO> getAdded() { return added; }
+    public List<SoftwareUpdateDTO> getRemoved() { return removed; }
+    public List<SoftwareUpdateDTO> getUpgraded() { return upgraded; }
+    public List<SoftwareUpdateDTO> getDowngraded() { return downgraded; }
+    public List<UnifiedVulnerability> getIntroducedVulnerabilities() { return introducedVulnerabilities; }
+    public List<UnifiedVulnerability> getResolvedVulnerabilities() { return resolvedVulnerabilities; }
+}
@@ -1,12 +1,31 @@
 package com.sbomfinder.dto;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class CompareDevicesRequest {
     private Long device_1;
     private Long device_2;
+    // N-way comparison; device_1/device_2 are added to it when set
+    private List<Long> deviceIds;
 
     public Long getDevice_1() { return device_1; }
     public Long getDevice_2() { return device_2; }
+    public List<Long> getDeviceIds() { return deviceIds; }
 
     public void setDevice_1(Long device_1) { this.device_1 = device_1; }
     public void setDevice_2(Long device_2) { this.device_2 = device_2; }
+    public void setDeviceIds(List<Long> deviceIds) { this.deviceIds = deviceIds; }
+
+    public List<Long> resolveDeviceIds() {
+        List<Long> ids = new ArrayList<>();
+        if (device_1 != null) ids.add(device_1);
+        if (device_2 != null) ids.add(device_2);
+        if (deviceIds != null) {
+            for (Long id : deviceIds) {
+                if (id != null && !ids.contains(id)) ids.add(id);
+            }
+        }
+        return ids;
+    }
 }
@@ -0,0 +1,34 @@
+package com.sbomfinder.dto;
+
+import java.util.Map;
+
+public class ComparedPackageDTO {
+    private String packageKey;
+    private String name;
+    private String componentType;
+    // device id -> version / supplier, only for the devices that carry the package
+    private Map<Long, String> versions;
+    private Map<Long, String> suppliers;
+    private boolean versionsDiffer;
+    private boolean suppliersDiffer;
+
+    public ComparedPackageDTO(String packageKey, String name, String componentType,
+                              Map<Long, String> versions, Map<Long, String> suppliers,
+                              boolean versionsDiffer, boolean suppliersDiffer) {
+        this.packageKey = packageKey;
+        this.name = name;
+        this.componentType = componentType;
+        this.versions = versions;
+        this.suppliers = suppliers;
+        this.versionsDiffer = versionsDiffer;
+        this.suppliersDiffer = suppliersDiffer;
+    }
+
+    public String getPackageKey() { return packageKey; }
+    public String getName() { return name; }
+    public String getComponentType() { return componentType; }
+    public Map<Long, String> getVersions() { return versions; }
+    public Map<Long, String> getSuppliers() { return suppliers; }
+    public boolean isVersionsDiffer() { return versionsDiffer; }
+    public boolean isSuppliersDiffer() { return suppliersDiffer; }
+}
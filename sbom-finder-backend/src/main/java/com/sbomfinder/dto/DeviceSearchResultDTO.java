@@ -0,0 +1,30 @@
+package com.sbomfinder.dto;
+
+public class DeviceSearchResultDTO {
+    private Long id;
+    private String deviceName;
+    private String manufacturer;
+    private String category;
+    private String operatingSystem;
+    private String osVersion;
+    private double score;
+
+    public DeviceSearchResultDTO(Long id, String deviceName, String manufacturer, String category,
+                                 String operatingSystem, String osVersion, double score) {
+        this.id = id;
+        this.deviceName = deviceName;
+        this.manufacturer = manufacturer;
+        this.category = category;
+        this.operatingSystem = operatingSystem;
+        this.osVersion = osVersion;
+        this.score = score;
+    }
+
+    public Long getId() { return id; }
+    public String getDeviceName() { return deviceName; }
+    public String getManufacturer() { return manufacturer; }
+    public String getCategory() { return category; }
+    public String getOperatingSystem() { return operatingSystem; }
+    public String getOsVersion() { return osVersion; }
+    public double getScore() { return score; }
+}
@@ -0,0 +1,35 @@
+package com.sbomfinder.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class DeviceSetComparisonDTO {
+    private List<Long> deviceIds;
+    private Map<Long, String> deviceNames;
+    // packages on every compared device
+    private List<ComparedPackageDTO> common;
+    // device id -> packages found on that device only
+    private Map<Long, List<ComparedPackageDTO>> onlyIn;
+    // packages on more than one but not all devices (N > 2)
+    private List<ComparedPackageDTO> partial;
+    // pairwise view of common, filled when exactly two devices are compared
+    private List<CommonSoftwareDTO> commonSoftware;
+
+    public DeviceSetComparisonDTO(List<Long> deviceIds, Map<Long, String> deviceNames,
+                                  List<ComparedPackageDTO> common, Map<Long, List<ComparedPackageDTO>> onlyIn,
+                                  List<ComparedPackageDTO> partial, List<CommonSoftwareDTO> commonSoftware) {
+        this.deviceIds = deviceIds;
+        this.deviceNames = deviceNames;
+        this.common = common;
+        this.onlyIn = onlyIn;
+        this.partial = partial;
+        this.commonSoftware = commonSoftware;
+    }
+
+    public List<Long> getDeviceIds() { return deviceIds; }
+    public Map<Long, String> getDeviceNames() { return deviceNames; }
+    public List<ComparedPackageDTO> getCommon() { return common; }
+    public Map<Long, List<ComparedPackageDTO>> getOnlyIn() { return onlyIn; }
+    public List<ComparedPackageDTO> getPartial() { return partial; }
+    public List<CommonSoftwareDTO> getCommonSoftware() { return commonSoftware; }
+}
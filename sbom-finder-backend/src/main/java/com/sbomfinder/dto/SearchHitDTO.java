@@ -0,0 +1,26 @@
+package com.sbomfinder.dto;
+
+public class SearchHitDTO {
+    private String type;
+    private String id;
+    private String label;
+    private String detail;
+    private Integer deviceCount;
+    private double score;
+
+    public SearchHitDTO(String type, String id, String label, String detail, Integer deviceCount, double score) {
+        this.type = type;
+        this.id = id;
+        this.label = label;
+        this.detail = detail;
+        this.deviceCount = deviceCount;
+        this.score = score;
+    }
+
+    public String getType() { return type; }
+    public String getId() { return id; }
+    public String getLabel() { return label; }
+    public String getDetail() { return detail; }
+    public Integer getDeviceCount() { return deviceCount; }
+    public double getScore() { return score; }
+}
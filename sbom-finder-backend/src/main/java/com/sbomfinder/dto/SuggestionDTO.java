@@ -0,0 +1,17 @@
+package com.sbomfinder.dto;
+
+public class SuggestionDTO {
+    private String text;
+    private String type;
+    private int count;
+
+    public SuggestionDTO(String text, String type, int count) {
+        this.text = text;
+        this.type = type;
+        this.count = count;
+    }
+
+    public String getText() { return text; }
+    public String getType() { return type; }
+    public int getCount() { return count; }
+}
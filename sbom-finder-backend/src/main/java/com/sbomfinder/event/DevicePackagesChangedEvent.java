@@ -0,0 +1,12 @@
+package com.sbomfinder.event;
+
+// Published when the software packages of a device were (re)written, e.g. after an upload.
+public class DevicePackagesChangedEvent {
+    private final Long deviceId;
+
+    public DevicePackagesChangedEvent(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public Long getDeviceId() { return deviceId; }
+}
@@ -0,0 +1,16 @@
+package com.sbomfinder.event;
+
+import java.util.Collection;
+
+// Published by VulnerabilityRescanService when a re-scan added or removed vulnerability links
+// of these devices' packages, and by SbomService when an upload's lookup changed the links of
+// components these devices share. The packages themselves are unchanged.
+public class DeviceVulnerabilitiesChangedEvent {
+    private final Collection<Long> deviceIds;
+
+    public DeviceVulnerabilitiesChangedEvent(Collection<Long> deviceIds) {
+        this.deviceIds = deviceIds;
+    }
+
+    public Collection<Long> getDeviceIds() { return deviceIds; }
+}
@@ -0,0 +1,19 @@
+package com.sbomfinder.event;
+
+import java.util.Collection;
+import java.util.List;
+
+// Published by DeviceService.deleteDevices for the devices it removed.
+public class DevicesDeletedEvent {
+    private final Collection<Long> deviceIds;
+    // [deviceName, manufacturer] of each removed device; the rows are gone once this is handled
+    private final List<String[]> deviceNames;
+
+    public DevicesDeletedEvent(Collection<Long> deviceIds, List<String[]> deviceNames) {
+        this.deviceIds = deviceIds;
+        this.deviceNames = deviceNames;
+    }
+
+    public Collection<Long> getDeviceIds() { return deviceIds; }
+    public List<String[]> getDeviceNames() { return deviceNames; }
+}
@@ -0,0 +1,38 @@
+package com.sbomfinder.model;
+
+import jakarta.persistence.*;
+
+// One deduplicated piece of archived SBOM content (a component or a vulnerability entry),
+// addressed by the SHA-256 of its JSON. Identical entries in different archive versions
+// share a row; refCount counts the archives that use it.
+@Entity
+@Table(name = "archive_objects")
+public class ArchiveObject {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, columnDefinition = "BYTEA")
+    private byte[] payload;
+
+    @Column(name = "raw_length", nullable = false)
+    private int rawLength;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    public ArchiveObject() {}
+
+    // Getters
+    public String getHash() { return hash; }
+    public byte[] getPayload() { return payload; }
+    public int getRawLength() { return rawLength; }
+    public int getRefCount() { return refCount; }
+
+    // Setters
+    public void setHash(String hash) { this.hash = hash; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+    public void setRawLength(int rawLength) { this.rawLength = rawLength; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+}
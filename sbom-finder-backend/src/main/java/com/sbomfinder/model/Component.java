@@ -0,0 +1,65 @@
+package com.sbomfinder.model;
+
+import jakarta.persistence.*;
+import java.util.HashSet;
+import java.util.Set;
+
+// One package coordinate (purl, name, version), shared by every SBOM that contains it.
+// Vulnerabilities are linked here once instead of to each device's SoftwarePackage row.
+// Created by ComponentService; missing purls and versions are stored as "".
+@Entity
+@Table(name = "components",
+        uniqueConstraints = @UniqueConstraint(name = "ux_components_coordinate", columnNames = {"purl", "name", "version"}))
+public class Component {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String purl;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String name;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String version;
+
+    // purl type, e.g. maven or npm; null without a purl
+    @Column(columnDefinition = "TEXT")
+    private String ecosystem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "supplier_id")
+    private Supplier supplier;
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+            name = "component_vulnerabilities",
+            joinColumns = @JoinColumn(name = "component_id"),
+            inverseJoinColumns = @JoinColumn(name = "vulnerability_id"),
+            // reverse lookups (CVE -> components) start from the vulnerability side
+            indexes = @Index(name = "ix_component_vulnerabilities_vulnerability", columnList = "vulnerability_id")
+    )
+    private Set<Vulnerability> vulnerabilities = new HashSet<>();
+
+    public Component() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public String getPurl() { return purl; }
+    public String getName() { return name; }
+    public String getVersion() { return version; }
+    public String getEcosystem() { return ecosystem; }
+    public Supplier getSupplier() { return supplier; }
+    public Set<Vulnerability> getVulnerabilities() { return vulnerabilities; }
+
+    // Setters
+    public void setId(Long id) { this.id = id; }
+    public void setPurl(String purl) { this.purl = purl; }
+    public void setName(String name) { this.name = name; }
+    public void setVersion(String version) { this.version = version; }
+    public void setEcosystem(String ecosystem) { this.ecosystem = ecosystem; }
+    public void setSupplier(Supplier supplier) { this.supplier = supplier; }
+    public void setVulnerabilities(Set<Vulnerability> vulnerabilities) { this.vulnerabilities = vulnerabilities; }
+}
@@ -6,7 +6,7 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
-@Table(name = "sbom_files")
+@Table(name = "sbom_files", indexes = @Index(name = "ix_sbom_files_device", columnList = "device_id"))
 public class Sbom {
 
     @Id
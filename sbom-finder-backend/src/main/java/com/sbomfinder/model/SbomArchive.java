@@ -2,6 +2,7 @@ package com.sbomfinder.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Index;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -14,7 +15,7 @@ import jakarta.persistence.CascadeType;
 import com.sbomfinder.model.Device;
 
 @Entity
-@Table(name = "sbom_archive")
+@Table(name = "sbom_archive", indexes = @Index(name = "ix_sbom_archive_device_latest", columnList = "device_id, is_latest"))
 public class SbomArchive {
 
     @Id
@@ -0,0 +1,61 @@
+package com.sbomfinder.model;
+
+import jakarta.persistence.*;
+
+// Compressed list of the archive objects that make up one archive version. Kept apart from
+// sbom_archive so listing archives never reads SBOM content. Keyframes list every object;
+// delta manifests only record the changes against the manifest of base_archive_id.
+@Entity
+@Table(name = "sbom_archive_manifests")
+public class SbomArchiveManifest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "archive_id", nullable = false, unique = true)
+    private SbomArchive archive;
+
+    @Column(nullable = false, columnDefinition = "BYTEA")
+    private byte[] manifest;
+
+    @Column(name = "raw_length", nullable = false)
+    private int rawLength;
+
+    @Column(name = "component_count", nullable = false)
+    private int componentCount;
+
+    @Column(name = "vulnerability_count", nullable = false)
+    private int vulnerabilityCount;
+
+    // null for keyframes
+    @Column(name = "base_archive_id")
+    private Long baseArchiveId;
+
+    // number of deltas between this manifest and its keyframe
+    @Column(name = "delta_depth", nullable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private int deltaDepth;
+
+    public SbomArchiveManifest() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public SbomArchive getArchive() { return archive; }
+    public byte[] getManifest() { return manifest; }
+    public int getRawLength() { return rawLength; }
+    public int getComponentCount() { return componentCount; }
+    public int getVulnerabilityCount() { return vulnerabilityCount; }
+    public Long getBaseArchiveId() { return baseArchiveId; }
+    public int getDeltaDepth() { return deltaDepth; }
+
+    // Setters
+    public void setId(Long id) { this.id = id; }
+    public void setArchive(SbomArchive archive) { this.archive = archive; }
+    public void setManifest(byte[] manifest) { this.manifest = manifest; }
+    public void setRawLength(int rawLength) { this.rawLength = rawLength; }
+    public void setComponentCount(int componentCount) { this.componentCount = componentCount; }
+    public void setVulnerabilityCount(int vulnerabilityCount) { this.vulnerabilityCount = vulnerabilityCount; }
+    public void setBaseArchiveId(Long baseArchiveId) { this.baseArchiveId = baseArchiveId; }
+    public void setDeltaDepth(int deltaDepth) { this.deltaDepth = deltaDepth; }
+}
@@ -0,0 +1,65 @@
+package com.sbomfinder.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Pre-rendered, gzip-compressed CycloneDX/SPDX export of one archive version.
+// Archives never change once written, so the artifact is generated once and served as-is.
+@Entity
+@Table(name = "sbom_export_artifacts",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"archive_id", "format"}))
+public class SbomExportArtifact {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "archive_id", nullable = false)
+    private SbomArchive archive;
+
+    @Column(nullable = false)
+    private String format;
+
+    // SHA-256 of the uncompressed document, used as the ETag
+    @Column(name = "content_hash", nullable = false)
+    private String contentHash;
+
+    @Column(name = "content_length", nullable = false)
+    private long contentLength;
+
+    @Column(name = "gzip_content", nullable = false, columnDefinition = "BYTEA")
+    private byte[] gzipContent;
+
+    @Column(nullable = false)
+    private LocalDateTime created;
+
+    public SbomExportArtifact() {}
+
+    public SbomExportArtifact(SbomArchive archive, String format, String contentHash, long contentLength, byte[] gzipContent) {
+        this.archive = archive;
+        this.format = format;
+        this.contentHash = contentHash;
+        this.contentLength = contentLength;
+        this.gzipContent = gzipContent;
+        this.created = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public SbomArchive getArchive() { return archive; }
+    public String getFormat() { return format; }
+    public String getContentHash() { return contentHash; }
+    public long getContentLength() { return contentLength; }
+    public byte[] getGzipContent() { return gzipContent; }
+    public LocalDateTime getCreated() { return created; }
+
+    // Setters
+    public void setId(Long id) { this.id = id; }
+    public void setArchive(SbomArchive archive) { this.archive = archive; }
+    public void setFormat(String format) { this.format = format; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public void setContentLength(long contentLength) { this.contentLength = contentLength; }
+    public void setGzipContent(byte[] gzipContent) { this.gzipContent = gzipContent; }
+    public void setCreated(LocalDateTime created) { this.created = created; }
+}
@@ -12,7 +12,13 @@ import jakarta.persistence.JoinColumn;
 
 
 @Entity
-@Table(name = "software_packages")
+// indexes also created by V4__add_lookup_indexes.sql for databases that predate them
+@Table(name = "software_packages", indexes = {
+        @Index(name = "ix_software_packages_device", columnList = "device_id"),
+        @Index(name = "ix_software_packages_sbom", columnList = "sbom_id"),
+        @Index(name = "ix_software_packages_supplier", columnList = "supplier_id"),
+        @Index(name = "ix_software_packages_component", columnList = "component_id")
+})
 public class SoftwarePackage {
 
     @Id
@@ -54,23 +60,19 @@ public class SoftwarePackage {
     @Column(name = "purl", columnDefinition = "TEXT")
     private String purl;
 
+    // dependency file the package was extracted from, relative to the uploaded source root
+    @Column(name = "source_file", columnDefinition = "TEXT")
+    private String sourceFile;
+
     @ManyToOne
     @JoinColumn(name = "supplier_id")
     private Supplier supplier;
 
 
-    @ManyToMany(cascade = {CascadeType.ALL}, fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "vulnerability_packages",
-            joinColumns = @JoinColumn(name = "software_package_id"),
-            inverseJoinColumns = @JoinColumn(name = "vulnerability_id")
-    )
-
-    private Set<Vulnerability> vulnerabilities = new HashSet<>();
-
-    public void setVulnerabilities(Set<Vulnerability> vulnerabilities) {
-        this.vulnerabilities = vulnerabilities;
-    }
+    // shared coordinate; vulnerabilities are linked to it rather than to this row
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "component_id")
+    private Component component;
 
     public SoftwarePackage() {}
 
@@ -100,7 +102,11 @@ public class SoftwarePackage {
     public String getCopyrightText() { return copyrightText; }
     public String getComponentType() { return componentType; }
     public String getPurl() { return purl; }
-    public Set<Vulnerability> getVulnerabilities() { return vulnerabilities; }
+    public String getSourceFile() { return sourceFile; }
+    public Component getComponent() { return component; }
+    public Set<Vulnerability> getVulnerabilities() {
+        return component != null ? component.getVulnerabilities() : Set.of();
+    }
     public Device getDevice() { return device; }
 
 
@@ -117,5 +123,7 @@ public class SoftwarePackage {
     public void setCopyrightText(String copyrightText) { this.copyrightText = copyrightText; }
     public void setComponentType(String componentType) { this.componentType = componentType; } // ✅ New Field
     public void setPurl(String purl) { this.purl = purl; }
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
     public void setDevice(Device device) { this.device = device; }
+    public void setComponent(Component component) { this.component = component; }
 }
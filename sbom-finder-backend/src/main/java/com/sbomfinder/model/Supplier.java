@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(name = "supplier", indexes = @Index(name = "ix_supplier_name", columnList = "name"))
 public class Supplier {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
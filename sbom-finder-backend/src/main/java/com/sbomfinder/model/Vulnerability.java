@@ -23,7 +23,7 @@ public class Vulnerability {
     private Double cvssScore;
 
     @ManyToMany(mappedBy = "vulnerabilities")
-    private Set<SoftwarePackage> softwarePackages = new HashSet<>();
+    private Set<Component> components = new HashSet<>();
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -41,12 +41,12 @@ public class Vulnerability {
     public void setSeverity(String severity) { this.severity = severity; }
     public void setSourceUrl(String sourceUrl) { this.sourceUrl = sourceUrl; }
 
-    public Set<SoftwarePackage> getSoftwarePackages() {
-        return softwarePackages;
+    public Set<Component> getComponents() {
+        return components;
     }
 
-    public void setSoftwarePackages(Set<SoftwarePackage> softwarePackages) {
-        this.softwarePackages = softwarePackages;
+    public void setComponents(Set<Component> components) {
+        this.components = components;
     }
     public void setCvssScore(Double cvssScore) { this.cvssScore = cvssScore; }
     public void setSeverityLevel(String severityLevel) {
@@ -0,0 +1,17 @@
+package com.sbomfinder.repository;
+
+import com.sbomfinder.model.Component;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ComponentRepository extends JpaRepository<Component, Long> {
+
+    @Query("SELECT DISTINCT c FROM Component c LEFT JOIN FETCH c.vulnerabilities WHERE c.id IN :ids")
+    List<Component> findAllWithVulnerabilitiesByIdIn(@Param("ids") Collection<Long> ids);
+}
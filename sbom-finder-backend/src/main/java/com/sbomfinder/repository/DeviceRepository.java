@@ -2,9 +2,11 @@ package com.sbomfinder.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.sbomfinder.model.Device;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -33,4 +35,17 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     Optional<Device> findByDeviceNameAndManufacturer(String deviceName, String manufacturer);
     Optional<Device> findById(Long id);
     Optional<Device> findByDeviceNameAndManufacturerAndCategory(String deviceName, String manufacturer, String category);
+
+    // [id, deviceName, manufacturer] of the devices that exist
+    @Query("SELECT d.id, d.deviceName, d.manufacturer FROM Device d WHERE d.id IN :deviceIds")
+    List<Object[]> findExistingNames(@Param("deviceIds") Collection<Long> deviceIds);
+
+    // devices.sbom_id and sbom_files.device_id point at each other, so the link is cut before deleting either side
+    @Modifying
+    @Query("UPDATE Device d SET d.sbom = NULL WHERE d.id IN :deviceIds")
+    int detachSboms(@Param("deviceIds") Collection<Long> deviceIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Device d WHERE d.id IN :deviceIds")
+    int deleteByIds(@Param("deviceIds") Collection<Long> deviceIds);
 }
\ No newline at end of file
@@ -3,9 +3,12 @@ package com.sbomfinder.repository;
 import com.sbomfinder.model.ExternalReference;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.sbomfinder.model.Sbom;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,4 +20,8 @@ public interface ExternalReferenceRepository extends JpaRepository<ExternalRefer
     void deleteBySbom_Id(Long sbomId);
     boolean existsBySbomAndReferenceLocator(Sbom sbom, String referenceLocator);
 
+    @Modifying
+    @Query("DELETE FROM ExternalReference er WHERE er.sbom.id IN (SELECT s.id FROM Sbom s WHERE s.device.id IN :deviceIds)")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+
 }
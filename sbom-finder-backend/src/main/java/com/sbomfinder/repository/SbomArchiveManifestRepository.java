@@ -0,0 +1,22 @@
+package com.sbomfinder.repository;
+
+import com.sbomfinder.model.SbomArchiveManifest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SbomArchiveManifestRepository extends JpaRepository<SbomArchiveManifest, Long> {
+    Optional<SbomArchiveManifest> findByArchiveId(Long archiveId);
+
+    @Query("SELECT m FROM SbomArchiveManifest m WHERE m.archive.device.id IN :deviceIds")
+    List<SbomArchiveManifest> findByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+
+    @Modifying
+    @Query("DELETE FROM SbomArchiveManifest m WHERE m.archive.id IN (SELECT sa.id FROM SbomArchive sa WHERE sa.device.id IN :deviceIds)")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+}
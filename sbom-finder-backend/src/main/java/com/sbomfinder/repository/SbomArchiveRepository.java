@@ -2,6 +2,10 @@ package com.sbomfinder.repository;
 
 import com.sbomfinder.model.SbomArchive;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,4 +13,8 @@ public interface SbomArchiveRepository extends JpaRepository<SbomArchive, Long>
     Optional<SbomArchive> findTopByDeviceIdAndIsLatestTrue(Long deviceId);
     List<SbomArchive> findAllByDeviceId(Long deviceId);
     void deleteByDeviceId(Long deviceId);
+
+    @Modifying
+    @Query("DELETE FROM SbomArchive a WHERE a.device.id IN :deviceIds")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
 }
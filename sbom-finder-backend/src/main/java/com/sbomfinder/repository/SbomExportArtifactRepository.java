@@ -0,0 +1,18 @@
+package com.sbomfinder.repository;
+
+import com.sbomfinder.model.SbomExportArtifact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface SbomExportArtifactRepository extends JpaRepository<SbomExportArtifact, Long> {
+    Optional<SbomExportArtifact> findByArchiveIdAndFormat(Long archiveId, String format);
+
+    @Modifying
+    @Query("DELETE FROM SbomExportArtifact a WHERE a.archive.id IN (SELECT sa.id FROM SbomArchive sa WHERE sa.device.id IN :deviceIds)")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+}
@@ -3,9 +3,11 @@ package com.sbomfinder.repository;
 import com.sbomfinder.model.Sbom;
 import com.sbomfinder.model.Device;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface SbomRepository extends JpaRepository<Sbom, Long> {
@@ -16,4 +18,8 @@ public interface SbomRepository extends JpaRepository<Sbom, Long> {
     Optional<Sbom> findByDeviceAndVersion(Device device, String version);
     Optional<Sbom> findByDevice(Device device);
     Optional<Sbom> findByHash(String hash);
+
+    @Modifying
+    @Query("DELETE FROM Sbom s WHERE s.device.id IN :deviceIds")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
 }
@@ -2,12 +2,14 @@ package com.sbomfinder.repository;
 
 import com.sbomfinder.model.SoftwarePackage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import com.sbomfinder.model.Supplier;
 import com.sbomfinder.repository.SupplierRepository;
 import com.sbomfinder.model.Supplier;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface SoftwarePackageRepository extends JpaRepository<SoftwarePackage, Long> {
@@ -18,7 +20,9 @@ public interface SoftwarePackageRepository extends JpaRepository<SoftwarePackage
     @Query("SELECT sp FROM SoftwarePackage sp WHERE sp.sbom.id = :sbomId AND LOWER(sp.name) LIKE %:keyword%")
     List<SoftwarePackage> findPackagesBySbomIdAndKeyword(Long sbomId, String keyword);
 
-    @Query("SELECT p FROM SoftwarePackage p LEFT JOIN FETCH p.supplier WHERE p.device.id = :deviceId")
+    // with everything an archive snapshot reads, so it needs no open session
+    @Query("SELECT DISTINCT p FROM SoftwarePackage p LEFT JOIN FETCH p.supplier LEFT JOIN FETCH p.component c " +
+            "LEFT JOIN FETCH c.vulnerabilities WHERE p.device.id = :deviceId")
     List<SoftwarePackage> findAllByDeviceIdWithSupplier(@Param("deviceId") Long deviceId);
 
     default List<SoftwarePackage> findFirmwareBySbomId(Long sbomId) {
@@ -43,6 +47,21 @@ public interface SoftwarePackageRepository extends JpaRepository<SoftwarePackage
 
     @Query("SELECT sp FROM SoftwarePackage sp WHERE sp.sbom.device.deviceName = :deviceName AND sp.sbom.device.manufacturer = :manufacturer")
     List<SoftwarePackage> findByDeviceNameAndManufacturer(String deviceName, String manufacturer);
-}
-
 
+    // set-based deletion helpers, see DeviceService.deleteDevices
+    @Query(value = "SELECT DISTINCT sp.supplier_id FROM software_packages sp " +
+            "WHERE sp.supplier_id IS NOT NULL AND (sp.device_id IN (:deviceIds) " +
+            "OR sp.sbom_id IN (SELECT s.id FROM sbom_files s WHERE s.device_id IN (:deviceIds)))",
+            nativeQuery = true)
+    List<Long> findSupplierIdsByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+
+    @Modifying
+    @Query("DELETE FROM SoftwarePackage sp WHERE sp.device.id IN :deviceIds " +
+            "OR sp.sbom.id IN (SELECT s.id FROM Sbom s WHERE s.device.id IN :deviceIds)")
+    int deleteByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+
+    // flat rows for DeviceComparisonService: device id, name, version, purl, component type, supplier
+    @Query("SELECT sp.device.id, sp.name, sp.version, sp.purl, sp.componentType, s.name " +
+            "FROM SoftwarePackage sp LEFT JOIN sp.supplier s WHERE sp.device.id IN :deviceIds")
+    List<Object[]> findComparisonRowsByDeviceIds(@Param("deviceIds") Collection<Long> deviceIds);
+}
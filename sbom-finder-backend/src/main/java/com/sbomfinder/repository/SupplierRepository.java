@@ -2,6 +2,10 @@ package com.sbomfinder.repository;
 
 import com.sbomfinder.model.Supplier;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -9,4 +13,12 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     Optional<Supplier> findByName(String name);
     List<Supplier> findByPackagesIsEmpty();
     long countByPackagesIsEmpty();
+
+    // removes the given suppliers if no package or component references them any more
+    @Modifying
+    @Query(value = "DELETE FROM supplier s WHERE s.id IN (:supplierIds) " +
+            "AND NOT EXISTS (SELECT 1 FROM software_packages sp WHERE sp.supplier_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM components c WHERE c.supplier_id = s.id)",
+            nativeQuery = true)
+    int deleteOrphansByIdIn(@Param("supplierIds") Collection<Long> supplierIds);
 }
\ No newline at end of file
@@ -0,0 +1,342 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.util.CvssScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Loads OSV advisories from local files into advisories / advisory_ranges, so vulnerability
+// matching works without network access (see LocalAdvisoryService).
+// Reads every *.zip (OSV's per-ecosystem exports, e.g. npm/all.zip) and *.json (single OSV
+// records) in sbom.advisories.import-dir. Zips are streamed entry by entry, and records are
+// written in batches, each batch in one transaction. Re-importing replaces an advisory's
+// ranges, so running it again over a newer export is the update path.
+@Service
+public class AdvisoryImportService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LocalAdvisoryService localAdvisoryService;
+
+    @Autowired
+    private VulnerabilityRescanService vulnerabilityRescanService;
+
+    @Value("${sbom.advisories.import-dir:data/osv}")
+    private String importDir;
+
+    @Value("${sbom.advisories.batch-size:1000}")
+    private int batchSize;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String UPSERT_ADVISORY =
+            "INSERT INTO advisories (id, summary, severity_type, cvss_score, source_url, aliases, modified, withdrawn, imported_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, now()) ON CONFLICT (id) DO UPDATE SET summary = EXCLUDED.summary, " +
+            "severity_type = EXCLUDED.severity_type, cvss_score = EXCLUDED.cvss_score, source_url = EXCLUDED.source_url, " +
+            "aliases = EXCLUDED.aliases, modified = EXCLUDED.modified, withdrawn = EXCLUDED.withdrawn, imported_at = now()";
+    private static final String DELETE_RANGES = "DELETE FROM advisory_ranges WHERE advisory_id = ANY (?)";
+    private static final String INSERT_RANGE =
+            "INSERT INTO advisory_ranges (advisory_id, ecosystem, package_name, range_type, introduced, fixed, last_affected) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "advisory-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Map<String, Object> status = Map.of("state", "idle");
+    private boolean running;
+
+    private static class Advisory {
+        String id;
+        String summary;
+        String severityType;
+        Double score;
+        String sourceUrl;
+        String aliases;
+        OffsetDateTime modified;
+        boolean withdrawn;
+        // ecosystem, package name, range type, introduced, fixed, last affected
+        final List<String[]> ranges = new ArrayList<>();
+    }
+
+    // Starts an import of everything in the import directory in the background; false if one is already running.
+    public synchronized boolean startImport() {
+        if (running) {
+            return false;
+        }
+        running = true;
+        executor.submit(() -> {
+            try {
+                runImport();
+            } finally {
+                synchronized (this) {
+                    running = false;
+                }
+            }
+        });
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        return status;
+    }
+
+    private void runImport() {
+        long start = System.currentTimeMillis();
+        File dir = new File(importDir);
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".zip") || name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            status = Map.of("state", "failed", "error", "No .zip or .json files in " + dir.getAbsolutePath());
+            return;
+        }
+        Arrays.sort(files);
+
+        long[] counts = new long[3]; // advisories, ranges, skipped records
+        List<Advisory> batch = new ArrayList<>(batchSize);
+        List<String> errors = new ArrayList<>();
+        int filesDone = 0;
+        try {
+            for (File file : files) {
+                updateStatus("running", file.getName(), filesDone, files.length, counts, start, errors);
+                if (file.getName().endsWith(".zip")) {
+                    try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                        ZipEntry entry;
+                        while ((entry = zip.getNextEntry()) != null) {
+                            if (!entry.isDirectory() && entry.getName().endsWith(".json")) {
+                                // readAllBytes stops at the end of the current entry
+                                readRecord(zip.readAllBytes(), file.getName() + "!" + entry.getName(), batch, counts, errors);
+                                if (batch.size() >= batchSize) {
+                                    flush(batch, counts);
+                                    updateStatus("running", file.getName(), filesDone, files.length, counts, start, errors);
+                                }
+                            }
+                        }
+                    }
+                } else {
+                    try (InputStream in = Files.newInputStream(file.toPath())) {
+                        readRecord(in.readAllBytes(), file.getName(), batch, counts, errors);
+                    }
+                }
+                filesDone++;
+            }
+            flush(batch, counts);
+            localAdvisoryService.invalidate();
+            // stored packages are re-matched against the new data over the next re-scan runs
+            vulnerabilityRescanService.markAllDue();
+            updateStatus("completed", null, filesDone, files.length, counts, start, errors);
+            System.out.println("Advisory import finished: " + counts[0] + " advisories, " + counts[1] + " ranges from "
+                    + filesDone + " files in " + (System.currentTimeMillis() - start) / 1000 + " s");
+        } catch (Exception e) {
+            // what was flushed so far stays; a rerun replaces it
+            localAdvisoryService.invalidate();
+            errors.add(e.getMessage());
+            updateStatus("failed", null, filesDone, files.length, counts, start, errors);
+            System.err.println("Advisory import failed: " + e.getMessage());
+        }
+    }
+
+    private void readRecord(byte[] json, String source, List<Advisory> batch, long[] counts, List<String> errors) {
+        try {
+            Advisory advisory = parse(MAPPER.readTree(json));
+            if (advisory != null) {
+                batch.add(advisory);
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (errors.size() < 20) {
+                errors.add(source + ": " + e.getMessage());
+            }
+        }
+        counts[2]++;
+    }
+
+    private void flush(List<Advisory> batch, long[] counts) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // the same advisory can be in several ecosystem exports; the last copy wins
+        Map<String, Advisory> unique = new LinkedHashMap<>();
+        for (Advisory advisory : batch) {
+            unique.put(advisory.id, advisory);
+        }
+
+        List<Object[]> advisoryRows = new ArrayList<>(unique.size());
+        List<Object[]> rangeRows = new ArrayList<>();
+        for (Advisory a : unique.values()) {
+            advisoryRows.add(new Object[]{a.id, a.summary, a.severityType, a.score, a.sourceUrl, a.aliases,
+                    a.modified != null ? Timestamp.from(a.modified.toInstant()) : null, a.withdrawn});
+            for (String[] r : a.ranges) {
+                rangeRows.add(new Object[]{a.id, r[0], r[1], r[2], r[3], r[4], r[5]});
+            }
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            jdbcTemplate.batchUpdate(UPSERT_ADVISORY, advisoryRows);
+            jdbcTemplate.update(DELETE_RANGES, (Object) unique.keySet().toArray(new String[0]));
+            if (!rangeRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_RANGE, rangeRows);
+            }
+        });
+        counts[0] += advisoryRows.size();
+        counts[1] += rangeRows.size();
+        batch.clear();
+    }
+
+    // null for records without an id
+    private static Advisory parse(JsonNode root) {
+        String id = root.path("id").asText("");
+        if (id.isEmpty()) {
+            return null;
+        }
+        Advisory a = new Advisory();
+        a.id = id;
+        String summary = root.path("summary").asText("");
+        if (summary.isEmpty()) {
+            summary = root.path("details").asText("");
+        }
+        a.summary = summary.isEmpty() ? null : summary;
+        a.withdrawn = root.hasNonNull("withdrawn");
+        if (root.hasNonNull("modified")) {
+            try {
+                a.modified = OffsetDateTime.parse(root.path("modified").asText());
+            } catch (RuntimeException ignored) {
+                // not worth dropping the record over
+            }
+        }
+
+        List<String> aliases = new ArrayList<>();
+        for (JsonNode alias : root.path("aliases")) {
+            aliases.add(alias.asText());
+        }
+        a.aliases = aliases.isEmpty() ? null : String.join(",", aliases);
+
+        // first usable CVSS vector; OSV puts the vector, not the number, in "score"
+        for (JsonNode severity : root.path("severity")) {
+            String type = severity.path("type").asText("");
+            String score = severity.path("score").asText("");
+            Double value = CvssScore.baseScore(score);
+            if (value == null) {
+                try {
+                    value = score.isEmpty() ? null : Double.parseDouble(score);
+                } catch (NumberFormatException ignored) {
+                    // CVSS v2/v4 vectors
+                }
+            }
+            if (a.severityType == null) {
+                a.severityType = type.isEmpty() ? null : type;
+            }
+            if (value != null) {
+                a.severityType = type;
+                a.score = value;
+                break;
+            }
+        }
+
+        for (JsonNode ref : root.path("references")) {
+            if (ref.hasNonNull("url")) {
+                a.sourceUrl = ref.path("url").asText();
+                break;
+            }
+        }
+
+        if (!a.withdrawn) {
+            for (JsonNode affected : root.path("affected")) {
+                addRanges(a, affected);
+            }
+        }
+        return a;
+    }
+
+    private static void addRanges(Advisory a, JsonNode affected) {
+        JsonNode pkg = affected.path("package");
+        String ecosystem = pkg.path("ecosystem").asText("");
+        String name = pkg.path("name").asText("");
+        if (ecosystem.isEmpty() || name.isEmpty()) {
+            return;
+        }
+        ecosystem = LocalAdvisoryService.normalizeEcosystem(ecosystem);
+        name = LocalAdvisoryService.normalizeName(ecosystem, name);
+
+        boolean versionRanges = false;
+        for (JsonNode range : affected.path("ranges")) {
+            String type = range.path("type").asText("");
+            if (type.isEmpty()) {
+                continue;
+            }
+            versionRanges |= !"GIT".equals(type);
+            // events come in order: introduced opens an interval, fixed / last_affected / limit close it
+            String introduced = null;
+            boolean open = false;
+            for (JsonNode event : range.path("events")) {
+                if (event.has("introduced")) {
+                    if (open) {
+                        a.ranges.add(new String[]{ecosystem, name, type, introduced, null, null});
+                    }
+                    String value = event.path("introduced").asText();
+                    introduced = "0".equals(value) ? null : value;
+                    open = true;
+                } else if (open && (event.has("fixed") || event.has("limit"))) {
+                    String upper = event.has("fixed") ? event.path("fixed").asText() : event.path("limit").asText();
+                    a.ranges.add(new String[]{ecosystem, name, type, introduced, upper, null});
+                    open = false;
+                } else if (open && event.has("last_affected")) {
+                    a.ranges.add(new String[]{ecosystem, name, type, introduced, null, event.path("last_affected").asText()});
+                    open = false;
+                }
+            }
+            if (open) {
+                a.ranges.add(new String[]{ecosystem, name, type, introduced, null, null});
+            }
+        }
+
+        // the version list repeats what SEMVER / ECOSYSTEM ranges say; it is only needed without them
+        if (!versionRanges) {
+            for (JsonNode version : affected.path("versions")) {
+                String v = version.asText();
+                a.ranges.add(new String[]{ecosystem, name, "EXACT", v, null, v});
+            }
+        }
+    }
+
+    private void updateStatus(String state, String currentFile, int filesDone, int files, long[] counts,
+                              long start, List<String> errors) {
+        Map<String, Object> s = new LinkedHashMap<>();
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        s.put("state", state);
+        s.put("directory", new File(importDir).getAbsolutePath());
+        s.put("currentFile", currentFile);
+        s.put("filesDone", filesDone);
+        s.put("files", files);
+        s.put("advisories", counts[0]);
+        s.put("ranges", counts[1]);
+        s.put("skippedRecords", counts[2]);
+        s.put("elapsedSeconds", elapsed / 1000);
+        s.put("advisoriesPerSecond", counts[0] * 1000 / elapsed);
+        s.put("errors", new ArrayList<>(errors));
+        status = s;
+    }
+}
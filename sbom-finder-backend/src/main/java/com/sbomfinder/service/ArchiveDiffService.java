@@ -0,0 +1,219 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.ArchiveDiffDTO;
+import com.sbomfinder.dto.SoftwareUpdateDTO;
+import com.sbomfinder.dto.UnifiedComponent;
+import com.sbomfinder.dto.UnifiedSbomData;
+import com.sbomfinder.dto.UnifiedVulnerability;
+import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.util.PurlUtils;
+import com.sbomfinder.util.VersionComparator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+// Diffs two archived versions of a device. Both component lists are turned into arrays sorted
+// by package key (PurlUtils.packageKey) and walked once side by side, so the cost is the two
+// sorts rather than a comparison of every pair. Archives never change once written, so results
+// are cached per (from, to) pair.
+@Service
+public class ArchiveDiffService {
+
+    public static final String STATUS_ADDED = "ADDED";
+    public static final String STATUS_REMOVED = "REMOVED";
+    public static final String STATUS_UPGRADED = "UPGRADED";
+    public static final String STATUS_DOWNGRADED = "DOWNGRADED";
+
+    private static final int CACHE_SIZE = 256;
+
+    @Autowired
+    private ArchiveStorageService archiveStorageService;
+
+    private final Map<String, ArchiveDiffDTO> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, ArchiveDiffDTO>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ArchiveDiffDTO> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    public ArchiveDiffDTO diff(SbomArchive from, SbomArchive to) throws IOException {
+        String key = from.getId() + ":" + to.getId();
+        ArchiveDiffDTO cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        UnifiedSbomData oldData = archiveStorageService.load(from);
+        UnifiedSbomData newData = archiveStorageService.load(to);
+
+        List<SoftwareUpdateDTO> added = new ArrayList<>();
+        List<SoftwareUpdateDTO> removed = new ArrayList<>();
+        List<SoftwareUpdateDTO> upgraded = new ArrayList<>();
+        List<SoftwareUpdateDTO> downgraded = new ArrayList<>();
+        diffComponents(sortedEntries(oldData.getComponents()), sortedEntries(newData.getComponents()),
+                added, removed, upgraded, downgraded);
+
+        List<UnifiedVulnerability> introduced = new ArrayList<>();
+        List<UnifiedVulnerability> resolved = new ArrayList<>();
+        diffVulnerabilities(oldData.getVulnerabilities(), newData.getVulnerabilities(), introduced, resolved);
+
+        ArchiveDiffDTO result = new ArchiveDiffDTO(from.getId(), to.getId(), from.getVersion(), to.getVersion(),
+                added, removed, upgraded, downgraded, introduced, resolved);
+        cache.put(key, result);
+        return result;
+    }
+
+    private static class Entry {
+        final String key;
+        final String name;
+        final String version;
+
+        Entry(String key, String name, String version) {
+            this.key = key;
+            this.name = name;
+            this.version = version;
+        }
+    }
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator
+            .comparing((Entry e) -> e.key)
+            .thenComparing(e -> e.version, VersionComparator.INSTANCE);
+
+    private static Entry[] sortedEntries(List<UnifiedComponent> components) {
+        if (components == null) {
+            return new Entry[0];
+        }
+        Entry[] entries = new Entry[components.size()];
+        for (int i = 0; i < entries.length; i++) {
+            UnifiedComponent c = components.get(i);
+            entries[i] = new Entry(PurlUtils.packageKey(c.getPurl(), c.getName()), c.getName(), c.getVersion());
+        }
+        Arrays.sort(entries, ENTRY_ORDER);
+        return entries;
+    }
+
+    // Both arrays are sorted by key and then version. Equal keys are compared as groups, since a
+    // device can carry several versions of one package; versions present on both sides cancel
+    // out and the rest are paired in version order.
+    private static void diffComponents(Entry[] oldEntries, Entry[] newEntries,
+                                       List<SoftwareUpdateDTO> added, List<SoftwareUpdateDTO> removed,
+                                       List<SoftwareUpdateDTO> upgraded, List<SoftwareUpdateDTO> downgraded) {
+        int i = 0, j = 0;
+        while (i < oldEntries.length || j < newEntries.length) {
+            int cmp;
+            if (i == oldEntries.length) cmp = 1;
+            else if (j == newEntries.length) cmp = -1;
+            else cmp = oldEntries[i].key.compareTo(newEntries[j].key);
+
+            if (cmp < 0) {
+                Entry e = oldEntries[i++];
+                removed.add(new SoftwareUpdateDTO(e.name, STATUS_REMOVED, e.version, null));
+            } else if (cmp > 0) {
+                Entry e = newEntries[j++];
+                added.add(new SoftwareUpdateDTO(e.name, STATUS_ADDED, null, e.version));
+            } else {
+                String key = oldEntries[i].key;
+                int oldEnd = i, newEnd = j;
+                while (oldEnd < oldEntries.length && oldEntries[oldEnd].key.equals(key)) oldEnd++;
+                while (newEnd < newEntries.length && newEntries[newEnd].key.equals(key)) newEnd++;
+                diffGroup(oldEntries, i, oldEnd, newEntries, j, newEnd, added, removed, upgraded, downgraded);
+                i = oldEnd;
+                j = newEnd;
+            }
+        }
+    }
+
+    private static void diffGroup(Entry[] oldEntries, int oldStart, int oldEnd,
+                                  Entry[] newEntries, int newStart, int newEnd,
+                                  List<SoftwareUpdateDTO> added, List<SoftwareUpdateDTO> removed,
+                                  List<SoftwareUpdateDTO> upgraded, List<SoftwareUpdateDTO> downgraded) {
+        // the common case: one version on each side
+        if (oldEnd - oldStart == 1 && newEnd - newStart == 1) {
+            classify(oldEntries[oldStart], newEntries[newStart], upgraded, downgraded);
+            return;
+        }
+
+        // drop versions present on both sides (both ranges are in version order)
+        List<Entry> oldOnly = new ArrayList<>();
+        List<Entry> newOnly = new ArrayList<>();
+        int i = oldStart, j = newStart;
+        while (i < oldEnd || j < newEnd) {
+            int cmp;
+            if (i == oldEnd) cmp = 1;
+            else if (j == newEnd) cmp = -1;
+            else cmp = VersionComparator.compareVersions(oldEntries[i].version, newEntries[j].version);
+
+            if (cmp < 0) oldOnly.add(oldEntries[i++]);
+            else if (cmp > 0) newOnly.add(newEntries[j++]);
+            else { i++; j++; }
+        }
+
+        int pairs = Math.min(oldOnly.size(), newOnly.size());
+        for (int k = 0; k < pairs; k++) {
+            classify(oldOnly.get(k), newOnly.get(k), upgraded, downgraded);
+        }
+        for (int k = pairs; k < oldOnly.size(); k++) {
+            Entry e = oldOnly.get(k);
+            removed.add(new SoftwareUpdateDTO(e.name, STATUS_REMOVED, e.version, null));
+        }
+        for (int k = pairs; k < newOnly.size(); k++) {
+            Entry e = newOnly.get(k);
+            added.add(new SoftwareUpdateDTO(e.name, STATUS_ADDED, null, e.version));
+        }
+    }
+
+    private static void classify(Entry oldEntry, Entry newEntry,
+                                 List<SoftwareUpdateDTO> upgraded, List<SoftwareUpdateDTO> downgraded) {
+        int cmp = VersionComparator.compareVersions(oldEntry.version, newEntry.version);
+        if (cmp < 0) {
+            upgraded.add(new SoftwareUpdateDTO(newEntry.name, STATUS_UPGRADED, oldEntry.version, newEntry.version));
+        } else if (cmp > 0) {
+            downgraded.add(new SoftwareUpdateDTO(newEntry.name, STATUS_DOWNGRADED, oldEntry.version, newEntry.version));
+        }
+    }
+
+    // vulnerabilities are matched on CVE and affected package, with the same sorted walk
+    private static void diffVulnerabilities(List<UnifiedVulnerability> oldVulns, List<UnifiedVulnerability> newVulns,
+                                            List<UnifiedVulnerability> introduced, List<UnifiedVulnerability> resolved) {
+        VulnerabilityEntry[] oldSorted = sortedVulnerabilities(oldVulns);
+        VulnerabilityEntry[] newSorted = sortedVulnerabilities(newVulns);
+
+        int i = 0, j = 0;
+        while (i < oldSorted.length || j < newSorted.length) {
+            int cmp;
+            if (i == oldSorted.length) cmp = 1;
+            else if (j == newSorted.length) cmp = -1;
+            else cmp = oldSorted[i].key.compareTo(newSorted[j].key);
+
+            if (cmp < 0) resolved.add(oldSorted[i++].vulnerability);
+            else if (cmp > 0) introduced.add(newSorted[j++].vulnerability);
+            else { i++; j++; }
+        }
+    }
+
+    private static class VulnerabilityEntry {
+        final String key;
+        final UnifiedVulnerability vulnerability;
+
+        VulnerabilityEntry(UnifiedVulnerability v) {
+            this.key = (v.getCveId() != null ? v.getCveId() : "") + "|"
+                    + (v.getAffectedComponents() != null ? String.join(",", v.getAffectedComponents()) : "");
+            this.vulnerability = v;
+        }
+    }
+
+    private static VulnerabilityEntry[] sortedVulnerabilities(List<UnifiedVulnerability> vulns) {
+        if (vulns == null) {
+            return new VulnerabilityEntry[0];
+        }
+        VulnerabilityEntry[] sorted = new VulnerabilityEntry[vulns.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = new VulnerabilityEntry(vulns.get(i));
+        }
+        Arrays.sort(sorted, Comparator.comparing((VulnerabilityEntry e) -> e.key));
+        return sorted;
+    }
+}
@@ -0,0 +1,408 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.dto.UnifiedComponent;
+import com.sbomfinder.dto.UnifiedSbomData;
+import com.sbomfinder.dto.UnifiedVulnerability;
+import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.model.SbomArchiveManifest;
+import com.sbomfinder.repository.SbomArchiveManifestRepository;
+import com.sbomfinder.util.ArchiveCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+// Content-addressed storage for archived SBOMs. Every component and vulnerability entry is
+// stored once in archive_objects under the hash of its JSON, compressed against a shared
+// dictionary; an archive version only keeps a compressed manifest of the hashes it uses.
+// Manifests are delta-encoded against the device's previous version, with a full keyframe
+// every sbom.archive.keyframe-interval versions so rebuilding a version reads a bounded chain.
+@Service
+public class ArchiveStorageService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SbomArchiveManifestRepository sbomArchiveManifestRepository;
+
+    @Value("${sbom.archive.keyframe-interval:16}")
+    private int keyframeInterval;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Entries are stored and loaded in this order: replaying a delta keeps changed entries at
+    // their base position and appends added ones, so the rebuilt hash list is only the same
+    // multiset as the one written, not the same sequence.
+    private static final Comparator<String> TEXT = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<UnifiedComponent> COMPONENT_ORDER = Comparator
+            .comparing(UnifiedComponent::getName, TEXT)
+            .thenComparing(UnifiedComponent::getVersion, TEXT)
+            .thenComparing(UnifiedComponent::getPurl, TEXT)
+            .thenComparing(UnifiedComponent::getSupplier, TEXT);
+    private static final Comparator<UnifiedVulnerability> VULNERABILITY_ORDER = Comparator
+            .comparing(UnifiedVulnerability::getCveId, TEXT)
+            .thenComparing(v -> String.valueOf(v.getAffectedComponents()))
+            .thenComparing(UnifiedVulnerability::getSeverity, TEXT)
+            .thenComparing(UnifiedVulnerability::getCvssScore, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    // stored (compressed) form of an archive version
+    public static class Manifest {
+        public String deviceName;
+        public String version;
+        // full hash lists on keyframes; empty on deltas
+        public List<String> components = new ArrayList<>();
+        public List<String> vulnerabilities = new ArrayList<>();
+        // set on deltas only
+        public ListDelta componentDelta;
+        public ListDelta vulnerabilityDelta;
+    }
+
+    // Changes of one hash list against the base version. Removed and changed entries keep
+    // their position in the base list, added entries are appended.
+    public static class ListDelta {
+        public List<String> removed = new ArrayList<>();
+        public List<String[]> changed = new ArrayList<>(); // [old hash, new hash]
+        public List<String> added = new ArrayList<>();
+
+        int size() {
+            return removed.size() + changed.size() + added.size();
+        }
+    }
+
+    public void store(SbomArchive archive, UnifiedSbomData sbomData, SbomArchive previous) throws IOException {
+        Map<String, byte[]> objects = new LinkedHashMap<>();
+        Manifest full = new Manifest();
+        full.deviceName = sbomData.getDeviceName();
+        full.version = sbomData.getVersion();
+
+        if (sbomData.getComponents() != null) {
+            List<UnifiedComponent> components = new ArrayList<>(sbomData.getComponents());
+            components.sort(COMPONENT_ORDER);
+            for (UnifiedComponent component : components) {
+                full.components.add(addObject(objects, MAPPER.writeValueAsBytes(component)));
+            }
+        }
+        if (sbomData.getVulnerabilities() != null) {
+            List<UnifiedVulnerability> vulnerabilities = new ArrayList<>(sbomData.getVulnerabilities());
+            vulnerabilities.sort(VULNERABILITY_ORDER);
+            for (UnifiedVulnerability vulnerability : vulnerabilities) {
+                full.vulnerabilities.add(addObject(objects, MAPPER.writeValueAsBytes(vulnerability)));
+            }
+        }
+
+        SbomArchiveManifest stored = new SbomArchiveManifest();
+        stored.setArchive(archive);
+        stored.setComponentCount(full.components.size());
+        stored.setVulnerabilityCount(full.vulnerabilities.size());
+
+        Manifest manifest = full;
+        SbomArchiveManifest base = previous == null ? null
+                : sbomArchiveManifestRepository.findByArchiveId(previous.getId()).orElse(null);
+        if (base != null && base.getDeltaDepth() + 1 < keyframeInterval) {
+            Manifest baseLists = resolve(base);
+            Manifest delta = new Manifest();
+            delta.deviceName = full.deviceName;
+            delta.version = full.version;
+            delta.componentDelta = diff(baseLists.components, full.components, objects, this::componentIdentity);
+            delta.vulnerabilityDelta = diff(baseLists.vulnerabilities, full.vulnerabilities, objects, this::vulnerabilityIdentity);
+
+            // a version that rewrote most of its entries is cheaper as a keyframe
+            int fullSize = full.components.size() + full.vulnerabilities.size();
+            if ((delta.componentDelta.size() + delta.vulnerabilityDelta.size()) * 2 < fullSize) {
+                manifest = delta;
+                stored.setBaseArchiveId(previous.getId());
+                stored.setDeltaDepth(base.getDeltaDepth() + 1);
+            }
+        }
+
+        Map<String, byte[]> owned = new LinkedHashMap<>();
+        for (String hash : ownedHashes(manifest)) {
+            owned.put(hash, objects.get(hash));
+        }
+        retainObjects(owned);
+
+        byte[] rawManifest = MAPPER.writeValueAsBytes(manifest);
+        stored.setManifest(ArchiveCodec.compress(rawManifest));
+        stored.setRawLength(rawManifest.length);
+        sbomArchiveManifestRepository.save(stored);
+    }
+
+    public UnifiedSbomData load(SbomArchive archive) throws IOException {
+        Optional<SbomArchiveManifest> stored = sbomArchiveManifestRepository.findByArchiveId(archive.getId());
+        if (stored.isEmpty()) {
+            return MAPPER.readValue(legacyContent(archive), UnifiedSbomData.class);
+        }
+
+        Manifest manifest = resolve(stored.get());
+        Set<String> hashes = new HashSet<>(manifest.components);
+        hashes.addAll(manifest.vulnerabilities);
+        Map<String, byte[]> objects = loadObjects(hashes);
+
+        List<UnifiedComponent> components = new ArrayList<>(manifest.components.size());
+        for (String hash : manifest.components) {
+            components.add(MAPPER.readValue(requireObject(objects, hash), UnifiedComponent.class));
+        }
+        List<UnifiedVulnerability> vulnerabilities = new ArrayList<>(manifest.vulnerabilities.size());
+        for (String hash : manifest.vulnerabilities) {
+            vulnerabilities.add(MAPPER.readValue(requireObject(objects, hash), UnifiedVulnerability.class));
+        }
+        components.sort(COMPONENT_ORDER);
+        vulnerabilities.sort(VULNERABILITY_ORDER);
+
+        UnifiedSbomData sbomData = new UnifiedSbomData();
+        sbomData.setDeviceName(manifest.deviceName);
+        sbomData.setVersion(manifest.version);
+        sbomData.setComponents(components);
+        sbomData.setVulnerabilities(vulnerabilities);
+        return sbomData;
+    }
+
+    // Rebuilds the full hash lists of a manifest: walks back to its keyframe (at most
+    // keyframe-interval manifests) and replays the deltas forward.
+    private Manifest resolve(SbomArchiveManifest stored) throws IOException {
+        Deque<Manifest> chain = new ArrayDeque<>();
+        SbomArchiveManifest current = stored;
+        while (true) {
+            Manifest manifest = decode(current);
+            chain.push(manifest);
+            if (current.getBaseArchiveId() == null) {
+                break;
+            }
+            Long baseArchiveId = current.getBaseArchiveId();
+            current = sbomArchiveManifestRepository.findByArchiveId(baseArchiveId)
+                    .orElseThrow(() -> new IOException("Base manifest of archive " + baseArchiveId + " is missing"));
+        }
+
+        Manifest resolved = chain.pop();
+        while (!chain.isEmpty()) {
+            Manifest delta = chain.pop();
+            Manifest next = new Manifest();
+            next.deviceName = delta.deviceName;
+            next.version = delta.version;
+            next.components = apply(resolved.components, delta.componentDelta);
+            next.vulnerabilities = apply(resolved.vulnerabilities, delta.vulnerabilityDelta);
+            resolved = next;
+        }
+        return resolved;
+    }
+
+    private static List<String> apply(List<String> base, ListDelta delta) {
+        if (delta == null) {
+            return base;
+        }
+        Map<String, Integer> removals = new HashMap<>();
+        for (String hash : delta.removed) {
+            removals.merge(hash, 1, Integer::sum);
+        }
+        Map<String, Deque<String>> changes = new HashMap<>();
+        for (String[] change : delta.changed) {
+            changes.computeIfAbsent(change[0], k -> new ArrayDeque<>()).add(change[1]);
+        }
+
+        List<String> result = new ArrayList<>(base.size() + delta.added.size());
+        for (String hash : base) {
+            Integer pending = removals.get(hash);
+            if (pending != null && pending > 0) {
+                removals.put(hash, pending - 1);
+                continue;
+            }
+            Deque<String> replacements = changes.get(hash);
+            result.add(replacements != null && !replacements.isEmpty() ? replacements.poll() : hash);
+        }
+        result.addAll(delta.added);
+        return result;
+    }
+
+    // Multiset difference of two hash lists. Entries that left and entries that arrived with
+    // the same identity (package name, CVE + affected package) are recorded as changes.
+    private ListDelta diff(List<String> base, List<String> target, Map<String, byte[]> targetObjects,
+                           IdentityFunction identity) throws IOException {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (String hash : base) {
+            remaining.merge(hash, 1, Integer::sum);
+        }
+        List<String> arrived = new ArrayList<>();
+        for (String hash : target) {
+            Integer count = remaining.get(hash);
+            if (count != null && count > 0) {
+                remaining.put(hash, count - 1);
+            } else {
+                arrived.add(hash);
+            }
+        }
+        List<String> left = new ArrayList<>();
+        for (String hash : base) {
+            Integer count = remaining.get(hash);
+            if (count != null && count > 0) {
+                remaining.put(hash, count - 1);
+                left.add(hash);
+            }
+        }
+
+        ListDelta delta = new ListDelta();
+        if (left.isEmpty() || arrived.isEmpty()) {
+            delta.removed = left;
+            delta.added = arrived;
+            return delta;
+        }
+
+        // only the departed base objects need to be read to pair them up
+        Map<String, byte[]> leftObjects = loadObjects(new HashSet<>(left));
+        Map<String, Deque<String>> leftByIdentity = new HashMap<>();
+        for (String hash : left) {
+            leftByIdentity.computeIfAbsent(identity.of(requireObject(leftObjects, hash)), k -> new ArrayDeque<>()).add(hash);
+        }
+        for (String hash : arrived) {
+            Deque<String> candidates = leftByIdentity.get(identity.of(targetObjects.get(hash)));
+            if (candidates != null && !candidates.isEmpty()) {
+                String old = candidates.poll();
+                delta.changed.add(new String[]{old, hash});
+            } else {
+                delta.added.add(hash);
+            }
+        }
+        for (Deque<String> unpaired : leftByIdentity.values()) {
+            delta.removed.addAll(unpaired);
+        }
+        return delta;
+    }
+
+    private interface IdentityFunction {
+        String of(byte[] rawObject) throws IOException;
+    }
+
+    private String componentIdentity(byte[] raw) throws IOException {
+        return MAPPER.readTree(raw).path("name").asText();
+    }
+
+    private String vulnerabilityIdentity(byte[] raw) throws IOException {
+        JsonNode node = MAPPER.readTree(raw);
+        return node.path("cveId").asText() + "|" + node.path("affectedComponents");
+    }
+
+    // Objects a manifest holds a reference on: every entry of a keyframe, only the new
+    // entries of a delta (the rest is held by the manifests it builds on).
+    private Set<String> ownedHashes(Manifest manifest) {
+        Set<String> owned = new LinkedHashSet<>();
+        if (manifest.componentDelta == null && manifest.vulnerabilityDelta == null) {
+            owned.addAll(manifest.components);
+            owned.addAll(manifest.vulnerabilities);
+            return owned;
+        }
+        for (ListDelta delta : Arrays.asList(manifest.componentDelta, manifest.vulnerabilityDelta)) {
+            if (delta != null) {
+                owned.addAll(delta.added);
+                for (String[] change : delta.changed) {
+                    owned.add(change[1]);
+                }
+            }
+        }
+        return owned;
+    }
+
+    // UnifiedSbomData JSON of the archive, as the old sbom_content column held it
+    public String loadJson(SbomArchive archive) throws IOException {
+        if (archive.getSbomContent() != null && sbomArchiveManifestRepository.findByArchiveId(archive.getId()).isEmpty()) {
+            return archive.getSbomContent();
+        }
+        return MAPPER.writeValueAsString(load(archive));
+    }
+
+    // Drops the references the devices' archives hold. Whole delta chains go together, since
+    // archives are only ever deleted per device. Objects whose count reaches zero are
+    // deleted later by OrphanCleanupService, so deletion stays a handful of statements.
+    public void releaseDeviceArchives(Collection<Long> deviceIds) {
+        Map<String, Integer> releases = new HashMap<>();
+        for (SbomArchiveManifest stored : sbomArchiveManifestRepository.findByDeviceIds(deviceIds)) {
+            try {
+                for (String hash : ownedHashes(decode(stored))) {
+                    releases.merge(hash, 1, Integer::sum);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to read manifest " + stored.getId() + ", its objects stay referenced: " + e.getMessage());
+            }
+        }
+
+        if (!releases.isEmpty()) {
+            List<Object[]> args = new ArrayList<>(releases.size());
+            releases.forEach((hash, count) -> args.add(new Object[]{count, hash}));
+            jdbcTemplate.batchUpdate("UPDATE archive_objects SET ref_count = ref_count - ? WHERE hash = ?", args);
+        }
+        sbomArchiveManifestRepository.deleteByDeviceIds(deviceIds);
+    }
+
+    private Manifest decode(SbomArchiveManifest stored) throws IOException {
+        return MAPPER.readValue(ArchiveCodec.decompress(stored.getManifest(), stored.getRawLength()), Manifest.class);
+    }
+
+    private String addObject(Map<String, byte[]> objects, byte[] raw) {
+        String hash = ArchiveCodec.hash(raw);
+        objects.putIfAbsent(hash, raw);
+        return hash;
+    }
+
+    // Takes one reference on each distinct object of a new archive, inserting the ones that are
+    // not stored yet. Only objects that are actually new get compressed.
+    private void retainObjects(Map<String, byte[]> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        List<String> retained = jdbcTemplate.queryForList(
+                "UPDATE archive_objects SET ref_count = ref_count + 1 WHERE hash = ANY (?) RETURNING hash",
+                String.class, (Object) objects.keySet().toArray(new String[0]));
+        Set<String> existing = new HashSet<>(retained);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : objects.entrySet()) {
+            if (!existing.contains(entry.getKey())) {
+                byte[] raw = entry.getValue();
+                inserts.add(new Object[]{entry.getKey(), ArchiveCodec.compress(raw), raw.length});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            // a concurrent upload may have inserted the same object in between
+            jdbcTemplate.batchUpdate("INSERT INTO archive_objects (hash, payload, raw_length, ref_count) VALUES (?, ?, ?, 1) " +
+                    "ON CONFLICT (hash) DO UPDATE SET ref_count = archive_objects.ref_count + 1", inserts);
+        }
+    }
+
+    private Map<String, byte[]> loadObjects(Set<String> hashes) throws IOException {
+        Map<String, byte[]> objects = new HashMap<>(hashes.size() * 2);
+        if (hashes.isEmpty()) {
+            return objects;
+        }
+
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT hash, payload, raw_length FROM archive_objects WHERE hash = ANY (?)",
+                (rs, n) -> new Object[]{rs.getString(1), rs.getBytes(2), rs.getInt(3)},
+                (Object) hashes.toArray(new String[0]));
+        for (Object[] row : rows) {
+            objects.put((String) row[0], ArchiveCodec.decompress((byte[]) row[1], (Integer) row[2]));
+        }
+        return objects;
+    }
+
+    private byte[] requireObject(Map<String, byte[]> objects, String hash) throws IOException {
+        byte[] raw = objects.get(hash);
+        if (raw == null) {
+            throw new IOException("Archive object " + hash + " is missing");
+        }
+        return raw;
+    }
+
+    private String legacyContent(SbomArchive archive) throws IOException {
+        if (archive.getSbomContent() == null) {
+            throw new IOException("Archive " + archive.getId() + " has no stored content");
+        }
+        return archive.getSbomContent();
+    }
+}
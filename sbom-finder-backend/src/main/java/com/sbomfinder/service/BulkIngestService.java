@@ -0,0 +1,422 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Onboards many devices from one manifest: a JSON array (or {"devices": [...]}) or a CSV with a
+// header row, one device per entry with the upload-source parameters and "archive", the path of
+// its source archive relative to sbom.bulk.staging-dir. Devices are ingested concurrently on
+// sbom.bulk.concurrency threads, sharing an IngestLookupCache so dependencies common to the fleet
+// are looked up once; entries for the same device run in manifest order, one after the other.
+// Runs in the background; getBatch() reports per-device results and throughput.
+@Service
+public class BulkIngestService {
+
+    @Autowired
+    private SbomGeneratorService sbomGeneratorService;
+
+    @Value("${sbom.bulk.staging-dir:data/bulk}")
+    private String stagingDir;
+
+    @Value("${sbom.bulk.concurrency:4}")
+    private int concurrency;
+
+    @Value("${sbom.bulk.max-devices:5000}")
+    private int maxDevices;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int KEPT_BATCHES = 20;
+    private static final List<String> FIELDS = List.of("deviceName", "category", "manufacturer",
+            "operatingSystem", "osVersion", "kernelVersion", "archive", "incremental");
+
+    private final Map<String, BulkBatch> batches = Collections.synchronizedMap(new LinkedHashMap<>());
+    // the batch being ingested, null when idle
+    private BulkBatch active;
+
+    public static class BulkEntry {
+        final int row;
+        final Map<String, String> fields;
+        Path archive;
+        long archiveBytes;
+        // pending -> running -> done | failed
+        volatile String state = "pending";
+        volatile String error;
+        volatile SbomGenerationResult result;
+        volatile long millis;
+
+        BulkEntry(int row, Map<String, String> fields) {
+            this.row = row;
+            this.fields = fields;
+        }
+
+        String deviceKey() {
+            return fields.get("deviceName") + '\u0000' + fields.getOrDefault("manufacturer", "Unknown")
+                    + '\u0000' + fields.getOrDefault("category", "Unknown");
+        }
+    }
+
+    public static class BulkBatch {
+        final String id = UUID.randomUUID().toString();
+        final List<BulkEntry> entries;
+        final IngestLookupCache cache = new IngestLookupCache();
+        final AtomicInteger remaining;
+        final long startedAt = System.currentTimeMillis();
+        volatile long finishedAt;
+
+        BulkBatch(List<BulkEntry> entries) {
+            this.entries = entries;
+            this.remaining = new AtomicInteger(entries.size());
+        }
+
+        public String getId() { return id; }
+    }
+
+    // Parses and checks the manifest and starts ingesting it. IllegalArgumentException for an
+    // unreadable or invalid manifest, IllegalStateException if a bulk ingest is already running.
+    public BulkBatch start(String manifest) {
+        List<BulkEntry> entries = parseManifest(manifest);
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("The manifest has no devices");
+        }
+        if (entries.size() > maxDevices) {
+            throw new IllegalArgumentException("The manifest has " + entries.size() + " devices, at most " + maxDevices + " per batch");
+        }
+        Path root = Paths.get(stagingDir).toAbsolutePath().normalize();
+        List<String> problems = new ArrayList<>();
+        for (BulkEntry entry : entries) {
+            String deviceName = entry.fields.get("deviceName");
+            String archive = entry.fields.get("archive");
+            if (deviceName == null) {
+                problems.add("row " + entry.row + ": deviceName is required");
+            }
+            if (archive == null) {
+                problems.add("row " + entry.row + ": archive is required");
+                continue;
+            }
+            Path path = resolveInStaging(root, archive);
+            if (path == null) {
+                problems.add("row " + entry.row + ": archive must be a file inside " + root + ": " + archive);
+            } else if (!Files.isRegularFile(path)) {
+                problems.add("row " + entry.row + ": archive not found: " + path);
+            } else {
+                entry.archive = path;
+                try {
+                    entry.archiveBytes = Files.size(path);
+                } catch (IOException e) {
+                    problems.add("row " + entry.row + ": " + e.getMessage());
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", problems));
+        }
+
+        BulkBatch batch = new BulkBatch(entries);
+        synchronized (this) {
+            if (active != null) {
+                throw new IllegalStateException("A bulk ingest is already running");
+            }
+            active = batch;
+        }
+
+        // versions of one device must not race on its current SBOM
+        Map<String, List<BulkEntry>> byDevice = new LinkedHashMap<>();
+        for (BulkEntry entry : entries) {
+            byDevice.computeIfAbsent(entry.deviceKey(), k -> new ArrayList<>()).add(entry);
+        }
+        ExecutorService pool = null;
+        try {
+            synchronized (batches) {
+                batches.put(batch.id, batch);
+                Iterator<String> oldest = batches.keySet().iterator();
+                while (batches.size() > KEPT_BATCHES && oldest.hasNext()) {
+                    oldest.next();
+                    oldest.remove();
+                }
+            }
+            pool = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, byDevice.size())), r -> {
+                Thread thread = new Thread(r, "bulk-ingest");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (List<BulkEntry> deviceEntries : byDevice.values()) {
+                pool.submit(() -> {
+                    try {
+                        for (BulkEntry entry : deviceEntries) {
+                            ingest(batch, entry);
+                        }
+                    } finally {
+                        // an Error out of ingest() leaves this device's remaining entries unfinished
+                        for (BulkEntry entry : deviceEntries) {
+                            if ("pending".equals(entry.state) || "running".equals(entry.state)) {
+                                entry.error = "Ingest of this device stopped unexpectedly";
+                                entry.state = "failed";
+                                finish(batch);
+                            }
+                        }
+                    }
+                });
+            }
+            pool.shutdown();
+        } catch (RuntimeException | Error e) {
+            // nothing will finish this batch: free the service for the next one
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            batches.remove(batch.id);
+            synchronized (this) {
+                if (active == batch) {
+                    active = null;
+                }
+            }
+            throw e;
+        }
+        System.out.println("Bulk ingest " + batch.id + " started: " + entries.size() + " entries, "
+                + byDevice.size() + " devices");
+        return batch;
+    }
+
+    // Same, with the manifest read from a file in the staging directory.
+    public BulkBatch startFromFile(String manifestFile) throws IOException {
+        Path root = Paths.get(stagingDir).toAbsolutePath().normalize();
+        Path path = resolveInStaging(root, manifestFile);
+        if (path == null || !Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Manifest not found in " + root + ": " + manifestFile);
+        }
+        return start(Files.readString(path));
+    }
+
+    private void ingest(BulkBatch batch, BulkEntry entry) {
+        long start = System.currentTimeMillis();
+        entry.state = "running";
+        Map<String, String> f = entry.fields;
+        String state;
+        try {
+            String incremental = f.get("incremental");
+            entry.result = sbomGeneratorService.generateFromSourceArchive(
+                    entry.archive,
+                    entry.archive.getFileName().toString(),
+                    f.get("deviceName"),
+                    f.get("category"),
+                    f.get("manufacturer"),
+                    f.get("operatingSystem"),
+                    f.get("osVersion"),
+                    f.get("kernelVersion"),
+                    incremental != null ? Boolean.valueOf(incremental) : null,
+                    batch.cache
+            );
+            state = "done";
+        } catch (Exception e) {
+            System.err.println("Bulk ingest " + batch.id + ", row " + entry.row + " (" + f.get("deviceName") + ") failed: " + e.getMessage());
+            entry.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            state = "failed";
+        }
+        entry.millis = System.currentTimeMillis() - start;
+        entry.state = state;
+        finish(batch);
+    }
+
+    // once per entry, when it is done or failed
+    private void finish(BulkBatch batch) {
+        if (batch.remaining.decrementAndGet() == 0) {
+            batch.finishedAt = System.currentTimeMillis();
+            synchronized (this) {
+                if (active == batch) {
+                    active = null;
+                }
+            }
+            System.out.println("Bulk ingest " + batch.id + " finished in " + (batch.finishedAt - batch.startedAt) + " ms");
+        }
+    }
+
+    public BulkBatch getBatch(String id) {
+        return batches.get(id);
+    }
+
+    public Map<String, Object> describe(BulkBatch batch) {
+        long elapsed = (batch.finishedAt > 0 ? batch.finishedAt : System.currentTimeMillis()) - batch.startedAt;
+        int done = 0, failed = 0, runningNow = 0;
+        long bytes = 0;
+        List<Map<String, Object>> devices = new ArrayList<>(batch.entries.size());
+        for (BulkEntry entry : batch.entries) {
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("row", entry.row);
+            device.put("deviceName", entry.fields.get("deviceName"));
+            device.put("archive", entry.fields.get("archive"));
+            device.put("state", entry.state);
+            SbomGenerationResult result = entry.result;
+            if (result != null) {
+                device.put("deviceId", result.getDevice().getId());
+                device.put("version", result.getVersion());
+                device.put("dependencyFiles", result.getDependencyFiles());
+                device.put("parsedFiles", result.getParsedFiles());
+            }
+            if (entry.error != null) {
+                device.put("error", entry.error);
+            }
+            if (!"pending".equals(entry.state) && !"running".equals(entry.state)) {
+                device.put("ms", entry.millis);
+                bytes += entry.archiveBytes;
+            }
+            devices.add(device);
+            if ("done".equals(entry.state)) done++;
+            else if ("failed".equals(entry.state)) failed++;
+            else if ("running".equals(entry.state)) runningNow++;
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("batchId", batch.id);
+        status.put("state", batch.finishedAt > 0 ? "finished" : "running");
+        status.put("startedAt", Instant.ofEpochMilli(batch.startedAt).toString());
+        status.put("devices", batch.entries.size());
+        status.put("done", done);
+        status.put("failed", failed);
+        status.put("running", runningNow);
+        status.put("elapsedMs", elapsed);
+        double seconds = Math.max(elapsed, 1) / 1000.0;
+        status.put("devicesPerMinute", Math.round((done + failed) * 600.0 / seconds) / 10.0);
+        status.put("archiveMegabytesPerSecond", Math.round(bytes / 1048576.0 / seconds * 10) / 10.0);
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("lookupsPerformed", batch.cache.getMisses());
+        cache.put("lookupsShared", batch.cache.getHits());
+        cache.put("componentsShared", batch.cache.getSharedComponents());
+        status.put("sharedLookups", cache);
+        status.put("results", devices);
+        return status;
+    }
+
+    // relative paths and file: URLs, only inside the staging directory
+    private static Path resolveInStaging(Path root, String archive) {
+        try {
+            Path path;
+            if (archive.startsWith("file:")) {
+                path = Paths.get(URI.create(archive));
+            } else if (archive.contains("://")) {
+                return null;
+            } else {
+                path = root.resolve(archive);
+            }
+            path = path.toAbsolutePath().normalize();
+            return path.startsWith(root) ? path : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static List<BulkEntry> parseManifest(String manifest) {
+        String text = manifest != null ? manifest.strip() : "";
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("The manifest is empty");
+        }
+        if (text.startsWith("[") || text.startsWith("{")) {
+            return parseJson(text);
+        }
+        return parseCsv(text);
+    }
+
+    private static List<BulkEntry> parseJson(String text) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON manifest: " + e.getMessage());
+        }
+        JsonNode devices = root.isArray() ? root : root.path("devices");
+        if (!devices.isArray()) {
+            throw new IllegalArgumentException("A JSON manifest is an array of devices or {\"devices\": [...]}");
+        }
+        List<BulkEntry> entries = new ArrayList<>(devices.size());
+        int row = 1;
+        for (JsonNode device : devices) {
+            Map<String, String> fields = new HashMap<>();
+            for (String field : FIELDS) {
+                JsonNode value = device.get(field);
+                if (value != null && !value.isNull() && !value.asText().isBlank()) {
+                    fields.put(field, value.asText().trim());
+                }
+            }
+            entries.add(new BulkEntry(row++, fields));
+        }
+        return entries;
+    }
+
+    // RFC 4180: comma separated, double quotes around fields with commas, quotes or line breaks
+    private static List<BulkEntry> parseCsv(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString().trim());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                record.add(field.toString().trim());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        record.add(field.toString().trim());
+        records.add(record);
+
+        List<String> header = records.get(0);
+        Map<Integer, String> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            for (String known : FIELDS) {
+                if (known.equalsIgnoreCase(header.get(i))) {
+                    columns.put(i, known);
+                }
+            }
+        }
+        if (!columns.containsValue("archive") || !columns.containsValue("deviceName")) {
+            throw new IllegalArgumentException("The CSV header must name at least the deviceName and archive columns");
+        }
+        List<BulkEntry> entries = new ArrayList<>(records.size() - 1);
+        for (int r = 1; r < records.size(); r++) {
+            List<String> values = records.get(r);
+            if (values.size() == 1 && values.get(0).isEmpty()) {
+                continue; // blank line
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<Integer, String> column : columns.entrySet()) {
+                if (column.getKey() < values.size() && !values.get(column.getKey()).isEmpty()) {
+                    fields.put(column.getValue(), values.get(column.getKey()));
+                }
+            }
+            entries.add(new BulkEntry(r, fields));
+        }
+        return entries;
+    }
+}
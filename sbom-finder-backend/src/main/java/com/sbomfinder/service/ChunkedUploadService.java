@@ -0,0 +1,451 @@
+package com.sbomfinder.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Chunked, resumable source uploads, for archives too big for one multipart request.
+// init creates a session directory under sbom.upload.staging-dir with the staging file
+// preallocated to the total size; each PUT of chunk N streams the request body into the file at
+// N * chunkSize through a FileChannel while hashing it, and only marks the chunk received (one
+// byte per chunk in the "received" file) when its SHA-256 matches. A dropped connection leaves
+// the chunk unmarked, so the client asks for the missing chunks and sends them again; sessions
+// survive restarts. Once the last chunk lands, the archive is ingested on a background thread.
+@Service
+public class ChunkedUploadService {
+
+    @Autowired
+    private SbomGeneratorService sbomGeneratorService;
+
+    @Value("${sbom.upload.staging-dir:data/uploads}")
+    private String stagingDir;
+
+    @Value("${sbom.upload.chunk-size:16777216}")
+    private int defaultChunkSize;
+
+    @Value("${sbom.upload.max-chunk-size:134217728}")
+    private int maxChunkSize;
+
+    @Value("${sbom.upload.max-total-size:68719476736}")
+    private long maxTotalSize;
+
+    @Value("${sbom.upload.session-ttl-hours:48}")
+    private long sessionTtlHours;
+
+    @Value("${sbom.upload.processing-threads:2}")
+    private int processingThreads;
+
+    private static final String DATA_FILE = "data";
+    private static final String RECEIVED_FILE = "received";
+    private static final String SESSION_FILE = "session.properties";
+    private static final int MAX_CHUNKS = 100_000;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    public static class UploadSession {
+        final String id;
+        final Path dir;
+        final Properties metadata;
+        final String fileName;
+        final long totalSize;
+        final int chunkSize;
+        final int chunkCount;
+        final BitSet received = new BitSet();
+        final Set<Integer> inFlight = new HashSet<>();
+        volatile long lastActivity = System.currentTimeMillis();
+        // receiving -> processing -> done | failed
+        volatile String state = "receiving";
+        volatile String error;
+        volatile Map<String, Object> result;
+
+        UploadSession(String id, Path dir, Properties metadata) {
+            this.id = id;
+            this.dir = dir;
+            this.metadata = metadata;
+            this.fileName = metadata.getProperty("fileName");
+            this.totalSize = Long.parseLong(metadata.getProperty("totalSize"));
+            this.chunkSize = Integer.parseInt(metadata.getProperty("chunkSize"));
+            this.chunkCount = (int) Math.max(1, (totalSize + chunkSize - 1) / chunkSize);
+        }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, totalSize - (long) index * chunkSize);
+        }
+
+        synchronized boolean isComplete() {
+            return received.cardinality() == chunkCount;
+        }
+    }
+
+    // Sessions left by a previous run resume where they stopped; ingestion that was cut off is
+    // started again by complete().
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreSessions() {
+        Path root = Paths.get(stagingDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(Files::isDirectory).forEach(dir -> {
+                try {
+                    UploadSession session = load(dir);
+                    sessions.put(session.id, session);
+                } catch (Exception e) {
+                    System.err.println("Skipping unreadable upload session " + dir + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not list upload sessions in " + root + ": " + e.getMessage());
+        }
+        if (!sessions.isEmpty()) {
+            System.out.println("Resumable uploads: " + sessions.size() + " session(s) restored from " + root);
+        }
+    }
+
+    // Opens a session; metadata holds the upload-source parameters (deviceName, category, ...).
+    public UploadSession createSession(String fileName, long totalSize, Integer chunkSize,
+                                      Map<String, String> metadata) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        String lower = fileName.toLowerCase();
+        if (!lower.endsWith(".zip") && !lower.endsWith(".tar") && !lower.endsWith(".tar.gz") && !lower.endsWith(".tgz")) {
+            throw new IllegalArgumentException("Unsupported file type: only .zip, .tar, .tar.gz supported");
+        }
+        if (totalSize <= 0 || totalSize > maxTotalSize) {
+            throw new IllegalArgumentException("totalSize must be between 1 and " + maxTotalSize + " bytes");
+        }
+        int size = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (size <= 0 || size > maxChunkSize) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + maxChunkSize + " bytes");
+        }
+        if ((totalSize + size - 1) / size > MAX_CHUNKS) {
+            throw new IllegalArgumentException("chunkSize too small: at most " + MAX_CHUNKS + " chunks per upload");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path dir = Paths.get(stagingDir, id);
+        Files.createDirectories(dir);
+
+        Properties properties = new Properties();
+        metadata.forEach((key, value) -> {
+            if (value != null) {
+                properties.setProperty("param." + key, value);
+            }
+        });
+        properties.setProperty("fileName", Paths.get(fileName).getFileName().toString());
+        properties.setProperty("totalSize", Long.toString(totalSize));
+        properties.setProperty("chunkSize", Integer.toString(size));
+        try (OutputStream out = Files.newOutputStream(dir.resolve(SESSION_FILE))) {
+            properties.store(out, "chunked upload " + id);
+        }
+
+        UploadSession session = new UploadSession(id, dir, properties);
+        // sparse on most filesystems; chunks are written in place in any order
+        try (RandomAccessFile data = new RandomAccessFile(dir.resolve(DATA_FILE).toFile(), "rw")) {
+            data.setLength(totalSize);
+        }
+        try (RandomAccessFile received = new RandomAccessFile(dir.resolve(RECEIVED_FILE).toFile(), "rw")) {
+            received.setLength(session.chunkCount);
+        }
+        sessions.put(id, session);
+        return session;
+    }
+
+    public UploadSession getSession(String id) {
+        return sessions.get(id);
+    }
+
+    // Streams one chunk from the request body into place. Throws IllegalArgumentException for
+    // a bad index, a wrong length or a checksum mismatch, IllegalStateException if the chunk is
+    // already being written, was already received with other content, or the upload is no
+    // longer receiving. Sending a received chunk again with the same SHA-256 is a no-op, so a
+    // client can retry a PUT whose response it lost. Returns true when this was the last missing
+    // chunk and ingestion has started.
+    public boolean writeChunk(UploadSession session, int index, String sha256, InputStream body)
+            throws IOException, NoSuchAlgorithmException {
+        if (index < 0 || index >= session.chunkCount) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.chunkCount - 1));
+        }
+        if (sha256 == null || sha256.isBlank()) {
+            throw new IllegalArgumentException("The chunk's SHA-256 (X-Chunk-Sha256 header) is required");
+        }
+        boolean alreadyReceived;
+        synchronized (session) {
+            alreadyReceived = session.received.get(index);
+            boolean verifiable = alreadyReceived
+                    && ("receiving".equals(session.state) || "processing".equals(session.state));
+            if (!"receiving".equals(session.state) && !verifiable) {
+                throw new IllegalStateException("Upload is " + session.state + ", no more chunks are accepted");
+            }
+            if (!session.inFlight.add(index)) {
+                throw new IllegalStateException("Chunk " + index + " is already being uploaded");
+            }
+        }
+        session.lastActivity = System.currentTimeMillis();
+
+        boolean stored = false;
+        boolean last;
+        try {
+            if (alreadyReceived) {
+                // the stored chunk is never overwritten: the staged file may already be read
+                String actual = chunkSha256(session, index);
+                if (!actual.equalsIgnoreCase(sha256.trim())) {
+                    throw new IllegalStateException("Chunk " + index + " was already received with SHA-256 " + actual);
+                }
+            } else {
+                store(session, index, sha256, body);
+            }
+            stored = true;
+        } finally {
+            synchronized (session) {
+                session.inFlight.remove(index);
+                if (stored) {
+                    session.received.set(index);
+                }
+                last = stored && session.isComplete() && session.inFlight.isEmpty() && "receiving".equals(session.state);
+            }
+        }
+        session.lastActivity = System.currentTimeMillis();
+        return last && startProcessing(session);
+    }
+
+    private void store(UploadSession session, int index, String sha256, InputStream body)
+            throws IOException, NoSuchAlgorithmException {
+        long expected = session.chunkLength(index);
+        long position = (long) index * session.chunkSize;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(session.dir.resolve(DATA_FILE), StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                if (written + read > expected) {
+                    throw new IllegalArgumentException("Chunk " + index + " is longer than " + expected + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, position + written);
+                }
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk " + index + " has " + written + " bytes, expected " + expected);
+            }
+            String actual = toHex(digest.digest());
+            if (!actual.equalsIgnoreCase(sha256.trim())) {
+                throw new IllegalArgumentException("Checksum mismatch for chunk " + index + ": got " + actual);
+            }
+            // the data must be on disk before the chunk counts as received
+            channel.force(false);
+        }
+        try (FileChannel marks = FileChannel.open(session.dir.resolve(RECEIVED_FILE), StandardOpenOption.WRITE)) {
+            marks.write(ByteBuffer.wrap(new byte[]{1}), index);
+        }
+    }
+
+    private String chunkSha256(UploadSession session, int index) throws IOException, NoSuchAlgorithmException {
+        long remaining = session.chunkLength(index);
+        long position = (long) index * session.chunkSize;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(session.dir.resolve(DATA_FILE), StandardOpenOption.READ)) {
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+                remaining -= read;
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    // Starts ingestion if every chunk is there, none is still being written, and it is not
+    // already running or done; a failed ingestion can be retried this way. False otherwise.
+    public boolean startProcessing(UploadSession session) {
+        synchronized (session) {
+            if (!session.isComplete()) {
+                return false;
+            }
+            if ("processing".equals(session.state) || "done".equals(session.state)) {
+                return true;
+            }
+            if (!session.inFlight.isEmpty()) {
+                return false;
+            }
+            session.state = "processing";
+            session.error = null;
+        }
+        executor().submit(() -> process(session));
+        return true;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, processingThreads), r -> {
+                Thread thread = new Thread(r, "chunked-upload");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private void process(UploadSession session) {
+        long start = System.currentTimeMillis();
+        Properties p = session.metadata;
+        try {
+            String incremental = p.getProperty("param.incremental");
+            SbomGenerationResult result = sbomGeneratorService.generateFromSourceArchive(
+                    session.dir.resolve(DATA_FILE),
+                    session.fileName,
+                    p.getProperty("param.deviceName"),
+                    p.getProperty("param.category"),
+                    p.getProperty("param.manufacturer"),
+                    p.getProperty("param.operatingSystem"),
+                    p.getProperty("param.osVersion"),
+                    p.getProperty("param.kernelVersion"),
+                    incremental != null ? Boolean.valueOf(incremental) : null,
+                    null
+            );
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("deviceId", result.getDevice().getId());
+            summary.put("version", result.getVersion());
+            summary.put("dependencyFiles", result.getDependencyFiles());
+            summary.put("parsedFiles", result.getParsedFiles());
+            summary.put("processingMs", System.currentTimeMillis() - start);
+            session.result = summary;
+            session.state = "done";
+            System.out.println("Chunked upload " + session.id + " ingested in " + (System.currentTimeMillis() - start)
+                    + " ms: device " + result.getDevice().getId() + ", version " + result.getVersion());
+            // the staged archive is no longer needed; the status stays available until expiry
+            deleteTree(session.dir);
+        } catch (Exception e) {
+            System.err.println("Chunked upload " + session.id + " failed: " + e);
+            session.error = e.getMessage();
+            session.state = "failed";
+        }
+        session.lastActivity = System.currentTimeMillis();
+    }
+
+    public void abort(UploadSession session) {
+        synchronized (session) {
+            if ("processing".equals(session.state)) {
+                throw new IllegalStateException("Upload is being processed and can no longer be aborted");
+            }
+            session.state = "aborted";
+        }
+        sessions.remove(session.id);
+        deleteTree(session.dir);
+    }
+
+    public Map<String, Object> describe(UploadSession session) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("uploadId", session.id);
+        status.put("fileName", session.fileName);
+        status.put("state", session.state);
+        status.put("totalSize", session.totalSize);
+        status.put("chunkSize", session.chunkSize);
+        status.put("chunkCount", session.chunkCount);
+        List<Integer> missing = new ArrayList<>();
+        synchronized (session) {
+            for (int i = session.received.nextClearBit(0); i < session.chunkCount; i = session.received.nextClearBit(i + 1)) {
+                missing.add(i);
+            }
+        }
+        status.put("receivedChunks", session.chunkCount - missing.size());
+        status.put("missingChunks", missing);
+        if (session.error != null) {
+            status.put("error", session.error);
+        }
+        if (session.result != null) {
+            status.put("result", session.result);
+        }
+        status.put("lastActivity", Instant.ofEpochMilli(session.lastActivity).toString());
+        return status;
+    }
+
+    // Drops sessions with no activity for sbom.upload.session-ttl-hours, staged data included.
+    @Scheduled(fixedDelayString = "${sbom.upload.cleanup-interval-ms:3600000}",
+               initialDelayString = "${sbom.upload.cleanup-interval-ms:3600000}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtlHours * 3_600_000L;
+        for (UploadSession session : new ArrayList<>(sessions.values())) {
+            if (session.lastActivity < cutoff && !"processing".equals(session.state)) {
+                sessions.remove(session.id);
+                deleteTree(session.dir);
+                System.out.println("Expired chunked upload " + session.id + " (" + session.state + ")");
+            }
+        }
+    }
+
+    private UploadSession load(Path dir) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(dir.resolve(SESSION_FILE))) {
+            properties.load(in);
+        }
+        UploadSession session = new UploadSession(dir.getFileName().toString(), dir, properties);
+        byte[] marks = Files.readAllBytes(dir.resolve(RECEIVED_FILE));
+        for (int i = 0; i < Math.min(marks.length, session.chunkCount); i++) {
+            if (marks[i] != 0) {
+                session.received.set(i);
+            }
+        }
+        session.lastActivity = Files.getLastModifiedTime(dir.resolve(RECEIVED_FILE)).toMillis();
+        return session;
+    }
+
+    private static void deleteTree(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("Could not delete " + path + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not delete " + root + ": " + e.getMessage());
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.model.Component;
+import com.sbomfinder.model.SoftwarePackage;
+import com.sbomfinder.repository.ComponentRepository;
+import com.sbomfinder.util.PackageUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// Maps SoftwarePackage rows to their shared Component (purl, name, version), creating the
+// components that do not exist yet; missing parts of the coordinate are stored as ''.
+// One upsert and one lookup per call.
+@Service
+public class ComponentService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ComponentRepository componentRepository;
+
+    private static final String UPSERT_COMPONENTS =
+            "INSERT INTO components (purl, name, version, ecosystem, supplier_id) " +
+            "SELECT * FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::bigint[]) " +
+            "ON CONFLICT ON CONSTRAINT ux_components_coordinate DO NOTHING";
+    private static final String COMPONENT_IDS =
+            "SELECT id, purl, name, version FROM components " +
+            "WHERE (purl, name, version) IN (SELECT * FROM unnest(?::text[], ?::text[], ?::text[]))";
+
+    // Sets the component of every package (not yet saved), with its vulnerabilities loaded.
+    // Returns the distinct components, in first-seen order.
+    public List<Component> assignComponents(List<SoftwarePackage> packages) {
+        Map<String, SoftwarePackage> byCoordinate = new LinkedHashMap<>();
+        for (SoftwarePackage pkg : packages) {
+            byCoordinate.putIfAbsent(coordinate(pkg), pkg);
+        }
+        if (byCoordinate.isEmpty()) {
+            return List.of();
+        }
+
+        int n = byCoordinate.size();
+        String[] purls = new String[n];
+        String[] names = new String[n];
+        String[] versions = new String[n];
+        String[] ecosystems = new String[n];
+        Long[] suppliers = new Long[n];
+        int i = 0;
+        for (SoftwarePackage pkg : byCoordinate.values()) {
+            purls[i] = pkg.getPurl() != null ? pkg.getPurl() : "";
+            names[i] = pkg.getName() != null ? pkg.getName() : "";
+            versions[i] = pkg.getVersion() != null ? pkg.getVersion() : "";
+            ecosystems[i] = ecosystem(pkg.getPurl());
+            suppliers[i] = pkg.getSupplier() != null ? pkg.getSupplier().getId() : null;
+            i++;
+        }
+        jdbcTemplate.update(UPSERT_COMPONENTS, purls, names, versions, ecosystems, suppliers);
+
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(COMPONENT_IDS, rs -> {
+            ids.put(coordinate(rs.getString(2), rs.getString(3), rs.getString(4)), rs.getLong(1));
+        }, purls, names, versions);
+
+        Map<Long, Component> components = new HashMap<>();
+        for (Component component : componentRepository.findAllWithVulnerabilitiesByIdIn(ids.values())) {
+            components.put(component.getId(), component);
+        }
+        for (SoftwarePackage pkg : packages) {
+            pkg.setComponent(components.get(ids.get(coordinate(pkg))));
+        }
+
+        List<Component> distinct = new ArrayList<>(n);
+        for (String coordinate : byCoordinate.keySet()) {
+            distinct.add(components.get(ids.get(coordinate)));
+        }
+        return distinct;
+    }
+
+    private static String coordinate(SoftwarePackage pkg) {
+        return coordinate(pkg.getPurl() != null ? pkg.getPurl() : "", pkg.getName() != null ? pkg.getName() : "",
+                pkg.getVersion() != null ? pkg.getVersion() : "");
+    }
+
+    private static String coordinate(String purl, String name, String version) {
+        return purl + '\u0000' + name + '\u0000' + version;
+    }
+
+    // purl type, lower-cased as in V8__create_components.sql
+    private static String ecosystem(String purl) {
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        return parsed != null ? parsed.getType() : null;
+    }
+}
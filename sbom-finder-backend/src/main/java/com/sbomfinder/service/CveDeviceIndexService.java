@@ -0,0 +1,255 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.event.DevicePackagesChangedEvent;
+import com.sbomfinder.event.DeviceVulnerabilitiesChangedEvent;
+import com.sbomfinder.event.DevicesDeletedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory CVE -> affected devices index for triaging a new advisory against the whole fleet
+// without touching the database. Devices get dense slot numbers; a CVE keeps a sorted int
+// array of slots while few devices are affected and switches to a BitSet once that is
+// smaller, so widespread CVEs cost one bit per device and rare ones a few bytes.
+@Service
+public class CveDeviceIndexService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String DEVICE_IDS = "SELECT id FROM devices ORDER BY id";
+    private static final String CVES_OF_DEVICES =
+            "SELECT sp.device_id, v.cve_id FROM software_packages sp " +
+            "JOIN component_vulnerabilities cv ON cv.component_id = sp.component_id " +
+            "JOIN vulnerabilities v ON v.id = cv.vulnerability_id " +
+            "WHERE sp.device_id = ANY (?) ORDER BY sp.device_id";
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] slotDevices = new long[1024];
+    private int slotCount;
+    private final Map<String, DeviceSet> cveDevices = new HashMap<>();
+    private final Map<Integer, String[]> deviceCves = new HashMap<>();
+
+    private static class DeviceSet {
+        int[] sorted = new int[2];
+        int size;
+        BitSet bits;
+
+        void add(int slot, int slotCount) {
+            if (bits != null) {
+                bits.set(slot);
+                return;
+            }
+            int at = Arrays.binarySearch(sorted, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == sorted.length) {
+                sorted = Arrays.copyOf(sorted, size * 2);
+            }
+            System.arraycopy(sorted, at, sorted, at + 1, size - at);
+            sorted[at] = slot;
+            size++;
+
+            // 4 bytes per entry against slotCount / 8 bytes for the bitmap
+            if (size > 64 && size * 32L > slotCount) {
+                bits = new BitSet(slotCount);
+                for (int k = 0; k < size; k++) bits.set(sorted[k]);
+                sorted = null;
+                size = 0;
+            }
+        }
+
+        void remove(int slot) {
+            if (bits != null) {
+                bits.clear(slot);
+                return;
+            }
+            int at = Arrays.binarySearch(sorted, 0, size, slot);
+            if (at >= 0) {
+                System.arraycopy(sorted, at + 1, sorted, at, size - at - 1);
+                size--;
+            }
+        }
+
+        void orInto(BitSet target) {
+            if (bits != null) {
+                target.or(bits);
+            } else {
+                for (int k = 0; k < size; k++) target.set(sorted[k]);
+            }
+        }
+
+        int cardinality() {
+            return bits != null ? bits.cardinality() : size;
+        }
+    }
+
+    public static class FanOut {
+        private final Map<String, Integer> devicesPerCve;
+        private final long[] deviceIds;
+
+        FanOut(Map<String, Integer> devicesPerCve, long[] deviceIds) {
+            this.devicesPerCve = devicesPerCve;
+            this.deviceIds = deviceIds;
+        }
+
+        public Map<String, Integer> getDevicesPerCve() { return devicesPerCve; }
+        public long[] getDeviceIds() { return deviceIds; }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            slotDevices = new long[1024];
+            slotCount = 0;
+            cveDevices.clear();
+            deviceCves.clear();
+
+            List<Long> deviceIds = jdbcTemplate.queryForList(DEVICE_IDS, Long.class);
+            for (int from = 0; from < deviceIds.size(); from += BUILD_BATCH_SIZE) {
+                Long[] batch = deviceIds.subList(from, Math.min(from + BUILD_BATCH_SIZE, deviceIds.size())).toArray(new Long[0]);
+                Map<Long, Set<String>> batchCves = new LinkedHashMap<>();
+                jdbcTemplate.query(CVES_OF_DEVICES,
+                        rs -> { batchCves.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getString(2)); },
+                        (Object) batch);
+                batchCves.forEach(this::indexDevice);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("CVE device index built: " + cveDevices.size() + " CVEs, " + deviceCves.size()
+                + " affected devices in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicePackagesChanged(DevicePackagesChangedEvent event) {
+        reindexDevices(List.of(event.getDeviceId()));
+    }
+
+    // re-scans change links of many devices at once; only those devices are re-read
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceVulnerabilitiesChanged(DeviceVulnerabilitiesChangedEvent event) {
+        reindexDevices(event.getDeviceIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicesDeleted(DevicesDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : event.getDeviceIds()) {
+                removeDevice(id);
+                // the slot itself is only reclaimed by the next rebuild
+                slots.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindexDevices(Collection<Long> deviceIds) {
+        List<Long> ids = new ArrayList<>(deviceIds);
+        for (int from = 0; from < ids.size(); from += BUILD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BUILD_BATCH_SIZE, ids.size()));
+            Map<Long, Set<String>> batchCves = new HashMap<>();
+            for (Long id : batch) {
+                batchCves.put(id, new HashSet<>());
+            }
+            jdbcTemplate.query(CVES_OF_DEVICES, rs -> { batchCves.get(rs.getLong(1)).add(rs.getString(2)); },
+                    (Object) batch.toArray(new Long[0]));
+
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, Set<String>> device : batchCves.entrySet()) {
+                    removeDevice(device.getKey());
+                    indexDevice(device.getKey(), device.getValue());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Devices affected by any of the CVEs, in device id order, with the count per CVE.
+    public FanOut fanOut(Collection<String> cveIds) {
+        lock.readLock().lock();
+        try {
+            BitSet union = new BitSet(slotCount);
+            Map<String, Integer> perCve = new LinkedHashMap<>();
+            for (String cveId : cveIds) {
+                DeviceSet set = cveDevices.get(cveId);
+                perCve.put(cveId, set != null ? set.cardinality() : 0);
+                if (set != null) {
+                    set.orInto(union);
+                }
+            }
+
+            long[] deviceIds = new long[union.cardinality()];
+            int k = 0;
+            for (int slot = union.nextSetBit(0); slot >= 0; slot = union.nextSetBit(slot + 1)) {
+                deviceIds[k++] = slotDevices[slot];
+            }
+            Arrays.sort(deviceIds);
+            return new FanOut(perCve, deviceIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexDevice(Long deviceId, Set<String> cves) {
+        if (cves.isEmpty()) {
+            return;
+        }
+        int slot = slotOf(deviceId);
+        for (String cve : cves) {
+            cveDevices.computeIfAbsent(cve, k -> new DeviceSet()).add(slot, slotCount);
+        }
+        deviceCves.put(slot, cves.toArray(new String[0]));
+    }
+
+    private void removeDevice(Long deviceId) {
+        Integer slot = slots.get(deviceId);
+        if (slot == null) {
+            return;
+        }
+        // the slot stays assigned, so re-uploads of the device reuse it
+        String[] cves = deviceCves.remove(slot);
+        if (cves != null) {
+            for (String cve : cves) {
+                DeviceSet set = cveDevices.get(cve);
+                if (set != null) {
+                    set.remove(slot);
+                    if (set.cardinality() == 0) {
+                        cveDevices.remove(cve);
+                    }
+                }
+            }
+        }
+    }
+
+    private int slotOf(Long deviceId) {
+        Integer slot = slots.get(deviceId);
+        if (slot == null) {
+            slot = slotCount++;
+            if (slot == slotDevices.length) {
+                slotDevices = Arrays.copyOf(slotDevices, slotDevices.length * 2);
+            }
+            slotDevices[slot] = deviceId;
+            slots.put(deviceId, slot);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,127 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.CommonSoftwareDTO;
+import com.sbomfinder.dto.ComparedPackageDTO;
+import com.sbomfinder.dto.DeviceSetComparisonDTO;
+import com.sbomfinder.model.Device;
+import com.sbomfinder.repository.DeviceRepository;
+import com.sbomfinder.repository.SoftwarePackageRepository;
+import com.sbomfinder.util.PurlUtils;
+import com.sbomfinder.util.VersionComparator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// Compares the packages of two or more devices. The data comes from two set queries (devices,
+// then one flat row per package of all devices), and packages are matched by hashing their
+// normalized purl, so the work is linear in the number of packages.
+@Service
+public class DeviceComparisonService {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SoftwarePackageRepository softwarePackageRepository;
+
+    private static class PackageGroup {
+        final String key;
+        String name;
+        String componentType;
+        final Map<Long, TreeSet<String>> versions = new LinkedHashMap<>();
+        final Map<Long, TreeSet<String>> suppliers = new LinkedHashMap<>();
+
+        PackageGroup(String key) {
+            this.key = key;
+        }
+    }
+
+    // Returns null when a device does not exist.
+    public DeviceSetComparisonDTO compare(List<Long> deviceIds) {
+        List<Device> devices = deviceRepository.findAllById(deviceIds);
+        if (devices.size() != deviceIds.size()) {
+            return null;
+        }
+        Map<Long, String> deviceNames = new LinkedHashMap<>();
+        for (Long id : deviceIds) {
+            for (Device device : devices) {
+                if (device.getId().equals(id)) {
+                    deviceNames.put(id, device.getDeviceName());
+                }
+            }
+        }
+
+        Map<String, PackageGroup> groups = new LinkedHashMap<>();
+        for (Object[] row : softwarePackageRepository.findComparisonRowsByDeviceIds(deviceIds)) {
+            Long deviceId = (Long) row[0];
+            String name = (String) row[1];
+            String version = (String) row[2];
+            String purl = (String) row[3];
+            String componentType = (String) row[4];
+            String supplier = (String) row[5];
+
+            PackageGroup group = groups.computeIfAbsent(PurlUtils.packageKey(purl, name), PackageGroup::new);
+            if (group.name == null) {
+                group.name = name;
+                group.componentType = componentType;
+            }
+            group.versions.computeIfAbsent(deviceId, k -> new TreeSet<>(VersionComparator.INSTANCE))
+                    .add(version != null ? version : "NOASSERTION");
+            group.suppliers.computeIfAbsent(deviceId, k -> new TreeSet<>())
+                    .add(supplier != null ? supplier : "Unknown Supplier");
+        }
+
+        List<ComparedPackageDTO> common = new ArrayList<>();
+        List<ComparedPackageDTO> partial = new ArrayList<>();
+        Map<Long, List<ComparedPackageDTO>> onlyIn = new LinkedHashMap<>();
+        for (Long id : deviceIds) {
+            onlyIn.put(id, new ArrayList<>());
+        }
+        List<CommonSoftwareDTO> commonSoftware = deviceIds.size() == 2 ? new ArrayList<>() : null;
+
+        for (PackageGroup group : groups.values()) {
+            ComparedPackageDTO dto = toDto(group, deviceIds);
+            int presentOn = group.versions.size();
+            if (presentOn == deviceIds.size()) {
+                common.add(dto);
+                if (commonSoftware != null) {
+                    Long first = deviceIds.get(0);
+                    Long second = deviceIds.get(1);
+                    commonSoftware.add(new CommonSoftwareDTO(group.name,
+                            dto.getVersions().get(first), dto.getVersions().get(second),
+                            dto.getSuppliers().get(first), dto.getSuppliers().get(second),
+                            group.componentType));
+                }
+            } else if (presentOn == 1) {
+                onlyIn.get(group.versions.keySet().iterator().next()).add(dto);
+            } else {
+                partial.add(dto);
+            }
+        }
+
+        return new DeviceSetComparisonDTO(deviceIds, deviceNames, common, onlyIn, partial, commonSoftware);
+    }
+
+    private ComparedPackageDTO toDto(PackageGroup group, List<Long> deviceIds) {
+        Map<Long, String> versions = new LinkedHashMap<>();
+        Map<Long, String> suppliers = new LinkedHashMap<>();
+        Set<String> distinctVersions = new HashSet<>();
+        Set<String> distinctSuppliers = new HashSet<>();
+        for (Long id : deviceIds) {
+            TreeSet<String> deviceVersions = group.versions.get(id);
+            if (deviceVersions == null) {
+                continue;
+            }
+            // a device can carry several versions of the same package
+            String version = String.join(", ", deviceVersions);
+            String supplier = String.join(", ", group.suppliers.get(id));
+            versions.put(id, version);
+            suppliers.put(id, supplier);
+            distinctVersions.add(version);
+            distinctSuppliers.add(supplier);
+        }
+        return new ComparedPackageDTO(group.key, group.name, group.componentType, versions, suppliers,
+                distinctVersions.size() > 1, distinctSuppliers.size() > 1);
+    }
+}
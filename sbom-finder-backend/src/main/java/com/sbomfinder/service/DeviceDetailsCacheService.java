@@ -0,0 +1,311 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.event.DevicePackagesChangedEvent;
+import com.sbomfinder.event.DeviceVulnerabilitiesChangedEvent;
+import com.sbomfinder.event.DevicesDeletedEvent;
+import com.sbomfinder.repository.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serialized /api/devices/{id}/details responses, keyed by device and the SBOM it currently
+// points at. An upload gives the device a new SBOM, so a new key; the old entry just ages out.
+// The external references in a response belong to every device with the same name and
+// manufacturer, so keys also carry a hash of those and a change to one such device evicts all.
+// The first tier is an on-heap LRU bounded by bytes; the optional second tier keeps one file
+// per entry under sbom.details-cache.disk-dir, survives restarts and feeds the first tier on a
+// hit. Entries hold the JSON bytes the controller writes back unchanged.
+@Service
+public class DeviceDetailsCacheService {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Value("${sbom.details-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sbom.details-cache.heap-max-bytes:67108864}")
+    private long heapMaxBytes;
+
+    @Value("${sbom.details-cache.disk-dir:}")
+    private String diskDir;
+
+    @Value("${sbom.details-cache.disk-max-bytes:1073741824}")
+    private long diskMaxBytes;
+
+    private static final String FILE_SUFFIX = ".json";
+
+    // access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, byte[]> heap = new LinkedHashMap<>(256, 0.75f, true);
+    private long heapBytes;
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes;
+    private Path diskPath;
+
+    private final AtomicLong heapHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || diskDir == null || diskDir.isBlank()) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(diskDir);
+            Files.createDirectories(dir);
+            // oldest files first, so they are the first to go when the budget is exceeded
+            File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                synchronized (disk) {
+                    for (File file : files) {
+                        String name = file.getName();
+                        String key = name.substring(0, name.length() - FILE_SUFFIX.length());
+                        if (key.indexOf('-') == key.lastIndexOf('-')) {
+                            // deviceId-sbomId from before keys had a name group
+                            file.delete();
+                            continue;
+                        }
+                        disk.put(key, file.length());
+                        diskBytes += file.length();
+                    }
+                }
+            }
+            diskPath = dir;
+            System.out.println("Device details disk cache at " + dir + ": " + disk.size() + " entries, " + diskBytes + " bytes");
+        } catch (IOException e) {
+            System.err.println("Device details disk cache disabled, cannot use " + diskDir + ": " + e.getMessage());
+        }
+    }
+
+    // the cached JSON, or null
+    public byte[] get(Long deviceId, Long sbomId, String deviceName, String manufacturer) {
+        if (!enabled) {
+            return null;
+        }
+        String key = key(deviceId, sbomId, deviceName, manufacturer);
+        synchronized (heap) {
+            byte[] body = heap.get(key);
+            if (body != null) {
+                heapHits.incrementAndGet();
+                return body;
+            }
+        }
+
+        byte[] body = readDisk(key);
+        if (body != null) {
+            diskHits.incrementAndGet();
+            putHeap(key, body);
+            return body;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Serializes the response once and caches it; returns the bytes to send.
+    public byte[] put(Long deviceId, Long sbomId, String deviceName, String manufacturer, Object details) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(details);
+        if (enabled) {
+            String key = key(deviceId, sbomId, deviceName, manufacturer);
+            putHeap(key, body);
+            writeDisk(key, body);
+        }
+        return body;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicePackagesChanged(DevicePackagesChangedEvent event) {
+        // an upload also replaces the external references its namesakes show
+        Set<String> groups = new HashSet<>();
+        deviceRepository.findById(event.getDeviceId())
+                .ifPresent(device -> groups.add(group(device.getDeviceName(), device.getManufacturer())));
+        evict(List.of(event.getDeviceId()), groups);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicesDeleted(DevicesDeletedEvent event) {
+        Set<String> groups = new HashSet<>();
+        for (String[] name : event.getDeviceNames()) {
+            groups.add(group(name[0], name[1]));
+        }
+        evict(event.getDeviceIds(), groups);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceVulnerabilitiesChanged(DeviceVulnerabilitiesChangedEvent event) {
+        evict(event.getDeviceIds(), Set.of());
+    }
+
+    // for changes that reach many devices at once, e.g. new vulnerability data
+    public void clear() {
+        synchronized (heap) {
+            heap.clear();
+            heapBytes = 0;
+        }
+        List<String> keys;
+        synchronized (disk) {
+            keys = new ArrayList<>(disk.keySet());
+            disk.clear();
+            diskBytes = 0;
+        }
+        deleteFiles(keys);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (heap) {
+            stats.put("heapEntries", heap.size());
+            stats.put("heapBytes", heapBytes);
+        }
+        synchronized (disk) {
+            stats.put("diskEntries", disk.size());
+            stats.put("diskBytes", diskBytes);
+        }
+        stats.put("heapHits", heapHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    // entries of the devices, and of every device in one of the name groups
+    private void evict(Collection<Long> deviceIds, Set<String> groups) {
+        Set<String> prefixes = new HashSet<>();
+        for (Long id : deviceIds) {
+            prefixes.add(id + "-");
+        }
+        synchronized (heap) {
+            Iterator<Map.Entry<String, byte[]>> it = heap.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, byte[]> entry = it.next();
+                if (prefixes.contains(devicePrefix(entry.getKey())) || groups.contains(groupOf(entry.getKey()))) {
+                    heapBytes -= entry.getValue().length;
+                    it.remove();
+                }
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        synchronized (disk) {
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                if (prefixes.contains(devicePrefix(entry.getKey())) || groups.contains(groupOf(entry.getKey()))) {
+                    diskBytes -= entry.getValue();
+                    removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        deleteFiles(removed);
+    }
+
+    private void putHeap(String key, byte[] body) {
+        // one response larger than the whole tier is not worth evicting everything else for
+        if (body.length > heapMaxBytes / 4) {
+            return;
+        }
+        synchronized (heap) {
+            byte[] previous = heap.put(key, body);
+            heapBytes += body.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> it = heap.values().iterator();
+            while (heapBytes > heapMaxBytes && it.hasNext()) {
+                heapBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    private byte[] readDisk(String key) {
+        if (diskPath == null) {
+            return null;
+        }
+        synchronized (disk) {
+            if (disk.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(diskPath.resolve(key + FILE_SUFFIX));
+        } catch (IOException e) {
+            // removed by an eviction in between
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, byte[] body) {
+        if (diskPath == null || body.length > diskMaxBytes / 4) {
+            return;
+        }
+        Path file = diskPath.resolve(key + FILE_SUFFIX);
+        Path tmp = diskPath.resolve(key + FILE_SUFFIX + ".tmp");
+        try {
+            Files.write(tmp, body);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write device details cache file " + file + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (disk) {
+            Long previous = disk.put(key, (long) body.length);
+            diskBytes += body.length - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        deleteFiles(evicted);
+    }
+
+    private void deleteFiles(List<String> keys) {
+        if (diskPath == null) {
+            return;
+        }
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(diskPath.resolve(key + FILE_SUFFIX));
+            } catch (IOException e) {
+                System.err.println("Could not delete device details cache file for " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // deviceId-sbomId-group
+    private static String key(Long deviceId, Long sbomId, String deviceName, String manufacturer) {
+        return deviceId + "-" + (sbomId != null ? sbomId : 0) + "-" + group(deviceName, manufacturer);
+    }
+
+    // a collision only evicts a few entries too many
+    private static String group(String deviceName, String manufacturer) {
+        return Integer.toHexString((deviceName + '\u0000' + manufacturer).hashCode());
+    }
+
+    private static String devicePrefix(String key) {
+        return key.substring(0, key.indexOf('-') + 1);
+    }
+
+    private static String groupOf(String key) {
+        return key.substring(key.lastIndexOf('-') + 1);
+    }
+}
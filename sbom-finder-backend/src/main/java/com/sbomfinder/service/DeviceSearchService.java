@@ -0,0 +1,101 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.DeviceSearchResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Ranked device search. Every condition can be answered from an index: the stored search_vector
+// (GIN, V5), trigram similarity on device_name and the compacted-name substring match (pg_trgm
+// GIN, V4). The rank is computed once per matching row, and only one page of light rows is
+// returned, together with the total match count from the same statement (or a count of its own
+// for a page past the last match).
+@Service
+public class DeviceSearchService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public static class SearchPage {
+        private final List<DeviceSearchResultDTO> results;
+        private final long total;
+
+        SearchPage(List<DeviceSearchResultDTO> results, long total) {
+            this.results = results;
+            this.total = total;
+        }
+
+        public List<DeviceSearchResultDTO> getResults() { return results; }
+        public long getTotal() { return total; }
+    }
+
+    public SearchPage search(String query, String manufacturer, String operatingSystem, String category, int page, int size) {
+        boolean hasQuery = query != null && !query.isBlank();
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder();
+        String score;
+
+        if (hasQuery) {
+            String raw = query.trim();
+            String compact = raw.toLowerCase(Locale.ROOT).replace(" ", "");
+            // the three conditions stay OR-ed in one WHERE, so the planner can combine the indexes
+            // into a BitmapOr
+            score = "ts_rank_cd(d.search_vector, websearch_to_tsquery('simple', ?)) + similarity(d.device_name, ?)";
+            where.append("(d.search_vector @@ websearch_to_tsquery('simple', ?) OR d.device_name % ? ")
+                 .append("OR replace(lower(d.device_name), ' ', '') LIKE ?)");
+            args.add(raw);
+            args.add(raw);
+            args.add("%" + escapeLike(compact) + "%");
+        } else {
+            score = "0.0";
+            where.append("true");
+        }
+
+        appendFilter(where, args, "d.manufacturer", manufacturer);
+        appendFilter(where, args, "d.operating_system", operatingSystem);
+        appendFilter(where, args, "d.category", category);
+
+        List<Object> pageArgs = new ArrayList<>();
+        if (hasQuery) {
+            pageArgs.add(query.trim());
+            pageArgs.add(query.trim());
+        }
+        pageArgs.addAll(args);
+        pageArgs.add(size);
+        pageArgs.add((long) page * size);
+        String sql = "SELECT d.id, d.device_name, d.manufacturer, d.category, d.operating_system, d.os_version, "
+                + score + " AS score, count(*) OVER () AS total FROM devices d WHERE " + where
+                + (hasQuery ? " ORDER BY score DESC, d.id" : " ORDER BY d.id") + " LIMIT ? OFFSET ?";
+
+        List<DeviceSearchResultDTO> results = new ArrayList<>();
+        long[] total = {0};
+        jdbcTemplate.query(sql, rs -> {
+            results.add(new DeviceSearchResultDTO(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getString(4), rs.getString(5), rs.getString(6), rs.getDouble(7)));
+            total[0] = rs.getLong(8);
+        }, pageArgs.toArray());
+
+        // a page past the last match has no row to carry the window count
+        if (results.isEmpty() && page > 0) {
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM devices d WHERE " + where, Long.class, args.toArray());
+            total[0] = count != null ? count : 0;
+        }
+        return new SearchPage(results, total[0]);
+    }
+
+    // same semantics as the old search: case-insensitive, exact unless the caller passes wildcards
+    private static void appendFilter(StringBuilder sql, List<Object> args, String column, String value) {
+        if (value != null && !value.isBlank()) {
+            sql.append(" AND ").append(column).append(" ILIKE ?");
+            args.add(value.trim());
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -3,11 +3,20 @@ package com.sbomfinder.service;
 import java.util.List;
 import java.util.ArrayList;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.sbomfinder.event.DevicesDeletedEvent;
 import com.sbomfinder.model.Sbom;
 import com.sbomfinder.model.Device;
 import com.sbomfinder.repository.SoftwarePackageRepository;
+import com.sbomfinder.repository.DeviceRepository;
+import com.sbomfinder.repository.SbomRepository;
+import com.sbomfinder.repository.SbomArchiveRepository;
+import com.sbomfinder.repository.SbomExportArtifactRepository;
+import com.sbomfinder.repository.ExternalReferenceRepository;
+import com.sbomfinder.repository.SupplierRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.sbomfinder.model.SoftwarePackage;
 import java.util.*;
 import org.springframework.http.*;
@@ -24,6 +33,31 @@ import java.util.stream.Collectors;
 public class DeviceService {
     @Autowired
     private SoftwarePackageRepository softwarePackageRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SbomRepository sbomRepository;
+
+    @Autowired
+    private SbomArchiveRepository sbomArchiveRepository;
+
+    @Autowired
+    private SbomExportArtifactRepository sbomExportArtifactRepository;
+
+    @Autowired
+    private ExternalReferenceRepository externalReferenceRepository;
+
+    @Autowired
+    private ArchiveStorageService archiveStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
     public List<VulnerabilityDTO> getVulnerabilitiesForDevice(Device device) {
         Set<Vulnerability> allVulns = new HashSet<>();
 
@@ -44,4 +78,41 @@ public class DeviceService {
             return dto;
         }).collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    // Deletes the devices and everything hanging off them with one statement per table,
+    // independent of how many packages the devices carry. Returns the number of devices removed.
+    @Transactional
+    public int deleteDevices(Collection<Long> deviceIds) {
+        List<Long> ids = new ArrayList<>();
+        List<String[]> names = new ArrayList<>();
+        for (Object[] row : deviceRepository.findExistingNames(deviceIds)) {
+            ids.add((Long) row[0]);
+            names.add(new String[]{(String) row[1], (String) row[2]});
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // suppliers are only removed if these devices held their last packages
+        List<Long> supplierIds = softwarePackageRepository.findSupplierIdsByDeviceIds(ids);
+
+        // components (and their vulnerability links) stay for other devices; unused ones are
+        // removed by OrphanCleanupService
+        softwarePackageRepository.deleteByDeviceIds(ids);
+        if (!supplierIds.isEmpty()) {
+            supplierRepository.deleteOrphansByIdIn(supplierIds);
+        }
+
+        externalReferenceRepository.deleteByDeviceIds(ids);
+        sbomExportArtifactRepository.deleteByDeviceIds(ids);
+        archiveStorageService.releaseDeviceArchives(ids);
+        sbomArchiveRepository.deleteByDeviceIds(ids);
+
+        deviceRepository.detachSboms(ids);
+        sbomRepository.deleteByDeviceIds(ids);
+        int deleted = deviceRepository.deleteByIds(ids);
+
+        eventPublisher.publishEvent(new DevicesDeletedEvent(ids, names));
+        return deleted;
+    }
+}
@@ -11,6 +11,8 @@ import java.util.*;
 import java.util.Base64;
 import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class DigitalFootprintService {
@@ -53,6 +55,39 @@ public class DigitalFootprintService {
         return footprints;
     }
 
+    // SHA-256 of each file's raw content, keyed by its path relative to root ('/'-separated),
+    // the same digest the footprints above carry. Stored per SBOM for incremental re-uploads.
+    public Map<String, String> hashFiles(Path root, List<Path> files) throws IOException, NoSuchAlgorithmException {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        byte[] buffer = new byte[64 * 1024];
+        for (Path file : files) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            hashes.put(sourcePath(root, file), toHex(digest.digest()));
+        }
+        return hashes;
+    }
+
+    // Directory the paths of an extracted source tree are taken relative to: the tree itself,
+    // or its only entry when the archive unpacks into a single top-level directory
+    // (repo-1.2.0/), so a file keeps its path from one release to the next.
+    public Path contentRoot(Path extractedDir) throws IOException {
+        try (Stream<Path> entries = Files.list(extractedDir)) {
+            List<Path> top = entries.limit(2).collect(Collectors.toList());
+            return top.size() == 1 && Files.isDirectory(top.get(0)) ? top.get(0) : extractedDir;
+        }
+    }
+
+    // path of file relative to root, '/'-separated
+    public String sourcePath(Path root, Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
     private String getFileExtension(String fileName) {
         int lastIndex = fileName.lastIndexOf(".");
         if (lastIndex != -1 && lastIndex < fileName.length() - 1) {
@@ -67,7 +102,10 @@ public class DigitalFootprintService {
 
     private String sha256(byte[] input) throws NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hashBytes = digest.digest(input);
+        return toHex(digest.digest(input));
+    }
+
+    private String toHex(byte[] hashBytes) {
         StringBuilder hexString = new StringBuilder();
         for (byte b : hashBytes) {
             hexString.append(String.format("%02x", b));
@@ -1,9 +1,9 @@
 package com.sbomfinder.service;
 
-import com.sbomfinder.model.ExternalReference;
 import com.sbomfinder.model.Sbom;
-import com.sbomfinder.repository.ExternalReferenceRepository;
+import com.sbomfinder.util.ReferenceExtractor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -11,18 +11,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ExternalReferenceService {
 
     @Autowired
-    private ExternalReferenceRepository externalReferenceRepository;
+    private JdbcTemplate jdbcTemplate;
 
-    private static final Pattern URL_PATTERN = Pattern.compile("https?://[\\w./%-]+", Pattern.CASE_INSENSITIVE);
+    // rows per INSERT statement; 5,000 links become 10 statements
+    private static final int INSERT_BATCH_SIZE = 500;
 
     private static final List<String> EXTERNAL_REFERENCE_FILENAMES = List.of(
             "README.md", "readme.txt", "LICENSE", "NOTICE", "about.txt",
@@ -31,46 +34,63 @@ public class ExternalReferenceService {
             "build.gradle", "build.gradle.kts", "environment.yml", "environment.yaml"
     );
 
-    public List<String> extractExternalReferences(Path sourceDirectory) {
-        List<String> externalLinks = new ArrayList<>();
+    // file names are compared lower-cased, so the lookup set has to be lower-cased as well
+    private static final Set<String> EXTERNAL_REFERENCE_FILENAMES_LOWER = EXTERNAL_REFERENCE_FILENAMES.stream()
+            .map(name -> name.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
 
-        try {
-            Files.walk(sourceDirectory)
-                    .filter(path -> Files.isRegularFile(path) && EXTERNAL_REFERENCE_FILENAMES.contains(path.getFileName().toString().toLowerCase()))
-                    .forEach(file -> {
-                        try {
-                            List<String> lines = Files.readAllLines(file);
-                            for (String line : lines) {
-                                Matcher matcher = URL_PATTERN.matcher(line);
-                                while (matcher.find()) {
-                                    externalLinks.add(matcher.group());
-                                }
-                            }
-                        } catch (IOException e) {
-                            System.err.println("Failed to read file: " + file.getFileName());
-                        }
-                    });
+    public List<String> extractExternalReferences(Path sourceDirectory) {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceDirectory)) {
+            files = paths
+                    .filter(path -> Files.isRegularFile(path)
+                            && EXTERNAL_REFERENCE_FILENAMES_LOWER.contains(path.getFileName().toString().toLowerCase(Locale.ROOT)))
+                    .collect(Collectors.toList());
         } catch (IOException e) {
             System.err.println("Failed to traverse source directory: " + e.getMessage());
+            return new ArrayList<>();
         }
 
-        return externalLinks;
+        // scan files in parallel into one shared set so duplicates are dropped as they are found
+        Set<String> externalLinks = ConcurrentHashMap.newKeySet();
+        files.parallelStream().forEach(file -> {
+            try {
+                ReferenceExtractor.scan(file, externalLinks);
+            } catch (IOException e) {
+                System.err.println("Failed to read file: " + file.getFileName());
+            }
+        });
+
+        List<String> sortedLinks = new ArrayList<>(externalLinks);
+        sortedLinks.sort(null);
+        return sortedLinks;
     }
 
     // method to save external references linked to an SBOM
-    public void saveExternalReferences(Sbom sbom, List<String> externalLinks) {
-        Set<String> uniqueLinks = new HashSet<>(externalLinks);
+    // Links are written with multi-row INSERT ... ON CONFLICT DO NOTHING against the
+    // (sbom_id, reference_locator) unique index, so re-saving the same links is a no-op.
+    public int saveExternalReferences(Sbom sbom, List<String> externalLinks) {
+        List<String> uniqueLinks = new ArrayList<>(new TreeSet<>(externalLinks));
+        int inserted = 0;
+
+        for (int start = 0; start < uniqueLinks.size(); start += INSERT_BATCH_SIZE) {
+            List<String> chunk = uniqueLinks.subList(start, Math.min(start + INSERT_BATCH_SIZE, uniqueLinks.size()));
 
-        for (String link : uniqueLinks) {
-            boolean exists = externalReferenceRepository.existsBySbomAndReferenceLocator(sbom, link);
-            if (!exists) {
-                ExternalReference ref = new ExternalReference();
-                ref.setSbom(sbom);
-                ref.setReferenceCategory("EXTERNAL");
-                ref.setReferenceType("WEBSITE");
-                ref.setReferenceLocator(link);
-                externalReferenceRepository.save(ref);
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO external_references (sbom_id, reference_category, reference_type, reference_locator) VALUES ");
+            Object[] args = new Object[chunk.size() * 4];
+            for (int i = 0; i < chunk.size(); i++) {
+                String link = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+                args[i * 4] = sbom.getId();
+                args[i * 4 + 1] = "EXTERNAL";
+                args[i * 4 + 2] = ReferenceExtractor.classify(link);
+                args[i * 4 + 3] = link;
             }
+            sql.append(" ON CONFLICT (sbom_id, reference_locator) DO NOTHING");
+
+            inserted += jdbcTemplate.update(sql.toString(), args);
         }
+        return inserted;
     }
 }
@@ -0,0 +1,108 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.model.Vulnerability;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Lookups shared by the devices of one bulk ingest (BulkIngestService), so a dependency that
+// several devices have is resolved once per batch: the supplier inferred from the registry,
+// the OSV lookup of a component (the first device to claim it looks it up and stores its
+// links, which every device with that component shares; if that lookup fails the claim is
+// released and a waiting device tries again) and the stored Vulnerability row per CVE id.
+// Concurrent callers asking for the same key wait for the first one.
+public class IngestLookupCache {
+
+    private final Map<String, CompletableFuture<Long>> supplierIds = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Boolean>> componentClaims = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Vulnerability>> storedVulnerabilities = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sharedComponents = new AtomicLong();
+
+    // supplier id for a package, keyed by ecosystem and package name
+    public Long supplierId(String key, Supplier<Long> loader) {
+        return get(supplierIds, key, loader);
+    }
+
+    // null for the first device of the batch to ask, which must look the component up and then
+    // call releaseComponent; the others get the owner's claim to pass to awaitComponent
+    public CompletableFuture<Boolean> claimComponent(Long componentId) {
+        return componentClaims.putIfAbsent(componentId, new CompletableFuture<>());
+    }
+
+    // linked: the owner stored the component's links. Otherwise the claim is dropped so the
+    // next device to ask looks the component up itself.
+    public void releaseComponent(Long componentId, boolean linked) {
+        CompletableFuture<Boolean> claim = componentClaims.get(componentId);
+        if (claim == null) {
+            return;
+        }
+        if (!linked) {
+            componentClaims.remove(componentId, claim);
+        }
+        claim.complete(linked);
+    }
+
+    // true once the owner stored the links; false if its lookup failed and the caller should
+    // claim the component again
+    public boolean awaitComponent(CompletableFuture<Boolean> claim) {
+        boolean linked;
+        try {
+            linked = claim.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a shared lookup", e);
+        } catch (ExecutionException e) {
+            linked = false;
+        }
+        if (linked) {
+            sharedComponents.incrementAndGet();
+        }
+        return linked;
+    }
+
+    // the persisted Vulnerability for a CVE id, so concurrent devices do not insert it twice
+    public Vulnerability storedVulnerability(String cveId, Supplier<Vulnerability> loader) {
+        return get(storedVulnerabilities, cveId, loader);
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getSharedComponents() { return sharedComponents.get(); }
+
+    private <V> V get(Map<String, CompletableFuture<V>> map, String key, Supplier<V> loader) {
+        CompletableFuture<V> future = map.get(key);
+        if (future == null) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            future = map.putIfAbsent(key, created);
+            if (future == null) {
+                misses.incrementAndGet();
+                try {
+                    V value = loader.get();
+                    created.complete(value);
+                    return value;
+                } catch (RuntimeException e) {
+                    // not cached: the next device asking tries again
+                    map.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        hits.incrementAndGet();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a shared lookup", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.model.SoftwarePackage;
+import com.sbomfinder.model.Vulnerability;
+import com.sbomfinder.util.PackageUrl;
+import com.sbomfinder.util.VersionIntervalTree;
+import com.sbomfinder.util.VersionScheme;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Vulnerability lookup against the imported OSV advisories (advisories / advisory_ranges),
+// used by SbomService instead of the OSV API once advisories have been imported.
+// The affected intervals of a package are read once, parsed with the ecosystem's version
+// scheme (SEMVER ranges always with SemVer) and kept as interval trees in an LRU, so a package
+// shared by many devices costs one query. A whole SBOM is matched with one range query, one
+// advisory query and the tree lookups spread over the common fork-join pool.
+@Service
+public class LocalAdvisoryService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String RANGES_OF_PACKAGES =
+            "SELECT ecosystem, package_name, advisory_id, range_type, introduced, fixed, last_affected FROM advisory_ranges " +
+            "WHERE (ecosystem, package_name) IN (SELECT * FROM unnest(?::text[], ?::text[]))";
+    private static final String ADVISORIES =
+            "SELECT id, summary, severity_type, cvss_score, source_url FROM advisories WHERE id = ANY (?) AND NOT withdrawn";
+    private static final String ANY_ADVISORY = "SELECT EXISTS (SELECT 1 FROM advisories)";
+    private static final int CACHE_SIZE = 20000;
+    private static final int QUERY_BATCH_SIZE = 1000;
+
+    private final Map<String, PackageRanges> ranges = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PackageRanges> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private volatile Boolean hasAdvisories;
+
+    // affected intervals of one package, one tree per version scheme in use
+    private static class PackageRanges {
+        static final PackageRanges NONE = new PackageRanges(new EnumMap<>(VersionScheme.class));
+
+        final Map<VersionScheme, VersionIntervalTree<String>> trees;
+
+        PackageRanges(Map<VersionScheme, VersionIntervalTree<String>> trees) {
+            this.trees = trees;
+        }
+
+        void collect(String version, Set<String> advisoryIds) {
+            for (Map.Entry<VersionScheme, VersionIntervalTree<String>> tree : trees.entrySet()) {
+                tree.getValue().collect(tree.getKey().parse(version), advisoryIds);
+            }
+        }
+    }
+
+    public boolean hasAdvisories() {
+        Boolean known = hasAdvisories;
+        if (known == null) {
+            known = Boolean.TRUE.equals(jdbcTemplate.queryForObject(ANY_ADVISORY, Boolean.class));
+            hasAdvisories = known;
+        }
+        return known;
+    }
+
+    // after an import: forget cached intervals and re-check whether the store is empty
+    public void invalidate() {
+        synchronized (ranges) {
+            ranges.clear();
+        }
+        hasAdvisories = null;
+    }
+
+    // Advisories affecting this package version, as unsaved Vulnerability entities in the same
+    // shape SbomService builds from OSV API responses.
+    public List<Vulnerability> findVulnerabilities(String purl, String name, String version) {
+        SoftwarePackage pkg = new SoftwarePackage();
+        pkg.setPurl(purl);
+        pkg.setName(name);
+        pkg.setVersion(version);
+        return findVulnerabilities(List.of(pkg)).get(0);
+    }
+
+    // Same for a whole package list; the result is aligned with the input. Packages affected by
+    // the same advisory share one Vulnerability instance.
+    public List<List<Vulnerability>> findVulnerabilities(List<SoftwarePackage> packages) {
+        int n = packages.size();
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            SoftwarePackage pkg = packages.get(i);
+            PackageUrl purl = PackageUrl.tryParse(pkg.getPurl());
+            String ecosystem = purl != null ? purl.osvEcosystem() : null;
+            if (ecosystem != null && pkg.getVersion() != null && !pkg.getVersion().isBlank()) {
+                String ecosystemKey = normalizeEcosystem(ecosystem);
+                keys[i] = ecosystemKey + '\u0000' + normalizeName(ecosystemKey, purl.osvName());
+            }
+        }
+        PackageRanges[] packageRanges = resolve(keys);
+
+        // the trees are immutable and the version caches concurrent, so lookups run in parallel
+        @SuppressWarnings("unchecked")
+        Set<String>[] matched = new Set[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            if (packageRanges[i] != null && !packageRanges[i].trees.isEmpty()) {
+                Set<String> ids = new LinkedHashSet<>();
+                packageRanges[i].collect(packages.get(i).getVersion(), ids);
+                matched[i] = ids;
+            }
+        });
+
+        Set<String> allIds = new LinkedHashSet<>();
+        for (Set<String> ids : matched) {
+            if (ids != null) allIds.addAll(ids);
+        }
+        Map<String, Vulnerability> advisories = loadAdvisories(allIds);
+
+        List<List<Vulnerability>> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Vulnerability> vulns = new ArrayList<>();
+            if (matched[i] != null) {
+                for (String id : matched[i]) {
+                    Vulnerability v = advisories.get(id);
+                    if (v != null) vulns.add(v); // withdrawn
+                }
+            }
+            result.add(vulns);
+        }
+        return result;
+    }
+
+    private PackageRanges[] resolve(String[] keys) {
+        PackageRanges[] resolved = new PackageRanges[keys.length];
+        Set<String> missing = new LinkedHashSet<>();
+        synchronized (ranges) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    resolved[i] = ranges.get(keys[i]);
+                    if (resolved[i] == null) missing.add(keys[i]);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+
+        Map<String, PackageRanges> loaded = new HashMap<>();
+        List<String> missingKeys = new ArrayList<>(missing);
+        for (int from = 0; from < missingKeys.size(); from += QUERY_BATCH_SIZE) {
+            List<String> batch = missingKeys.subList(from, Math.min(from + QUERY_BATCH_SIZE, missingKeys.size()));
+            loaded.putAll(loadRanges(batch));
+        }
+        synchronized (ranges) {
+            for (String key : missing) {
+                ranges.put(key, loaded.getOrDefault(key, PackageRanges.NONE));
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && resolved[i] == null) {
+                resolved[i] = loaded.getOrDefault(keys[i], PackageRanges.NONE);
+            }
+        }
+        return resolved;
+    }
+
+    private Map<String, PackageRanges> loadRanges(List<String> keys) {
+        String[] ecosystems = new String[keys.size()];
+        String[] names = new String[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            int sep = key.indexOf('\u0000');
+            ecosystems[i] = key.substring(0, sep);
+            names[i] = key.substring(sep + 1);
+        }
+
+        Map<String, Map<VersionScheme, VersionIntervalTree.Builder<String>>> builders = new HashMap<>();
+        jdbcTemplate.query(RANGES_OF_PACKAGES, rs -> {
+            String type = rs.getString(4);
+            // GIT ranges are commit hashes and never match a version string
+            if ("GIT".equals(type)) {
+                return;
+            }
+            String ecosystem = rs.getString(1);
+            VersionScheme scheme = "SEMVER".equals(type) ? VersionScheme.SEMVER : VersionScheme.forEcosystem(ecosystem);
+            String introduced = rs.getString(5);
+            String fixed = rs.getString(6);
+            String lastAffected = rs.getString(7);
+            builders.computeIfAbsent(ecosystem + '\u0000' + rs.getString(2), k -> new EnumMap<>(VersionScheme.class))
+                    .computeIfAbsent(scheme, s -> new VersionIntervalTree.Builder<>())
+                    .add(introduced != null ? scheme.parse(introduced) : null,
+                            fixed != null ? scheme.parse(fixed) : lastAffected != null ? scheme.parse(lastAffected) : null,
+                            fixed == null && lastAffected != null,
+                            rs.getString(3));
+        }, ecosystems, names);
+
+        Map<String, PackageRanges> loaded = new HashMap<>();
+        for (Map.Entry<String, Map<VersionScheme, VersionIntervalTree.Builder<String>>> entry : builders.entrySet()) {
+            Map<VersionScheme, VersionIntervalTree<String>> trees = new EnumMap<>(VersionScheme.class);
+            entry.getValue().forEach((scheme, builder) -> trees.put(scheme, builder.build()));
+            loaded.put(entry.getKey(), new PackageRanges(trees));
+        }
+        return loaded;
+    }
+
+    private Map<String, Vulnerability> loadAdvisories(Set<String> ids) {
+        Map<String, Vulnerability> advisories = new HashMap<>();
+        List<String> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += QUERY_BATCH_SIZE) {
+            String[] batch = all.subList(from, Math.min(from + QUERY_BATCH_SIZE, all.size())).toArray(new String[0]);
+            jdbcTemplate.query(ADVISORIES, rs -> {
+                Vulnerability v = new Vulnerability();
+                v.setCveId(rs.getString(1));
+                v.setDescription(truncate(rs.getString(2) != null ? rs.getString(2) : "No description available"));
+                v.setSeverity(rs.getString(3) != null ? rs.getString(3) : "Unknown");
+                double score = rs.getDouble(4);
+                v.setCvssScore(rs.wasNull() ? 0.0 : score);
+                v.setSourceUrl(truncate(rs.getString(5) != null ? rs.getString(5) : ""));
+                v.setSeverityLevel(severityLevel(v.getCvssScore()));
+                advisories.put(v.getCveId(), v);
+            }, (Object) batch);
+        }
+        return advisories;
+    }
+
+    // Debian:11 stays distinct from Debian:12; only the case is folded
+    public static String normalizeEcosystem(String ecosystem) {
+        return ecosystem.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // lower-case everywhere, plus PEP 503 for PyPI ("Zope.Interface" -> "zope-interface")
+    public static String normalizeName(String ecosystem, String name) {
+        String lower = name.trim().toLowerCase(Locale.ROOT);
+        return "pypi".equals(ecosystem) ? lower.replaceAll("[-_.]+", "-") : lower;
+    }
+
+    // same buckets as SbomService.calculateSeverityLevel
+    private static String severityLevel(Double score) {
+        if (score == null) return "Unknown";
+        if (score == 0.0) return "None";
+        if (score <= 3.9) return "Low";
+        if (score <= 6.9) return "Medium";
+        if (score <= 8.9) return "High";
+        return "Critical";
+    }
+
+    // vulnerabilities.description and source_url are varchar(255)
+    private static String truncate(String value) {
+        return value.length() <= 255 ? value : value.substring(0, 252) + "...";
+    }
+}
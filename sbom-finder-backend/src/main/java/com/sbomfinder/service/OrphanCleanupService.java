@@ -0,0 +1,150 @@
+package com.sbomfinder.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Array;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+// Periodically removes rows that nothing references any more: components no package points
+// at, suppliers without packages or components, vulnerabilities without component links,
+// external references whose SBOM is gone and archive objects no archive version refers to.
+// Work is done in small keyset-ordered batches with a pause in between, so a run never
+// holds long locks or competes with uploads for the connection pool.
+@Service
+public class OrphanCleanupService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${sbom.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sbom.gc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sbom.gc.max-batches-per-second:2}")
+    private double maxBatchesPerSecond;
+
+    @Value("${sbom.gc.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    // their vulnerability links go with them (ON DELETE CASCADE)
+    private static final String ORPHAN_COMPONENTS =
+            "SELECT c.id FROM components c WHERE c.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM software_packages sp WHERE sp.component_id = c.id) " +
+            "ORDER BY c.id LIMIT ?";
+    private static final String DELETE_COMPONENTS =
+            "DELETE FROM components c WHERE c.id = ANY (?) " +
+            "AND NOT EXISTS (SELECT 1 FROM software_packages sp WHERE sp.component_id = c.id)";
+
+    private static final String ORPHAN_SUPPLIERS =
+            "SELECT s.id FROM supplier s WHERE s.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM software_packages sp WHERE sp.supplier_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM components c WHERE c.supplier_id = s.id) " +
+            "ORDER BY s.id LIMIT ?";
+    private static final String DELETE_SUPPLIERS =
+            "DELETE FROM supplier s WHERE s.id = ANY (?) " +
+            "AND NOT EXISTS (SELECT 1 FROM software_packages sp WHERE sp.supplier_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM components c WHERE c.supplier_id = s.id)";
+
+    private static final String ORPHAN_VULNERABILITIES =
+            "SELECT v.id FROM vulnerabilities v WHERE v.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM component_vulnerabilities cv WHERE cv.vulnerability_id = v.id) " +
+            "ORDER BY v.id LIMIT ?";
+    private static final String DELETE_VULNERABILITIES =
+            "DELETE FROM vulnerabilities v WHERE v.id = ANY (?) " +
+            "AND NOT EXISTS (SELECT 1 FROM component_vulnerabilities cv WHERE cv.vulnerability_id = v.id)";
+
+    private static final String ORPHAN_EXTERNAL_REFERENCES =
+            "SELECT er.id FROM external_references er WHERE er.id > ? " +
+            "AND (er.sbom_id IS NULL OR NOT EXISTS (SELECT 1 FROM sbom_files s WHERE s.id = er.sbom_id)) " +
+            "ORDER BY er.id LIMIT ?";
+    private static final String DELETE_EXTERNAL_REFERENCES =
+            "DELETE FROM external_references WHERE id = ANY (?)";
+
+    private static final String ORPHAN_ARCHIVE_OBJECTS =
+            "SELECT hash FROM archive_objects WHERE hash > ? AND ref_count <= 0 ORDER BY hash LIMIT ?";
+    private static final String DELETE_ARCHIVE_OBJECTS =
+            "DELETE FROM archive_objects WHERE hash = ANY (?) AND ref_count <= 0";
+
+    @Scheduled(fixedDelayString = "${sbom.gc.interval-ms:3600000}", initialDelayString = "${sbom.gc.initial-delay-ms:300000}")
+    public void scheduledCleanup() {
+        if (enabled) {
+            runCleanup();
+        }
+    }
+
+    public Map<String, Integer> runCleanup() {
+        long start = System.currentTimeMillis();
+        int[] batchBudget = {maxBatchesPerRun};
+
+        Map<String, Integer> reclaimed = new LinkedHashMap<>();
+        reclaimed.put("components", sweep(ORPHAN_COMPONENTS, DELETE_COMPONENTS, Long.class, 0L, batchBudget));
+        reclaimed.put("suppliers", sweep(ORPHAN_SUPPLIERS, DELETE_SUPPLIERS, Long.class, 0L, batchBudget));
+        reclaimed.put("vulnerabilities", sweep(ORPHAN_VULNERABILITIES, DELETE_VULNERABILITIES, Long.class, 0L, batchBudget));
+        reclaimed.put("externalReferences", sweep(ORPHAN_EXTERNAL_REFERENCES, DELETE_EXTERNAL_REFERENCES, Long.class, 0L, batchBudget));
+        reclaimed.put("archiveObjects", sweep(ORPHAN_ARCHIVE_OBJECTS, DELETE_ARCHIVE_OBJECTS, String.class, "", batchBudget));
+
+        long elapsed = System.currentTimeMillis() - start;
+        Map<String, Object> run = new LinkedHashMap<>(reclaimed);
+        run.put("elapsedMs", elapsed);
+        run.put("finishedAt", Instant.now().toString());
+        lastRun = run;
+        System.out.println("Orphan cleanup reclaimed " + reclaimed + " in " + elapsed + " ms");
+        return reclaimed;
+    }
+
+    // rows reclaimed by the most recent run, empty until the first run has finished
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    // Walks the table in key order, deleting one batch of candidates at a time. The delete
+    // re-checks the orphan condition, so rows that were linked again meanwhile survive.
+    @SuppressWarnings("unchecked")
+    private <K> int sweep(String selectSql, String deleteSql, Class<K> keyType, K firstKey, int[] batchBudget) {
+        K lastId = firstKey;
+        int deleted = 0;
+
+        while (batchBudget[0] > 0) {
+            List<K> ids = jdbcTemplate.queryForList(selectSql, keyType, lastId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            batchBudget[0]--;
+
+            deleted += jdbcTemplate.update(deleteSql, (Object) ids.toArray((K[]) Array.newInstance(keyType, 0)));
+            lastId = ids.get(ids.size() - 1);
+
+            if (ids.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean pause() {
+        if (maxBatchesPerSecond <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep((long) (1000 / maxBatchesPerSecond));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.event.DevicePackagesChangedEvent;
+import com.sbomfinder.event.DevicesDeletedEvent;
+import com.sbomfinder.util.PurlUtils;
+import com.sbomfinder.util.VersionComparator;
+import com.sbomfinder.util.VersionRange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index: package identity (PurlUtils.packageKey) -> posting list of
+// (device id, version id) pairs sorted by device. Versions are interned into one table, and
+// postings are parallel int arrays, so a posting costs 8 bytes plus 4 for the reverse
+// device -> packages list used on delete. Built once at startup, then kept current from
+// the ingest and delete events after their transactions commit.
+@Service
+public class PackageIndexService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String DEVICE_IDS = "SELECT id FROM devices ORDER BY id";
+    private static final String PACKAGES_OF_DEVICES =
+            "SELECT device_id, name, version, purl FROM software_packages WHERE device_id = ANY (?) ORDER BY device_id";
+    private static final int BUILD_BATCH_SIZE = 500;
+    private static final String DEVICE_PACKAGES =
+            "SELECT device_id, name, version, purl FROM software_packages WHERE device_id = ?";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, Integer> versionIds = new HashMap<>();
+    private final List<String> versions = new ArrayList<>();
+    private final Map<Integer, int[]> deviceKeys = new HashMap<>();
+    private volatile boolean ready;
+
+    // devices sorted ascending; a device has one entry per version it carries
+    private static class Postings {
+        int[] devices = new int[4];
+        int[] versions = new int[4];
+        int size;
+
+        void append(int device, int version) {
+            ensureCapacity(size + 1);
+            devices[size] = device;
+            versions[size] = version;
+            size++;
+        }
+
+        void insert(int device, int version) {
+            if (size == 0 || devices[size - 1] <= device) {
+                append(device, version);
+                return;
+            }
+            int at = lowerBound(device);
+            ensureCapacity(size + 1);
+            System.arraycopy(devices, at, devices, at + 1, size - at);
+            System.arraycopy(versions, at, versions, at + 1, size - at);
+            devices[at] = device;
+            versions[at] = version;
+            size++;
+        }
+
+        void remove(int device) {
+            int from = lowerBound(device);
+            int to = from;
+            while (to < size && devices[to] == device) to++;
+            if (to > from) {
+                System.arraycopy(devices, to, devices, from, size - to);
+                System.arraycopy(versions, to, versions, from, size - to);
+                size -= to - from;
+            }
+        }
+
+        int lowerBound(int device) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (devices[mid] < device) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > devices.length) {
+                int grown = Math.max(capacity, devices.length + (devices.length >> 1));
+                devices = Arrays.copyOf(devices, grown);
+                versions = Arrays.copyOf(versions, grown);
+            }
+        }
+
+        void trim() {
+            devices = Arrays.copyOf(devices, size);
+            versions = Arrays.copyOf(versions, size);
+        }
+    }
+
+    public static class DeviceMatch {
+        private final Long deviceId;
+        private final List<String> versions;
+
+        DeviceMatch(Long deviceId, List<String> versions) {
+            this.deviceId = deviceId;
+            this.versions = versions;
+        }
+
+        public Long getDeviceId() { return deviceId; }
+        public List<String> getVersions() { return versions; }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            keyIds.clear();
+            keys.clear();
+            postings.clear();
+            versionIds.clear();
+            versions.clear();
+            deviceKeys.clear();
+
+            // devices are read in id order and in batches, so every posting list is built by
+            // appending and no single result set holds the whole fleet
+            List<Long> deviceIds = jdbcTemplate.queryForList(DEVICE_IDS, Long.class);
+            int[] current = {-1};
+            List<Integer> currentKeys = new ArrayList<>();
+            for (int from = 0; from < deviceIds.size(); from += BUILD_BATCH_SIZE) {
+                Long[] batch = deviceIds.subList(from, Math.min(from + BUILD_BATCH_SIZE, deviceIds.size())).toArray(new Long[0]);
+                jdbcTemplate.query(PACKAGES_OF_DEVICES, rs -> {
+                    int device = toIntId(rs.getLong(1));
+                    if (device != current[0]) {
+                        finishDevice(current[0], currentKeys);
+                        current[0] = device;
+                    }
+                    int keyId = keyId(PurlUtils.packageKey(rs.getString(4), rs.getString(2)));
+                    postings.get(keyId).append(device, versionId(rs.getString(3)));
+                    currentKeys.add(keyId);
+                }, (Object) batch);
+            }
+            finishDevice(current[0], currentKeys);
+
+            for (Postings p : postings) {
+                p.trim();
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Package index built: " + keys.size() + " packages, " + deviceKeys.size()
+                + " devices in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicePackagesChanged(DevicePackagesChangedEvent event) {
+        int device = toIntId(event.getDeviceId());
+        List<Object[]> rows = jdbcTemplate.query(DEVICE_PACKAGES,
+                (rs, n) -> new Object[]{rs.getString(2), rs.getString(3), rs.getString(4)}, event.getDeviceId());
+
+        lock.writeLock().lock();
+        try {
+            removeDevice(device);
+            List<Integer> currentKeys = new ArrayList<>();
+            for (Object[] row : rows) {
+                int keyId = keyId(PurlUtils.packageKey((String) row[2], (String) row[0]));
+                postings.get(keyId).insert(device, versionId((String) row[1]));
+                currentKeys.add(keyId);
+            }
+            finishDevice(device, currentKeys);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicesDeleted(DevicesDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : event.getDeviceIds()) {
+                removeDevice(toIntId(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Devices carrying the package, in device id order, optionally limited to versions in range.
+    public List<DeviceMatch> findDevices(String purlOrName, VersionRange range) {
+        String key = purlOrName.startsWith("pkg:")
+                ? PurlUtils.packageKey(purlOrName, null)
+                : PurlUtils.packageKey(null, purlOrName);
+
+        lock.readLock().lock();
+        try {
+            Integer keyId = keyIds.get(key);
+            if (keyId == null) {
+                return List.of();
+            }
+            Postings p = postings.get(keyId);
+            // each distinct version is checked against the range once
+            Map<Integer, Boolean> versionMatches = new HashMap<>();
+
+            List<DeviceMatch> matches = new ArrayList<>();
+            int i = 0;
+            while (i < p.size) {
+                int device = p.devices[i];
+                List<String> matched = null;
+                for (; i < p.size && p.devices[i] == device; i++) {
+                    int versionId = p.versions[i];
+                    boolean ok = range.matchesAll() || versionMatches.computeIfAbsent(versionId, v -> range.matches(versions.get(v)));
+                    if (ok) {
+                        if (matched == null) matched = new ArrayList<>(1);
+                        matched.add(versions.get(versionId));
+                    }
+                }
+                if (matched != null) {
+                    matched.sort(VersionComparator.INSTANCE);
+                    matches.add(new DeviceMatch((long) device, matched));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void finishDevice(int device, List<Integer> currentKeys) {
+        if (device >= 0 && !currentKeys.isEmpty()) {
+            int[] ids = new int[currentKeys.size()];
+            for (int k = 0; k < ids.length; k++) ids[k] = currentKeys.get(k);
+            deviceKeys.put(device, ids);
+        }
+        currentKeys.clear();
+    }
+
+    private void removeDevice(int device) {
+        int[] previous = deviceKeys.remove(device);
+        if (previous != null) {
+            for (int keyId : previous) {
+                postings.get(keyId).remove(device);
+            }
+        }
+    }
+
+    private int keyId(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keys.size();
+            keyIds.put(key, id);
+            keys.add(key);
+            postings.add(new Postings());
+        }
+        return id;
+    }
+
+    private int versionId(String version) {
+        String v = version != null ? version : "NOASSERTION";
+        Integer id = versionIds.get(v);
+        if (id == null) {
+            id = versions.size();
+            versionIds.put(v, id);
+            versions.add(v);
+        }
+        return id;
+    }
+
+    private static int toIntId(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Device id out of index range: " + id);
+        }
+        return (int) id;
+    }
+}
@@ -4,56 +4,208 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sbomfinder.dto.UnifiedSbomData;
 import com.sbomfinder.dto.UnifiedComponent;
 import com.sbomfinder.dto.UnifiedVulnerability;
+import com.sbomfinder.event.DevicePackagesChangedEvent;
 import com.sbomfinder.model.Device;
 import com.sbomfinder.model.SoftwarePackage;
 import com.sbomfinder.model.Vulnerability;
 
 import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.model.SbomExportArtifact;
 import org.springframework.stereotype.Service;
 import com.sbomfinder.model.Sbom;
 import com.sbomfinder.repository.SbomArchiveRepository;
+import com.sbomfinder.repository.SbomExportArtifactRepository;
 import com.sbomfinder.repository.SoftwarePackageRepository;
+import com.sbomfinder.util.SbomExportWriter;
+import org.apache.commons.codec.binary.Hex;
 import org.springframework.beans.factory.annotation.Autowired;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class SbomArchiveService {
     @Autowired
     private SoftwarePackageRepository softwarePackageRepository;
 
+    @Autowired
+    private SbomExportArtifactRepository sbomExportArtifactRepository;
+
+    @Autowired
+    private ArchiveStorageService archiveStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_EXPORT_ARTIFACT =
+            "INSERT INTO sbom_export_artifacts (archive_id, format, content_hash, content_length, gzip_content, created) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (archive_id, format) DO NOTHING";
+
     private final SbomArchiveRepository sbomArchiveRepository;
 
     public SbomArchiveService(SbomArchiveRepository sbomArchiveRepository) {
         this.sbomArchiveRepository = sbomArchiveRepository;
     }
 
-    public void saveToArchive(Sbom sbom, Device device, String version, List<SoftwarePackage> softwarePackages) {
+    public void saveToArchive(Sbom sbom, Device device, String version, List<SoftwarePackage> softwarePackages)
+            throws IOException {
+        createArchive(device, sbom, version);
+    }
+
+    // Archives the device's current packages as its latest version. The content goes to
+    // content-addressed storage; the sbom_archive row itself only keeps the metadata.
+    // One transaction: if storing fails, the previous version stays the latest. The packages are
+    // read in it too, since bulk and chunked ingests call this from threads without a session.
+    public SbomArchive createArchive(Device device, Sbom sbom, String version) throws IOException {
+        SbomArchive newArchive;
         try {
-            // Mark previous archives as not latest
-            List<SbomArchive> existingArchives = sbomArchiveRepository.findAllByDeviceId(device.getId());
-            for (SbomArchive existing : existingArchives) {
-                existing.setIsLatest(false);
-                sbomArchiveRepository.save(existing);
+            newArchive = new TransactionTemplate(transactionManager).execute(tx -> {
+                UnifiedSbomData sbomData = buildUnifiedSbomData(device, sbom);
+
+                // the newest previous archive is the delta base
+                List<SbomArchive> existingArchives = sbomArchiveRepository.findAllByDeviceId(device.getId());
+                SbomArchive previous = null;
+                for (SbomArchive existing : existingArchives) {
+                    if (previous == null || existing.getId() > previous.getId()) {
+                        previous = existing;
+                    }
+                }
+
+                SbomArchive archive = new SbomArchive();
+                archive.setDevice(device);
+                archive.setVersion(version);
+                archive.setIsLatest(true);
+                sbomArchiveRepository.save(archive);
+                try {
+                    archiveStorageService.store(archive, sbomData, previous);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                // only once the new version is stored
+                for (SbomArchive existing : existingArchives) {
+                    existing.setIsLatest(false);
+                    sbomArchiveRepository.save(existing);
+                }
+                return archive;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        storeExportArtifacts(newArchive);
+        eventPublisher.publishEvent(new DevicePackagesChangedEvent(device.getId()));
+        return newArchive;
+    }
+
+    // UnifiedSbomData JSON of an archive, whichever way it was stored
+    public String readArchiveContent(SbomArchive archive) throws IOException {
+        return archiveStorageService.loadJson(archive);
+    }
+
+    // Renders every export format for a freshly written archive. Failures are only logged:
+    // getOrCreateExportArtifact renders a missing artifact on its first download.
+    public void storeExportArtifacts(SbomArchive archive) {
+        for (String format : List.of(SbomExportWriter.FORMAT_CYCLONEDX, SbomExportWriter.FORMAT_SPDX)) {
+            try {
+                getOrCreateExportArtifact(archive, format);
+            } catch (Exception e) {
+                System.err.println("Failed to pre-render " + format + " export for archive " + archive.getId() + ": " + e.getMessage());
             }
+        }
+    }
+
+    public SbomExportArtifact getOrCreateExportArtifact(SbomArchive archive, String format) throws IOException {
+        String normalizedFormat = format.toLowerCase(Locale.ROOT);
+        Optional<SbomExportArtifact> existing = sbomExportArtifactRepository.findByArchiveIdAndFormat(archive.getId(), normalizedFormat);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        // another request may render the same artifact concurrently; the first insert wins, and a
+        // lost race does not abort the caller's transaction
+        SbomExportArtifact artifact = renderExportArtifact(archive, normalizedFormat);
+        jdbcTemplate.update(INSERT_EXPORT_ARTIFACT, archive.getId(), artifact.getFormat(), artifact.getContentHash(),
+                artifact.getContentLength(), artifact.getGzipContent(), Timestamp.valueOf(artifact.getCreated()));
+        return sbomExportArtifactRepository.findByArchiveIdAndFormat(archive.getId(), normalizedFormat)
+                .orElseThrow(() -> new IllegalStateException("Export artifact of archive " + archive.getId() + " was not stored"));
+    }
+
+    private SbomExportArtifact renderExportArtifact(SbomArchive archive, String format) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        long[] rawLength = {0};
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+             DigestOutputStream out = new DigestOutputStream(new CountingOutputStream(gzip, rawLength), digest)) {
+            SbomExportWriter.write(format, readArchiveContent(archive), out, true);
+        }
+
+        return new SbomExportArtifact(archive, format, Hex.encodeHexString(digest.digest()), rawLength[0], compressed.toByteArray());
+    }
 
-            // Generate JSON content
-            String jsonContent = generateJsonSbomContent(device, sbom);
-
-            // Save new archive
-            SbomArchive newArchive = new SbomArchive();
-            newArchive.setDevice(device);
-            newArchive.setVersion(version);
-            newArchive.setSbomContent(jsonContent);
-            newArchive.setIsLatest(true);
-            sbomArchiveRepository.save(newArchive);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private final long[] count;
+
+        CountingOutputStream(OutputStream delegate, long[] count) {
+            this.delegate = delegate;
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count[0]++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count[0] += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
         }
     }
 
     public String generateJsonSbomContent(Device device, Sbom sbom) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(buildUnifiedSbomData(device, sbom));
+    }
+
+    private UnifiedSbomData buildUnifiedSbomData(Device device, Sbom sbom) {
         List<SoftwarePackage> packages = softwarePackageRepository.findAllByDeviceIdWithSupplier(device.getId());
         UnifiedSbomData sbomData = new UnifiedSbomData();
         sbomData.setDeviceName(device.getDeviceName());
@@ -84,81 +236,6 @@ public class SbomArchiveService {
             }
         }
         sbomData.setVulnerabilities(vulnerabilities);
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(sbomData);
-    }
-
-    public String generateCycloneDxJson(UnifiedSbomData sbomData) throws Exception {
-        Map<String, Object> sbom = new LinkedHashMap<>();
-        sbom.put("bomFormat", "CycloneDX");
-        sbom.put("specVersion", "1.4");
-        sbom.put("version", 1);
-
-        List<Map<String, Object>> components = sbomData.getComponents().stream()
-                .map(comp -> {
-                    Map<String, Object> map = new LinkedHashMap<>();
-                    map.put("type", "library");
-                    map.put("name", comp.getName());
-                    map.put("version", comp.getVersion());
-                    map.put("supplier", comp.getSupplier() != null ? comp.getSupplier() : "NOASSERTION"); // ✅ Added this line
-                    map.put("purl", comp.getPurl() != null ? comp.getPurl() : "NOASSERTION");
-                    return map;
-                })
-                .collect(Collectors.toList());
-
-        sbom.put("components", components);
-
-        if (sbomData.getVulnerabilities() != null && !sbomData.getVulnerabilities().isEmpty()) {
-            List<Map<String, Object>> vulnerabilities = new ArrayList<>();
-
-            for (UnifiedVulnerability vuln : sbomData.getVulnerabilities()) {
-                Map<String, Object> vulnMap = new LinkedHashMap<>();
-                vulnMap.put("id", vuln.getCveId());
-                vulnMap.put("source", Map.of("name", "NVD"));
-
-                Map<String, Object> rating = new LinkedHashMap<>();
-                rating.put("score", vuln.getCvssScore() != null ? vuln.getCvssScore() : 0.0);
-                rating.put("severity", vuln.getSeverity() != null ? vuln.getSeverity() : "UNKNOWN");
-                rating.put("method", "CVSSv3");
-                rating.put("vector", "NOASSERTION");
-
-                vulnMap.put("ratings", List.of(rating));
-                vulnMap.put("affects", vuln.getAffectedComponents().stream()
-                        .map(ref -> Map.of("ref", ref))
-                        .collect(Collectors.toList()));
-
-                vulnerabilities.add(vulnMap);
-            }
-
-            sbom.put("vulnerabilities", vulnerabilities);
-        }
-
-        return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(sbom);
+        return sbomData;
     }
-
-
-    public String generateSpdxJson(UnifiedSbomData sbomData) throws Exception {
-        Map<String, Object> sbom = new LinkedHashMap<>();
-        sbom.put("spdxVersion", "SPDX-2.2");
-        sbom.put("SPDXID", "SPDXRef-DOCUMENT");
-        sbom.put("name", sbomData.getDeviceName());
-
-        List<Map<String, Object>> packages = sbomData.getComponents().stream()
-                .map(pkg -> {
-                    Map<String, Object> map = new LinkedHashMap<>();
-                    map.put("SPDXID", "SPDXRef-Package-" + pkg.getName().replaceAll("[^a-zA-Z0-9]", ""));
-                    map.put("name", pkg.getName());
-                    map.put("supplier", pkg.getSupplier() != null ? pkg.getSupplier() : "NOASSERTION"); // ✅ Added this line
-                    map.put("versionInfo", pkg.getVersion() != null ? pkg.getVersion() : "NOASSERTION");
-                    map.put("downloadLocation", "NOASSERTION");
-                    return map;
-                })
-                .collect(Collectors.toList());
-
-        sbom.put("packages", packages);
-
-        return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(sbom);
-    }
-
 }
@@ -7,6 +7,8 @@ public class SbomGenerationResult {
     private final String version;
     private final Device device;
     private Sbom sbom;
+    private int dependencyFiles;
+    private int parsedFiles;
 
     public SbomGenerationResult(String version, Device device) {
         this.version = version;
@@ -26,4 +28,18 @@ public class SbomGenerationResult {
     public Device getDevice() {
         return device;
     }
+
+    public int getDependencyFiles() {
+        return dependencyFiles;
+    }
+
+    // files re-parsed; the others were unchanged since the previous version and carried over
+    public int getParsedFiles() {
+        return parsedFiles;
+    }
+
+    public void setFileCounts(int dependencyFiles, int parsedFiles) {
+        this.dependencyFiles = dependencyFiles;
+        this.parsedFiles = parsedFiles;
+    }
 }
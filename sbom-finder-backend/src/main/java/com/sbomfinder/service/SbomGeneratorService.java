@@ -12,12 +12,15 @@ import com.sbomfinder.repository.DeviceRepository;
 import com.sbomfinder.service.DigitalFootprintService;
 import com.sbomfinder.repository.SbomRepository;
 import com.sbomfinder.repository.SoftwarePackageRepository;
+import com.sbomfinder.util.ArchiveUtils;
 import com.sbomfinder.util.GitHubReleaseFetcher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import com.sbomfinder.model.SbomArchive;
-import com.sbomfinder.repository.SbomArchiveRepository;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.sbomfinder.repository.ExternalReferenceRepository;
 import com.sbomfinder.repository.SupplierRepository;
 
@@ -37,6 +40,7 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -56,7 +60,7 @@ public class SbomGeneratorService {
     private SbomService sbomService;
 
     @Autowired
-    private SbomArchiveRepository sbomArchiveRepository;
+    private ComponentService componentService;
 
     @Autowired
     private ExternalReferenceRepository externalReferenceRepository;
@@ -73,6 +77,27 @@ public class SbomGeneratorService {
     @Autowired
     private SupplierRepository supplierRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // new versions of a device only re-parse the dependency files that changed
+    @Value("${sbom.ingest.incremental:true}")
+    private boolean incrementalDefault;
+
+    private static final String SOURCE_FILES =
+            "SELECT path, content_hash FROM sbom_source_files WHERE sbom_id = ?";
+    private static final String INSERT_SOURCE_FILE =
+            "INSERT INTO sbom_source_files (sbom_id, path, content_hash) VALUES (?, ?, ?)";
+    private static final String PREVIOUS_PACKAGES =
+            "SELECT source_file, name, supplier_id, component_id FROM software_packages WHERE sbom_id = ?";
+    private static final String CARRY_OVER_PACKAGES =
+            "UPDATE software_packages SET sbom_id = ? WHERE sbom_id = ? AND source_file = ANY(?)";
+    private static final String DELETE_SUPERSEDED_PACKAGES =
+            "DELETE FROM software_packages WHERE device_id = ? AND sbom_id <> ?";
+
     public SbomGenerationResult generateSbomAndDeviceFromDirectory(
             Path extractedDir,
             String deviceName,
@@ -83,6 +108,29 @@ public class SbomGeneratorService {
             String kernelVersion,
             String sourceType
     ) throws IOException, NoSuchAlgorithmException {
+        return generateSbomAndDeviceFromDirectory(extractedDir, deviceName, category, manufacturer,
+                operatingSystem, osVersion, kernelVersion, sourceType, null, null);
+    }
+
+    // incremental: null for the sbom.ingest.incremental default. An incremental upload of a new
+    // version compares per-file hashes with the device's current SBOM, moves the packages of
+    // unchanged files to the new SBOM (their components, and so their vulnerability links, are
+    // shared), re-parses only the changed and added files and drops the rest of the old rows; a
+    // full upload drops them all. File paths are taken below a single top-level directory, so
+    // repo-1.2.0/ and repo-1.3.0/ compare file by file.
+    // cache: supplier and vulnerability lookups shared with other devices of a bulk ingest, or null.
+    public SbomGenerationResult generateSbomAndDeviceFromDirectory(
+            Path extractedDir,
+            String deviceName,
+            String category,
+            String manufacturer,
+            String operatingSystem,
+            String osVersion,
+            String kernelVersion,
+            String sourceType,
+            Boolean incremental,
+            IngestLookupCache cache
+    ) throws IOException, NoSuchAlgorithmException {
 
         // 1. Find supported dependency files
         List<Path> dependencyFiles = Files.walk(extractedDir)
@@ -136,9 +184,14 @@ public class SbomGeneratorService {
             version = "Unknown Release";
         }
 
+        Path contentRoot = digitalFootprintService.contentRoot(extractedDir);
+        Map<String, String> fileHashes = digitalFootprintService.hashFiles(contentRoot, dependencyFiles);
+
         // 5. Get or create Device
         Optional<Device> existingDevice = deviceRepository.findByDeviceNameAndManufacturerAndCategory(deviceName, manufacturer, category);
         Device device;
+        Sbom previousSbom = null;
+        Map<String, String> previousHashes = Map.of();
         if (existingDevice.isPresent()) {
             device = existingDevice.get();
 
@@ -147,6 +200,16 @@ public class SbomGeneratorService {
             if (existingVersioned.isPresent()) {
                 throw new IllegalStateException("An SBOM already exists for this device and version: " + version);
             }
+
+            // SBOMs ingested before per-file hashes were stored have none; those are re-parsed fully
+            previousSbom = device.getSbom();
+            if (previousSbom != null && (incremental != null ? incremental : incrementalDefault)) {
+                Map<String, String> hashes = new HashMap<>();
+                jdbcTemplate.query(SOURCE_FILES, rs -> {
+                    hashes.put(rs.getString(1), rs.getString(2));
+                }, previousSbom.getId());
+                previousHashes = hashes;
+            }
         } else {
             String footprint = String.join("\n\n", digitalFootprintService.generateDigitalFootprints(dependencyFiles));
 
@@ -173,31 +236,168 @@ public class SbomGeneratorService {
         device.setSbom(sbom);
         deviceRepository.save(device);
 
-        // 7. Extract packages from all dependency files
-        List<SoftwarePackage> allPackages = new ArrayList<>();
+        // 7. Extract packages from the dependency files; with a previous version, unchanged files
+        // are carried over, and suppliers and components it already had are reused
+        boolean incrementalUpload = !previousHashes.isEmpty();
+        Set<String> unchangedFiles = new LinkedHashSet<>();
+        Map<String, Long> knownSuppliers = new HashMap<>();
+        Set<Long> knownComponents = new HashSet<>();
+        if (incrementalUpload) {
+            for (Map.Entry<String, String> file : fileHashes.entrySet()) {
+                if (file.getValue().equals(previousHashes.get(file.getKey()))) {
+                    unchangedFiles.add(file.getKey());
+                }
+            }
+            jdbcTemplate.query(PREVIOUS_PACKAGES, rs -> {
+                String sourceFile = rs.getString(1);
+                long supplierId = rs.getLong(3);
+                if (sourceFile != null && !rs.wasNull()) {
+                    knownSuppliers.putIfAbsent(supplierKey(determineEcosystemFromFile(fileName(sourceFile)), rs.getString(2)), supplierId);
+                }
+                long componentId = rs.getLong(4);
+                if (!rs.wasNull()) {
+                    knownComponents.add(componentId);
+                }
+            }, previousSbom.getId());
+        }
+
+        int parsedFiles = 0;
         for (Path depFile : dependencyFiles) {
+            String sourceFile = digitalFootprintService.sourcePath(contentRoot, depFile);
+            if (incrementalUpload && unchangedFiles.contains(sourceFile)) {
+                continue;
+            }
             List<SoftwarePackage> extractedPackages = sbomService.extractPackagesFromDependencyFile(depFile, sbom, device);
             String ecosystem = determineEcosystemFromFile(depFile.getFileName().toString());
 
             for (SoftwarePackage pkg : extractedPackages) {
-                softwarePackageRepository.save(pkg);
-                sbomService.checkAndSaveVulnerabilities(pkg);
-
-                String supplierName = inferSupplier(pkg.getName(), pkg.getVersion(), ecosystem);
-                Supplier supplier = getOrCreateSupplier(supplierName);
-                pkg.setSupplier(supplier);
-                softwarePackageRepository.save(pkg);
-                sbomService.checkAndSaveVulnerabilities(pkg);
+                pkg.setSourceFile(sourceFile);
+                String key = supplierKey(ecosystem, pkg.getName());
+                Long supplierId = knownSuppliers.get(key);
+                if (supplierId == null && cache != null) {
+                    supplierId = cache.supplierId(key, () -> getOrCreateSupplier(
+                            inferSupplier(pkg.getName(), pkg.getVersion(), ecosystem)).getId());
+                    knownSuppliers.put(key, supplierId);
+                }
+                if (supplierId != null) {
+                    pkg.setSupplier(supplierRepository.getReferenceById(supplierId));
+                } else {
+                    String supplierName = inferSupplier(pkg.getName(), pkg.getVersion(), ecosystem);
+                    Supplier supplier = getOrCreateSupplier(supplierName);
+                    pkg.setSupplier(supplier);
+                    knownSuppliers.put(key, supplier.getId());
+                }
             }
+            // saves the packages and matches the whole file in one pass
+            sbomService.checkAndSaveVulnerabilities(extractedPackages, knownComponents, cache);
+            parsedFiles++;
+        }
 
-            allPackages.addAll(extractedPackages);
+        // the new version replaces the device's packages, whether or not the upload was incremental
+        if (existingDevice.isPresent()) {
+            Long previousSbomId = incrementalUpload ? previousSbom.getId() : null;
+            Long newSbomId = sbom.getId();
+            Long deviceId = device.getId();
+            new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                if (previousSbomId != null) {
+                    jdbcTemplate.update(CARRY_OVER_PACKAGES, newSbomId, previousSbomId, unchangedFiles.toArray(new String[0]));
+                }
+                jdbcTemplate.update(DELETE_SUPERSEDED_PACKAGES, deviceId, newSbomId);
+            });
+        }
+
+        Long sbomId = sbom.getId();
+        List<Object[]> sourceFileRows = new ArrayList<>(fileHashes.size());
+        for (Map.Entry<String, String> file : fileHashes.entrySet()) {
+            sourceFileRows.add(new Object[]{sbomId, file.getKey(), file.getValue()});
         }
+        jdbcTemplate.batchUpdate(INSERT_SOURCE_FILE, sourceFileRows);
+        System.out.println("Ingested " + dependencyFiles.size() + " dependency files for device " + device.getId()
+                + ": " + parsedFiles + " parsed, " + (dependencyFiles.size() - parsedFiles) + " carried over");
 
         //save and extract external references
         List<String> extractedLinks = externalReferenceService.extractExternalReferences(extractedDir);
         externalReferenceService.saveExternalReferences(sbom, extractedLinks);
 
-        return new SbomGenerationResult(version, device);
+        SbomGenerationResult result = new SbomGenerationResult(version, device);
+        result.setFileCounts(dependencyFiles.size(), parsedFiles);
+        return result;
+    }
+
+    private static String supplierKey(String ecosystem, String packageName) {
+        return ecosystem + '\u0000' + packageName;
+    }
+
+    private static String fileName(String sourceFile) {
+        return sourceFile.substring(sourceFile.lastIndexOf('/') + 1);
+    }
+
+    // Extracts an uploaded source archive (.zip, .tar, .tar.gz), generates the SBOM and device
+    // from it and archives the device's packages under the new version. Shared by the single
+    // request upload and the chunked one (ChunkedUploadService); the extracted tree is removed
+    // afterwards.
+    public SbomGenerationResult generateFromSourceArchive(
+            Path archiveFile,
+            String fileName,
+            String deviceName,
+            String category,
+            String manufacturer,
+            String operatingSystem,
+            String osVersion,
+            String kernelVersion,
+            Boolean incremental,
+            IngestLookupCache cache
+    ) throws IOException, NoSuchAlgorithmException {
+        String filename = fileName.toLowerCase();
+        Path extractedDir = Files.createTempDirectory("extracted-source");
+        try {
+            if (filename.endsWith(".zip")) {
+                ArchiveUtils.unzip(archiveFile.toAbsolutePath().toString(), extractedDir.toString());
+            } else if (filename.endsWith(".tar.gz") || filename.endsWith(".tgz")) {
+                ArchiveUtils.extractTarGz(archiveFile.toAbsolutePath().toString(), extractedDir.toString());
+            } else if (filename.endsWith(".tar")) {
+                ArchiveUtils.extractTar(archiveFile.toAbsolutePath().toString(), extractedDir.toString());
+            } else {
+                throw new IllegalArgumentException("Unsupported file type: only .zip, .tar, .tar.gz supported");
+            }
+
+            SbomGenerationResult result = generateSbomAndDeviceFromDirectory(
+                    extractedDir,
+                    deviceName,
+                    category != null ? category : "Unknown",
+                    manufacturer != null ? manufacturer : "Unknown",
+                    operatingSystem != null ? operatingSystem : "Unknown OS",
+                    osVersion != null ? osVersion : "Unknown Version",
+                    kernelVersion != null ? kernelVersion : "Unknown Kernel",
+                    "Source Upload",
+                    incremental,
+                    cache
+            );
+
+            //save SBOM in Archive
+            Device archDevice = deviceRepository.findById(result.getDevice().getId())
+                    .orElseThrow(() -> new IllegalStateException("Device disappeared during upload: " + result.getDevice().getId()));
+            List<SoftwarePackage> archSoftwarePackages = softwarePackageRepository.findByDeviceId(archDevice.getId());
+            sbomArchiveService.saveToArchive(result.getDevice().getSbom(), archDevice, result.getVersion(), archSoftwarePackages);
+            // external references are already extracted and saved by generateSbomAndDeviceFromDirectory
+            return result;
+        } finally {
+            deleteTree(extractedDir);
+        }
+    }
+
+    private static void deleteTree(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("Could not delete " + path + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not delete " + root + ": " + e.getMessage());
+        }
     }
 
     private String determineEcosystemFromFile(String fileName) {
@@ -248,14 +448,7 @@ public class SbomGeneratorService {
     public void uploadUpdatedSbom(Device device, Sbom newSbom, List<SoftwarePackage> newPackages) {
         Long deviceId = device.getId();
 
-        // 1. Mark existing SBOM archives as not latest
-        List<SbomArchive> existingArchives = sbomArchiveRepository.findAllByDeviceId(deviceId);
-        for (SbomArchive archive : existingArchives) {
-            archive.setIsLatest(false);
-            sbomArchiveRepository.save(archive);
-        }
-
-        // 2. Delete old SBOM and associated data
+        // 1. Delete old SBOM and associated data
         Optional<Sbom> existingSbomOpt = sbomRepository.findByDeviceId(deviceId);
         if (existingSbomOpt.isPresent()) {
             Sbom oldSbom = existingSbomOpt.get();
@@ -264,7 +457,7 @@ public class SbomGeneratorService {
             sbomRepository.delete(oldSbom);
         }
 
-        // 3. Save the new SBOM and its packages
+        // 2. Save the new SBOM and its packages
         newSbom.setDevice(device);
         Sbom savedSbom = sbomRepository.save(newSbom);
 
@@ -272,19 +465,14 @@ public class SbomGeneratorService {
             pkg.setDevice(device);
             pkg.setSbom(savedSbom);
         }
+        componentService.assignComponents(newPackages);
         softwarePackageRepository.saveAll(newPackages);
 
-        // 4. Archive the new SBOM
+        // 3. Archive the new SBOM (previous versions are marked as not latest)
         try {
-            String jsonContent = sbomArchiveService.generateJsonSbomContent(device, savedSbom);
-            SbomArchive newArchive = new SbomArchive();
-            newArchive.setDevice(device);
-            newArchive.setVersion(savedSbom.getVersion());
-            newArchive.setSbomContent(jsonContent);
-            newArchive.setIsLatest(true);
-            sbomArchiveRepository.save(newArchive);
+            sbomArchiveService.createArchive(device, savedSbom, savedSbom.getVersion());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to generate SBOM JSON content", e);
+            throw new RuntimeException("Failed to archive SBOM content", e);
         }
     }
 
@@ -3,20 +3,27 @@ package com.sbomfinder.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sbomfinder.dto.NormalizedSbomDataDTO;
+import com.sbomfinder.event.DeviceVulnerabilitiesChangedEvent;
+import com.sbomfinder.model.Component;
 import com.sbomfinder.model.Device;
 import com.sbomfinder.model.ExternalReference;
 import com.sbomfinder.model.Sbom;
 import com.sbomfinder.model.SoftwarePackage;
 import com.sbomfinder.model.Vulnerability;
+import com.sbomfinder.repository.ComponentRepository;
 import com.sbomfinder.repository.DeviceRepository;
 import com.sbomfinder.repository.ExternalReferenceRepository;
 import com.sbomfinder.repository.SbomRepository;
 import com.sbomfinder.repository.SoftwarePackageRepository;
 import com.sbomfinder.repository.VulnerabilityRepository;
+import com.sbomfinder.util.PackageUrl;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
@@ -48,8 +55,11 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import java.util.Optional;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Collections;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import com.sbomfinder.util.PackageUrl;
 import com.sbomfinder.util.Pair;
 import com.sbomfinder.util.PackageParser;
 
@@ -62,6 +72,30 @@ public class SbomService {
     private SoftwarePackageRepository softwarePackageRepository;
     @Autowired
     private SbomRepository sbomRepository;
+    @Autowired
+    private LocalAdvisoryService localAdvisoryService;
+    @Autowired
+    private ComponentRepository componentRepository;
+    @Autowired
+    private ComponentService componentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final String SCANNED_COMPONENTS =
+            "SELECT c.id FROM components c JOIN vulnerability_scan_state s " +
+            "ON s.purl = c.purl AND s.name = c.name AND s.version = c.version WHERE c.id = ANY (?)";
+    private static final String DEVICES_OF_COMPONENTS =
+            "SELECT DISTINCT device_id FROM software_packages WHERE component_id = ANY (?) AND device_id IS NOT NULL";
+    // the next re-scan run picks the coordinate up
+    private static final String RESCAN_NOW =
+            "INSERT INTO vulnerability_scan_state (purl, name, version, next_check_at) VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (purl, name, version) DO UPDATE SET next_check_at = now()";
+
+    // osv-api, local (imported advisories only) or auto (local once something was imported)
+    @Value("${sbom.vulnerabilities.source:auto}")
+    private String vulnerabilitySource;
 
     public String generateHash(String content) {
         return DigestUtils.sha256Hex(content);
@@ -70,6 +104,18 @@ public class SbomService {
 
 
     public List<Vulnerability> fetchVulnerabilitiesFromOsv(SoftwarePackage pkg) {
+        try {
+            return queryOsv(pkg);
+        } catch (Exception e) {
+            System.err.println("Error calling OSV API for " + extractNameFromPurl(pkg.getPurl(), pkg.getName())
+                    + "@" + pkg.getVersion() + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    // Like fetchVulnerabilitiesFromOsv, but a failed call throws instead of looking like a
+    // package without vulnerabilities; re-scans must not drop links on a network error.
+    public List<Vulnerability> queryOsv(SoftwarePackage pkg) {
         String name = extractNameFromPurl(pkg.getPurl(), pkg.getName());
         String version = pkg.getVersion();
         String ecosystem = extractEcosystemFromPurl(pkg.getPurl());
@@ -87,64 +133,70 @@ public class SbomService {
 
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(payload, headers);
 
-        try {
-            ResponseEntity<JsonNode> response = restTemplate.postForEntity(
-                    "https://api.osv.dev/v1/query",
-                    request,
-                    JsonNode.class
-            );
-
-            List<Vulnerability> vulnerabilities = new ArrayList<>();
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode vulns = response.getBody().path("vulns");
-                for (JsonNode vuln : vulns) {
-                    String id = vuln.path("id").asText();
-                    String summary = vuln.path("summary").asText("No description available");
-
-                    // Now, separately extract severity and score properly
-                    String severityText = "Unknown";
-                    Double score = 0.0;
-                    JsonNode severityArray = vuln.path("severity");
-                    if (severityArray.isArray() && severityArray.size() > 0) {
-                        JsonNode severityNode = severityArray.get(0);
-                        severityText = severityNode.path("type").asText("");
-                        String scoreStr = severityNode.path("score").asText("");
-                        if (!scoreStr.isEmpty()) {
-                            try {
-                                score = Double.parseDouble(scoreStr);
-                            } catch (NumberFormatException ignored) {}
-                        }
+        ResponseEntity<JsonNode> response = restTemplate.postForEntity(
+                "https://api.osv.dev/v1/query",
+                request,
+                JsonNode.class
+        );
+
+        List<Vulnerability> vulnerabilities = new ArrayList<>();
+
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            JsonNode vulns = response.getBody().path("vulns");
+            for (JsonNode vuln : vulns) {
+                String id = vuln.path("id").asText();
+                String summary = vuln.path("summary").asText("No description available");
+
+                // Now, separately extract severity and score properly
+                String severityText = "Unknown";
+                Double score = 0.0;
+                JsonNode severityArray = vuln.path("severity");
+                if (severityArray.isArray() && severityArray.size() > 0) {
+                    JsonNode severityNode = severityArray.get(0);
+                    severityText = severityNode.path("type").asText("");
+                    String scoreStr = severityNode.path("score").asText("");
+                    if (!scoreStr.isEmpty()) {
+                        try {
+                            score = Double.parseDouble(scoreStr);
+                        } catch (NumberFormatException ignored) {}
                     }
+                }
 
-                    String sourceUrl = "";
-                    if (vuln.has("references")) {
-                        for (JsonNode ref : vuln.path("references")) {
-                            if (ref.has("url")) {
-                                sourceUrl = ref.path("url").asText();
-                                break;
-                            }
+                String sourceUrl = "";
+                if (vuln.has("references")) {
+                    for (JsonNode ref : vuln.path("references")) {
+                        if (ref.has("url")) {
+                            sourceUrl = ref.path("url").asText();
+                            break;
                         }
                     }
+                }
 
-                    Vulnerability v = new Vulnerability();
-                    v.setCveId(id);
-                    v.setDescription(summary);
-                    v.setSeverity(severityText);
-                    v.setSourceUrl(sourceUrl);
-                    v.setCvssScore(score);
-                    v.setSeverityLevel(calculateSeverityLevel(score));
+                Vulnerability v = new Vulnerability();
+                v.setCveId(id);
+                v.setDescription(summary);
+                v.setSeverity(severityText);
+                v.setSourceUrl(sourceUrl);
+                v.setCvssScore(score);
+                v.setSeverityLevel(calculateSeverityLevel(score));
 
-                    vulnerabilities.add(v);
-                }
+                vulnerabilities.add(v);
             }
+        }
 
-            return vulnerabilities;
+        return vulnerabilities;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error calling OSV API for " + name + "@" + version + ": " + e.getMessage());
-            return Collections.emptyList();
+    public List<Vulnerability> fetchVulnerabilities(SoftwarePackage pkg) {
+        if (useLocalAdvisories()) {
+            return localAdvisoryService.findVulnerabilities(pkg.getPurl(), pkg.getName(), pkg.getVersion());
         }
+        return fetchVulnerabilitiesFromOsv(pkg);
+    }
+
+    public boolean useLocalAdvisories() {
+        return "local".equalsIgnoreCase(vulnerabilitySource)
+                || ("auto".equalsIgnoreCase(vulnerabilitySource) && localAdvisoryService.hasAdvisories());
     }
 
     private String calculateSeverityLevel(Double score) {
@@ -158,56 +210,175 @@ public class SbomService {
 
 
     public void checkAndSaveVulnerabilities(SoftwarePackage softwarePackage) {
-        if (softwarePackage.getId() == null) {
-            softwarePackage = softwarePackageRepository.save(softwarePackage);
+        checkAndSaveVulnerabilities(List.of(softwarePackage));
+    }
+
+    // All packages of one dependency file or SBOM at once. The packages are linked to their
+    // shared components and each distinct coordinate is looked up once; the vulnerabilities are
+    // stored on the component, so every device with that coordinate sees them. With local
+    // advisories the whole list is matched in one pass.
+    public void checkAndSaveVulnerabilities(List<SoftwarePackage> packages) {
+        checkAndSaveVulnerabilities(packages, Set.of());
+    }
+
+    // Same, but components in currentComponentIds are not looked up again: their links are
+    // already stored (and kept fresh by VulnerabilityRescanService), e.g. the components the
+    // previous version of the device had.
+    public void checkAndSaveVulnerabilities(List<SoftwarePackage> packages, Set<Long> currentComponentIds) {
+        checkAndSaveVulnerabilities(packages, currentComponentIds, null);
+    }
+
+    // Same, with lookups shared across the devices of a bulk ingest; cache may be null.
+    // Components that already have re-scan state are skipped too (VulnerabilityRescanService
+    // keeps their links fresh), and a failed OSV call leaves the stored links as they are and
+    // makes the coordinate due for a re-scan instead. Devices sharing a component whose links
+    // changed are notified.
+    public void checkAndSaveVulnerabilities(List<SoftwarePackage> packages, Set<Long> currentComponentIds,
+                                            IngestLookupCache cache) {
+        if (packages.isEmpty()) {
+            return;
+        }
+        componentService.assignComponents(packages);
+        softwarePackageRepository.saveAll(packages);
+
+        Map<Long, SoftwarePackage> candidates = new LinkedHashMap<>();
+        for (SoftwarePackage pkg : packages) {
+            Long componentId = pkg.getComponent().getId();
+            if (!currentComponentIds.contains(componentId)) {
+                candidates.putIfAbsent(componentId, pkg);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
         }
+        candidates.keySet().removeAll(jdbcTemplate.queryForList(SCANNED_COMPONENTS, Long.class,
+                (Object) candidates.keySet().toArray(new Long[0])));
+
+        // Within a bulk ingest the first device to claim a component looks it up; the others
+        // wait for it after doing their own lookups, and take over if it failed.
+        Set<Long> changedComponents = new HashSet<>();
+        List<Long> pending = new ArrayList<>(candidates.keySet());
+        while (!pending.isEmpty()) {
+            List<SoftwarePackage> owned = new ArrayList<>();
+            Map<Long, CompletableFuture<Boolean>> claimedElsewhere = new LinkedHashMap<>();
+            for (Long componentId : pending) {
+                CompletableFuture<Boolean> claim = cache != null ? cache.claimComponent(componentId) : null;
+                if (claim == null) {
+                    owned.add(candidates.get(componentId));
+                } else {
+                    claimedElsewhere.put(componentId, claim);
+                }
+            }
+
+            Set<Long> linked = Set.of();
+            try {
+                linked = lookupAndLink(owned, cache, changedComponents);
+            } finally {
+                if (cache != null) {
+                    for (SoftwarePackage pkg : owned) {
+                        Long componentId = pkg.getComponent().getId();
+                        cache.releaseComponent(componentId, linked.contains(componentId));
+                    }
+                }
+            }
 
-        List<Vulnerability> fetchedVulns = fetchVulnerabilitiesFromOsv(softwarePackage);
+            pending = new ArrayList<>();
+            for (Map.Entry<Long, CompletableFuture<Boolean>> entry : claimedElsewhere.entrySet()) {
+                if (!cache.awaitComponent(entry.getValue())) {
+                    pending.add(entry.getKey());
+                }
+            }
+        }
+
+        if (!changedComponents.isEmpty()) {
+            List<Long> devices = jdbcTemplate.queryForList(DEVICES_OF_COMPONENTS, Long.class,
+                    (Object) changedComponents.toArray(new Long[0]));
+            if (!devices.isEmpty()) {
+                eventPublisher.publishEvent(new DeviceVulnerabilitiesChangedEvent(devices));
+            }
+        }
+    }
+
+    // Looks up one package per component and stores the component's links. Returns the
+    // components whose links are now stored; adds those whose links changed to changedComponents.
+    private Set<Long> lookupAndLink(List<SoftwarePackage> lookups, IngestLookupCache cache,
+                                    Set<Long> changedComponents) {
+        if (lookups.isEmpty()) {
+            return Set.of();
+        }
+        List<List<Vulnerability>> fetched;
+        if (useLocalAdvisories()) {
+            fetched = localAdvisoryService.findVulnerabilities(lookups);
+        } else {
+            fetched = new ArrayList<>(lookups.size());
+            for (SoftwarePackage pkg : lookups) {
+                try {
+                    fetched.add(queryOsv(pkg));
+                } catch (Exception e) {
+                    System.err.println("Error calling OSV API for " + extractNameFromPurl(pkg.getPurl(), pkg.getName())
+                            + "@" + pkg.getVersion() + ", keeping stored links: " + e.getMessage());
+                    Component component = pkg.getComponent();
+                    jdbcTemplate.update(RESCAN_NOW, component.getPurl(), component.getName(), component.getVersion());
+                    fetched.add(null);
+                }
+            }
+        }
 
-        Set<Vulnerability> linkedVulns = new HashSet<>();
-        for (Vulnerability v : fetchedVulns) {
-            Vulnerability existing = vulnerabilityRepository.findByCveId(v.getCveId())
-                    .orElseGet(() -> vulnerabilityRepository.save(v));
-            linkedVulns.add(existing);
+        Map<String, Vulnerability> byCveId = new HashMap<>();
+        List<Component> components = new ArrayList<>(lookups.size());
+        Set<Long> linked = new HashSet<>();
+        for (int i = 0; i < lookups.size(); i++) {
+            if (fetched.get(i) == null) {
+                continue;
+            }
+            Set<Vulnerability> linkedVulns = new HashSet<>();
+            for (Vulnerability v : fetched.get(i)) {
+                Vulnerability existing = byCveId.computeIfAbsent(v.getCveId(), id -> cache != null
+                        ? cache.storedVulnerability(id, () -> findOrSaveVulnerability(v))
+                        : findOrSaveVulnerability(v));
+                linkedVulns.add(existing);
+            }
+            Component component = lookups.get(i).getComponent();
+            if (!cveIds(component.getVulnerabilities()).equals(cveIds(linkedVulns))) {
+                component.setVulnerabilities(linkedVulns);
+                components.add(component);
+                changedComponents.add(component.getId());
+            }
+            linked.add(component.getId());
         }
+        componentRepository.saveAll(components);
+        return linked;
+    }
 
-        // Link and save again
-        softwarePackage.setVulnerabilities(linkedVulns);
-        softwarePackageRepository.save(softwarePackage);
+    private static Set<String> cveIds(Set<Vulnerability> vulnerabilities) {
+        Set<String> ids = new HashSet<>();
+        if (vulnerabilities != null) {
+            for (Vulnerability v : vulnerabilities) {
+                ids.add(v.getCveId());
+            }
+        }
+        return ids;
+    }
 
+    private Vulnerability findOrSaveVulnerability(Vulnerability v) {
+        return vulnerabilityRepository.findByCveId(v.getCveId()).orElseGet(() -> vulnerabilityRepository.save(v));
     }
 
     private String extractNameFromPurl(String purl, String fallbackName) {
-        if (purl != null && purl.contains("/")) {
-            return purl.substring(purl.lastIndexOf("/") + 1).split("@")[0];
-        }
-        return fallbackName;
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        return parsed != null ? parsed.osvName() : fallbackName;
     }
 
     private String extractEcosystemFromPurl(String purl) {
-        if (purl == null || purl.isEmpty()) return "Unknown";
-        try {
-            if (purl.startsWith("pkg:")) {
-                String purlBody = purl.substring(4);
-                String[] parts = purlBody.split("/");
-                String type = parts[0];
-                switch (type.toLowerCase()) {
-                    case "pypi": return "PyPI";
-                    case "npm": return "npm";
-                    case "maven": return "Maven";
-                    case "golang": return "Go";
-                    case "nuget": return "NuGet";
-                    case "composer": return "Composer";
-                    case "cargo": return "crates.io";
-                    case "rubygems": return "RubyGems";
-                    default: return type;
-                }
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        if (parsed == null) {
+            if (purl != null && !purl.isEmpty()) {
+                System.err.println("Error parsing purl: " + purl);
             }
-        } catch (Exception e) {
-            System.err.println("Error parsing purl: " + purl);
+            return "Unknown";
         }
-
-        return "Unknown";
+        String ecosystem = parsed.osvEcosystem();
+        return ecosystem != null ? ecosystem : parsed.getType();
     }
 
     public static String extractDomain(String url) {
@@ -390,22 +561,17 @@ public class SbomService {
     return packages;
 }
 
+// Canonical purl for a package as named in a dependency file; null for unknown ecosystems.
 private String generatePurl(String ecosystem, String name, String version) {
-    if (ecosystem == null || name == null) return null;
-    version = (version != null && !version.isBlank()) ? "@" + version : "";
+    if (ecosystem == null || name == null || name.isBlank()) return null;
     switch (ecosystem.toLowerCase()) {
         case "npm":
-            return "pkg:npm/" + name + version;
         case "maven":
-            return "pkg:maven/" + name + version;
         case "pypi":
-            return "pkg:pypi/" + name + version;
         case "composer":
-            return "pkg:composer/" + name + version;
         case "cargo":
-            return "pkg:cargo/" + name + version;
         case "golang":
-            return "pkg:golang/" + name + version;
+            return PackageUrl.forPackage(ecosystem, name, version).toString();
         default:
             return null;
     }
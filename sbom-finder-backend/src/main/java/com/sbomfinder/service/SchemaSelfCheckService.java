@@ -0,0 +1,261 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Startup check of the database schema:
+//  1. drift: tables and columns that exist only because spring.jpa.hibernate.ddl-auto=update
+//     created them, i.e. that no Flyway migration defines (reported, not fatal);
+//  2. the lookup and search indexes from V4 and V5 are present;
+//  3. every hot lookup still plans with an index: each query is EXPLAINed with
+//     enable_seqscan off, and a Seq Scan left in the plan means no usable index exists.
+// With sbom.schema-check.fail-on-problems=true, 2 and 3 abort startup, which is how CI uses it.
+@Service
+public class SchemaSelfCheckService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${sbom.schema-check.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sbom.schema-check.fail-on-problems:false}")
+    private boolean failOnProblems;
+
+    @Value("${spring.jpa.hibernate.ddl-auto:none}")
+    private String ddlAuto;
+
+    private static final String MIGRATIONS = "classpath:db/migration/*.sql";
+
+    private static final List<String> EXPECTED_INDEXES = List.of(
+            "ix_software_packages_device", "ix_software_packages_sbom", "ix_software_packages_supplier",
+            "ix_component_vulnerabilities_vulnerability", "ix_sbom_files_device", "ix_sbom_archive_device_latest",
+            "ix_supplier_name", "ux_external_references_sbom_locator", "ix_devices_device_name_trgm",
+            "ix_devices_device_name_compact_trgm", "ix_devices_device_name_fts", "ix_devices_search_vector",
+            "ix_advisory_ranges_package", "ix_advisory_ranges_advisory", "ix_vulnerability_scan_state_due",
+            "ix_software_packages_component");
+
+    // hot lookups with placeholder values; only the plan shape matters
+    private static final Map<String, String> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("packages by device", "SELECT * FROM software_packages WHERE device_id = 1");
+        HOT_QUERIES.put("packages by sbom", "SELECT * FROM software_packages WHERE sbom_id = 1");
+        HOT_QUERIES.put("packages by supplier", "SELECT 1 FROM software_packages WHERE supplier_id = 1");
+        HOT_QUERIES.put("packages by component", "SELECT * FROM software_packages WHERE component_id = 1");
+        HOT_QUERIES.put("vulnerability links by component", "SELECT * FROM component_vulnerabilities WHERE component_id = 1");
+        HOT_QUERIES.put("vulnerability links by vulnerability", "SELECT * FROM component_vulnerabilities WHERE vulnerability_id = 1");
+        HOT_QUERIES.put("component by coordinate", "SELECT id FROM components WHERE purl = 'x' AND name = 'x' AND version = 'x'");
+        HOT_QUERIES.put("vulnerability by cve", "SELECT * FROM vulnerabilities WHERE cve_id = 'CVE-0000-0000'");
+        HOT_QUERIES.put("sbom by hash", "SELECT * FROM sbom_files WHERE hash = 'x'");
+        HOT_QUERIES.put("sbom by device", "SELECT * FROM sbom_files WHERE device_id = 1");
+        HOT_QUERIES.put("latest archive", "SELECT * FROM sbom_archive WHERE device_id = 1 AND is_latest = true");
+        HOT_QUERIES.put("supplier by name", "SELECT * FROM supplier WHERE name = 'x'");
+        HOT_QUERIES.put("external reference by locator", "SELECT * FROM external_references WHERE sbom_id = 1 AND reference_locator = 'x'");
+        HOT_QUERIES.put("device name search", "SELECT * FROM devices WHERE device_name ILIKE '%router%'");
+        HOT_QUERIES.put("ranked device search", "SELECT id FROM devices WHERE search_vector @@ websearch_to_tsquery('simple', 'router') " +
+                "OR device_name % 'router' OR replace(lower(device_name), ' ', '') LIKE '%router%'");
+        HOT_QUERIES.put("advisory ranges by package", "SELECT * FROM advisory_ranges WHERE ecosystem = 'npm' AND package_name = 'x'");
+        HOT_QUERIES.put("due re-scan coordinates", "SELECT * FROM vulnerability_scan_state WHERE next_check_at <= now() ORDER BY next_check_at LIMIT 200");
+    }
+
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)\\s*\\((.*?)\\)\\s*;", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ADD_COLUMN = Pattern.compile(
+            "ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(\\w+)\\s+ADD\\s+(?:COLUMN\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> CONSTRAINT_KEYWORDS = Set.of("constraint", "primary", "foreign", "unique", "check", "exclude");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile List<String> lastProblems = List.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) {
+            return;
+        }
+        List<String> problems = runChecks();
+        if (!problems.isEmpty() && failOnProblems) {
+            throw new IllegalStateException("Schema self-check failed: " + problems);
+        }
+    }
+
+    public List<String> runChecks() {
+        List<String> problems = new ArrayList<>();
+        try {
+            reportDrift();
+        } catch (Exception e) {
+            System.err.println("Schema drift check skipped: " + e.getMessage());
+        }
+        try {
+            problems.addAll(checkIndexes());
+            problems.addAll(checkPlans());
+        } catch (Exception e) {
+            problems.add("schema check could not run: " + e.getMessage());
+        }
+
+        if (problems.isEmpty()) {
+            System.out.println("Schema self-check passed (" + HOT_QUERIES.size() + " hot queries use indexes)");
+        } else {
+            problems.forEach(p -> System.err.println("Schema self-check: " + p));
+        }
+        lastProblems = List.copyOf(problems);
+        return problems;
+    }
+
+    public List<String> getLastProblems() {
+        return lastProblems;
+    }
+
+    private void reportDrift() throws IOException {
+        Map<String, Set<String>> migrated = migratedColumns();
+
+        Map<String, List<String>> actual = new TreeMap<>();
+        jdbcTemplate.query("SELECT table_name, column_name FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name <> 'flyway_schema_history' " +
+                        "ORDER BY table_name, ordinal_position",
+                rs -> { actual.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2)); });
+
+        List<String> drift = new ArrayList<>();
+        for (Map.Entry<String, List<String>> table : actual.entrySet()) {
+            Set<String> known = migrated.get(table.getKey());
+            if (known == null) {
+                drift.add(table.getKey() + " (table)");
+                continue;
+            }
+            for (String column : table.getValue()) {
+                if (!known.contains(column)) {
+                    drift.add(table.getKey() + "." + column);
+                }
+            }
+        }
+
+        if (!drift.isEmpty()) {
+            System.err.println("Schema drift: " + drift.size() + " table(s)/column(s) are not defined by any Flyway migration"
+                    + ("update".equalsIgnoreCase(ddlAuto) ? " and exist through spring.jpa.hibernate.ddl-auto=update" : "")
+                    + ": " + String.join(", ", drift));
+        }
+    }
+
+    // table -> columns as defined by CREATE TABLE and ALTER TABLE ... ADD COLUMN in the migrations
+    private Map<String, Set<String>> migratedColumns() throws IOException {
+        Map<String, Set<String>> columns = new HashMap<>();
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS);
+        for (Resource script : scripts) {
+            String sql;
+            try (InputStream in = script.getInputStream()) {
+                sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).replaceAll("--[^\\n]*", "");
+            }
+
+            Matcher create = CREATE_TABLE.matcher(sql);
+            while (create.find()) {
+                Set<String> tableColumns = columns.computeIfAbsent(create.group(1).toLowerCase(Locale.ROOT), k -> new HashSet<>());
+                for (String definition : splitTopLevel(create.group(2))) {
+                    String first = definition.trim().split("\\s+")[0].replace("\"", "").toLowerCase(Locale.ROOT);
+                    if (!first.isEmpty() && !CONSTRAINT_KEYWORDS.contains(first)) {
+                        tableColumns.add(first);
+                    }
+                }
+            }
+            Matcher add = ADD_COLUMN.matcher(sql);
+            while (add.find()) {
+                columns.computeIfAbsent(add.group(1).toLowerCase(Locale.ROOT), k -> new HashSet<>())
+                        .add(add.group(2).toLowerCase(Locale.ROOT));
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> splitTopLevel(String body) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0, start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (c == ',' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+
+    private List<String> checkIndexes() {
+        Set<String> present = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()", String.class));
+        List<String> problems = new ArrayList<>();
+        for (String index : EXPECTED_INDEXES) {
+            if (!present.contains(index)) {
+                problems.add("missing index " + index);
+            }
+        }
+        return problems;
+    }
+
+    private List<String> checkPlans() throws SQLException, IOException {
+        List<String> problems = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            try {
+                for (Map.Entry<String, String> query : HOT_QUERIES.entrySet()) {
+                    String plan;
+                    try (ResultSet rs = statement.executeQuery("EXPLAIN (FORMAT JSON) " + query.getValue())) {
+                        rs.next();
+                        plan = rs.getString(1);
+                    }
+                    List<String> seqScans = new ArrayList<>();
+                    collectSeqScans(objectMapper.readTree(plan), seqScans);
+                    if (!seqScans.isEmpty()) {
+                        problems.add("sequential scan on " + String.join(", ", seqScans) + " for " + query.getKey());
+                    }
+                }
+            } finally {
+                statement.execute("RESET enable_seqscan");
+            }
+        }
+        return problems;
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> relations) {
+        if (node.isArray()) {
+            for (JsonNode child : node) collectSeqScans(child, relations);
+            return;
+        }
+        if (node.has("Plan")) {
+            collectSeqScans(node.get("Plan"), relations);
+            return;
+        }
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            relations.add(node.path("Relation Name").asText());
+        }
+        if (node.has("Plans")) {
+            collectSeqScans(node.get("Plans"), relations);
+        }
+    }
+}
@@ -0,0 +1,805 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.SearchHitDTO;
+import com.sbomfinder.event.DevicePackagesChangedEvent;
+import com.sbomfinder.event.DevicesDeletedEvent;
+import com.sbomfinder.util.PurlUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// In-process search over device names, manufacturers, package names, purls and supplier names,
+// so the search bar's typeahead and free-text queries never reach Postgres.
+// Every searchable thing is a document. Document text is split into lowercase alphanumeric
+// tokens, and each token is indexed by its trigrams plus its one- and two-character prefixes,
+// so a query token of any length maps to one or a few posting lists. Postings are sorted
+// document id arrays; they are intersected, and the candidates are checked against the
+// document text before scoring.
+// Packages and suppliers are documents shared by devices and reference-counted; removed
+// documents leave holes that are compacted away once they pile up. The index is written to a
+// snapshot file, so a restart skips the database scan when no device changed in between.
+@Service
+public class SearchIndexService {
+
+    public static final String TYPE_DEVICE = "device";
+    public static final String TYPE_PACKAGE = "package";
+    public static final String TYPE_SUPPLIER = "supplier";
+
+    private static final byte DEVICE = 0;
+    private static final byte PACKAGE = 1;
+    private static final byte SUPPLIER = 2;
+    private static final String[] TYPE_NAMES = {TYPE_DEVICE, TYPE_PACKAGE, TYPE_SUPPLIER};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${sbom.search-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sbom.search-index.snapshot-path:data/search-index.snapshot}")
+    private String snapshotPath;
+
+    private static final String DEVICE_IDS = "SELECT id FROM devices ORDER BY id";
+    private static final String DEVICES =
+            "SELECT id, device_name, manufacturer FROM devices WHERE id = ANY (?) ORDER BY id";
+    private static final String PACKAGES_OF_DEVICES =
+            "SELECT sp.device_id, sp.name, sp.purl, s.name FROM software_packages sp " +
+            "LEFT JOIN supplier s ON s.id = sp.supplier_id WHERE sp.device_id = ANY (?)";
+    private static final int BUILD_BATCH_SIZE = 500;
+    // changes whenever a device or package row is added or removed; a snapshot taken under a
+    // different fingerprint is not trusted
+    private static final String FINGERPRINT =
+            "SELECT (SELECT count(*) FROM devices), (SELECT coalesce(max(id), 0) FROM devices), " +
+            "(SELECT count(*) FROM software_packages), (SELECT coalesce(max(id), 0) FROM software_packages)";
+
+    private static final int SNAPSHOT_MAGIC = 0x53424958;
+    // 2: package keys are decoded by PackageUrl
+    private static final int SNAPSHOT_VERSION = 2;
+
+    // marks a prefix gram, so "ab" as the start of a token never collides with a trigram
+    private static final char PREFIX = '\u0001';
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int[] NO_DOCS = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+    private final Map<Integer, Integer> deviceDocs = new HashMap<>();
+    private final Map<Integer, int[]> deviceRefs = new HashMap<>();
+    private int removedDocs;
+    private long postingEntries;
+    private volatile boolean ready;
+    private volatile boolean dirty;
+
+    // metrics
+    private volatile String builtFrom;
+    private volatile long buildMillis;
+    private volatile long builtAt;
+    private volatile long snapshotMillis;
+    private volatile long snapshotBytes;
+    private volatile long snapshotAt;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long queries;
+    private long totalQueryNanos;
+    private long maxQueryNanos;
+
+    private static class Doc {
+        final byte type;
+        final String ref;
+        final String label;
+        final String detail;
+        final String text;
+        int refs;
+
+        Doc(byte type, String ref, String label, String detail) {
+            this.type = type;
+            this.ref = ref;
+            this.label = label;
+            this.detail = detail;
+            this.text = normalize(detail != null ? label + " " + detail : label);
+        }
+    }
+
+    // document ids ascending; documents only ever get new, higher ids, so adding is an append
+    private static class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        boolean add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            ids[size++] = id;
+            return true;
+        }
+    }
+
+    public static class SearchPage {
+        private final int total;
+        private final List<SearchHitDTO> hits;
+
+        SearchPage(int total, List<SearchHitDTO> hits) {
+            this.total = total;
+            this.hits = hits;
+        }
+
+        public int getTotal() { return total; }
+        public List<SearchHitDTO> getHits() { return hits; }
+    }
+
+    private static class Scored {
+        final Doc doc;
+        final double score;
+
+        Scored(Doc doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Scored> BEST_FIRST = (a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : a.doc.label.compareToIgnoreCase(b.doc.label);
+    };
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            System.out.println("Search index disabled (sbom.search-index.enabled=false)");
+            return;
+        }
+        long[] fingerprint = fingerprint();
+        if (!loadSnapshot(fingerprint)) {
+            rebuild();
+            writeSnapshot();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            List<Long> deviceIds = jdbcTemplate.queryForList(DEVICE_IDS, Long.class);
+            for (int from = 0; from < deviceIds.size(); from += BUILD_BATCH_SIZE) {
+                Long[] batch = deviceIds.subList(from, Math.min(from + BUILD_BATCH_SIZE, deviceIds.size())).toArray(new Long[0]);
+                loadDevices(batch);
+            }
+            builtFrom = "database";
+            buildMillis = System.currentTimeMillis() - start;
+            builtAt = System.currentTimeMillis();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Search index built from database: " + docs.size() + " documents, " + grams.size()
+                + " grams in " + buildMillis + " ms");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicePackagesChanged(DevicePackagesChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int device = toIntId(event.getDeviceId());
+            if (!loadDevices(new Long[]{event.getDeviceId()})) {
+                removeDevice(device);
+            }
+            compactIfNeeded();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicesDeleted(DevicesDeletedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long id : event.getDeviceIds()) {
+                removeDevice(toIntId(id));
+            }
+            compactIfNeeded();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Documents containing every query token, best first. Tokens match anywhere in a word;
+    // whole words score above word prefixes, which score above matches inside a word, so the
+    // same call serves typeahead (the last token is still being typed) and full-text search.
+    public SearchPage search(String query, Set<String> types, int offset, int limit) {
+        long start = System.nanoTime();
+        List<String> tokens = tokens(normalize(query));
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+        }
+        boolean[] typeFilter = new boolean[TYPE_NAMES.length];
+        for (int t = 0; t < TYPE_NAMES.length; t++) {
+            typeFilter[t] = types == null || types.isEmpty() || types.contains(TYPE_NAMES[t]);
+        }
+
+        int total = 0;
+        PriorityQueue<Scored> top = new PriorityQueue<>(BEST_FIRST.reversed());
+        int keep = offset + limit;
+        lock.readLock().lock();
+        try {
+            int[] candidates = tokens.isEmpty() ? NO_DOCS : candidates(tokens);
+            String phrase = String.join(" ", tokens);
+            for (int id : candidates) {
+                Doc doc = docs.get(id);
+                if (doc == null || !typeFilter[doc.type]) {
+                    continue;
+                }
+                double score = score(doc, tokens, phrase);
+                if (score < 0) {
+                    continue;
+                }
+                total++;
+                top.add(new Scored(doc, score));
+                if (top.size() > keep) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Scored> sorted = new ArrayList<>(top);
+        sorted.sort(BEST_FIRST);
+        List<SearchHitDTO> hits = new ArrayList<>();
+        for (int i = offset; i < sorted.size(); i++) {
+            Doc doc = sorted.get(i).doc;
+            hits.add(new SearchHitDTO(TYPE_NAMES[doc.type], doc.ref, doc.label, doc.detail,
+                    doc.type == DEVICE ? null : doc.refs, sorted.get(i).score));
+        }
+        recordLatency(System.nanoTime() - start);
+        return new SearchPage(total, hits);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Build, memory and latency figures for the stats endpoint.
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("builtFrom", builtFrom);
+        stats.put("buildMillis", buildMillis);
+        stats.put("builtAt", builtAt > 0 ? new Date(builtAt) : null);
+
+        lock.readLock().lock();
+        try {
+            int[] perType = new int[TYPE_NAMES.length];
+            long docBytes = 0;
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    perType[doc.type]++;
+                    // object headers and fields, plus the strings' character data
+                    docBytes += 40 + 3 * 40 + doc.ref.length() + doc.label.length() + doc.text.length()
+                            + (doc.detail != null ? 40 + doc.detail.length() : 0);
+                }
+            }
+            long gramBytes = 0;
+            for (Postings p : grams.values()) {
+                gramBytes += 16 + 4L * p.ids.length;
+            }
+            // hash map entry, gram string and postings header per gram
+            gramBytes += grams.size() * 120L;
+            long deviceBytes = deviceDocs.size() * 96L;
+            for (int[] refs : deviceRefs.values()) {
+                deviceBytes += 16 + 4L * refs.length;
+            }
+
+            Map<String, Object> documents = new LinkedHashMap<>();
+            for (int t = 0; t < TYPE_NAMES.length; t++) {
+                documents.put(TYPE_NAMES[t], perType[t]);
+            }
+            stats.put("documents", documents);
+            stats.put("removedDocuments", removedDocs);
+            stats.put("grams", grams.size());
+            stats.put("postingEntries", postingEntries);
+            stats.put("estimatedBytes", docBytes + gramBytes + deviceBytes + docIds.size() * 64L);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        synchronized (latencies) {
+            int n = (int) Math.min(queries, LATENCY_WINDOW);
+            long[] window = Arrays.copyOf(latencies, n);
+            Arrays.sort(window);
+            latency.put("queries", queries);
+            latency.put("meanMicros", queries > 0 ? totalQueryNanos / queries / 1000.0 : 0.0);
+            latency.put("maxMicros", maxQueryNanos / 1000.0);
+            latency.put("p50Micros", percentile(window, 0.50));
+            latency.put("p95Micros", percentile(window, 0.95));
+            latency.put("p99Micros", percentile(window, 0.99));
+        }
+        stats.put("queryLatency", latency);
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("path", snapshotPath);
+        snapshot.put("bytes", snapshotBytes);
+        snapshot.put("writeMillis", snapshotMillis);
+        snapshot.put("writtenAt", snapshotAt > 0 ? new Date(snapshotAt) : null);
+        snapshot.put("pendingChanges", dirty);
+        stats.put("snapshot", snapshot);
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${sbom.search-index.snapshot-interval-ms:300000}",
+            initialDelayString = "${sbom.search-index.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        if (enabled && ready && dirty) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled && ready && dirty) {
+            writeSnapshot();
+        }
+    }
+
+    // Loads devices with their packages and suppliers; returns false if none of them exists.
+    // Caller holds the write lock.
+    private boolean loadDevices(Long[] ids) {
+        Map<Long, String[]> devices = new LinkedHashMap<>();
+        jdbcTemplate.query(DEVICES, rs -> {
+            devices.put(rs.getLong(1), new String[]{rs.getString(2), rs.getString(3)});
+        }, (Object) ids);
+        if (devices.isEmpty()) {
+            return false;
+        }
+
+        Map<Long, List<String[]>> packages = new HashMap<>();
+        jdbcTemplate.query(PACKAGES_OF_DEVICES, rs -> {
+            packages.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                    .add(new String[]{rs.getString(2), rs.getString(3), rs.getString(4)});
+        }, (Object) ids);
+
+        for (Map.Entry<Long, String[]> device : devices.entrySet()) {
+            putDevice(toIntId(device.getKey()), device.getValue()[0], device.getValue()[1],
+                    packages.getOrDefault(device.getKey(), List.of()));
+        }
+        return true;
+    }
+
+    private void putDevice(int device, String name, String manufacturer, List<String[]> packages) {
+        // new references are taken before the old ones are released, so documents the device
+        // keeps never drop to zero and get re-created
+        Set<Integer> refs = new LinkedHashSet<>();
+        for (String[] p : packages) {
+            String key = PurlUtils.packageKey(p[1], p[0]);
+            String label = p[0] != null && !p[0].isBlank() ? p[0] : key;
+            refs.add(sharedDoc(PACKAGE, key, label, key.startsWith("pkg:") ? key : null));
+            String supplier = p[2] != null ? p[2].trim() : "";
+            if (!supplier.isEmpty() && !"NOASSERTION".equalsIgnoreCase(supplier)) {
+                refs.add(sharedDoc(SUPPLIER, supplier.toLowerCase(Locale.ROOT), supplier, null));
+            }
+        }
+        int[] ids = new int[refs.size()];
+        int k = 0;
+        for (int id : refs) {
+            docs.get(id).refs++;
+            ids[k++] = id;
+        }
+        release(deviceRefs.put(device, ids));
+
+        String label = name != null ? name : "";
+        Integer previous = deviceDocs.get(device);
+        if (previous != null) {
+            Doc doc = docs.get(previous);
+            if (doc.label.equals(label) && Objects.equals(doc.detail, manufacturer)) {
+                return;
+            }
+            removeDoc(previous);
+        }
+        deviceDocs.put(device, addDoc(new Doc(DEVICE, String.valueOf(device), label, manufacturer)));
+    }
+
+    private void removeDevice(int device) {
+        release(deviceRefs.remove(device));
+        Integer doc = deviceDocs.remove(device);
+        if (doc != null) {
+            removeDoc(doc);
+        }
+    }
+
+    private int sharedDoc(byte type, String ref, String label, String detail) {
+        Integer id = docIds.get(type + ref);
+        return id != null ? id : addDoc(new Doc(type, ref, label, detail));
+    }
+
+    private void release(int[] ids) {
+        if (ids == null) {
+            return;
+        }
+        for (int id : ids) {
+            Doc doc = docs.get(id);
+            if (--doc.refs <= 0) {
+                removeDoc(id);
+            }
+        }
+    }
+
+    private int addDoc(Doc doc) {
+        int id = docs.size();
+        docs.add(doc);
+        if (doc.type != DEVICE) {
+            docIds.put(doc.type + doc.ref, id);
+        }
+        for (String token : tokens(doc.text)) {
+            addGram(PREFIX + token.substring(0, 1), id);
+            if (token.length() > 1) {
+                addGram(PREFIX + token.substring(0, 2), id);
+            }
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                addGram(token.substring(i, i + 3), id);
+            }
+        }
+        return id;
+    }
+
+    private void addGram(String gram, int id) {
+        if (grams.computeIfAbsent(gram, g -> new Postings()).add(id)) {
+            postingEntries++;
+        }
+    }
+
+    // postings keep pointing at removed documents until the next compaction
+    private void removeDoc(int id) {
+        Doc doc = docs.set(id, null);
+        if (doc.type != DEVICE) {
+            docIds.remove(doc.type + doc.ref);
+        }
+        removedDocs++;
+    }
+
+    private void compactIfNeeded() {
+        if (removedDocs < 1024 || removedDocs < docs.size() / 4) {
+            return;
+        }
+        List<Doc> live = new ArrayList<>(docs.size() - removedDocs);
+        int[] renumbered = new int[docs.size()];
+        for (int id = 0; id < docs.size(); id++) {
+            Doc doc = docs.get(id);
+            renumbered[id] = doc != null ? live.size() : -1;
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+        docs.clear();
+        docIds.clear();
+        grams.clear();
+        postingEntries = 0;
+        removedDocs = 0;
+        for (Doc doc : live) {
+            addDoc(doc);
+        }
+        deviceDocs.replaceAll((device, id) -> renumbered[id]);
+        for (int[] refs : deviceRefs.values()) {
+            for (int k = 0; k < refs.length; k++) {
+                refs[k] = renumbered[refs[k]];
+            }
+        }
+    }
+
+    private void clear() {
+        docs.clear();
+        docIds.clear();
+        grams.clear();
+        deviceDocs.clear();
+        deviceRefs.clear();
+        removedDocs = 0;
+        postingEntries = 0;
+    }
+
+    // Intersection of the postings of every gram of every token, smallest list first.
+    private int[] candidates(List<String> tokens) {
+        List<Postings> lists = new ArrayList<>();
+        for (String token : tokens) {
+            List<String> tokenGrams = new ArrayList<>();
+            if (token.length() < 3) {
+                tokenGrams.add(PREFIX + token);
+            } else {
+                for (int i = 0; i + 3 <= token.length(); i++) {
+                    tokenGrams.add(token.substring(i, i + 3));
+                }
+            }
+            for (String gram : tokenGrams) {
+                Postings p = grams.get(gram);
+                if (p == null) {
+                    return NO_DOCS;
+                }
+                lists.add(p);
+            }
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        Postings first = lists.get(0);
+        int[] result = Arrays.copyOf(first.ids, first.size);
+        int size = result.length;
+        for (int l = 1; l < lists.size() && size > 0; l++) {
+            Postings other = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < size; i++) {
+                int at = Arrays.binarySearch(other.ids, from, other.size, result[i]);
+                if (at >= 0) {
+                    result[kept++] = result[i];
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+            size = kept;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // -1 if a token does not occur in the document
+    private static double score(Doc doc, List<String> tokens, String phrase) {
+        String text = doc.text;
+        double score = 0;
+        for (String token : tokens) {
+            int best = 0;
+            for (int at = text.indexOf(token); at >= 0 && best < 3; at = text.indexOf(token, at + 1)) {
+                boolean wordStart = at == 0 || text.charAt(at - 1) == ' ';
+                int end = at + token.length();
+                boolean wordEnd = end == text.length() || text.charAt(end) == ' ';
+                best = Math.max(best, wordStart ? (wordEnd ? 3 : 2) : 1);
+            }
+            if (best == 0) {
+                return -1;
+            }
+            score += best;
+        }
+        // the whole query at the start of the name, e.g. "openss" for "openssl"
+        if (text.startsWith(phrase)) {
+            score += 2;
+        }
+        // shorter documents are closer matches; widely shipped packages and suppliers come first
+        score += (double) phrase.length() / text.length();
+        if (doc.refs > 0) {
+            score += Math.min(1.0, Math.log10(1 + doc.refs) / 3);
+        }
+        return score;
+    }
+
+    private void writeSnapshot() {
+        long start = System.currentTimeMillis();
+        Path path = Paths.get(snapshotPath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            long[] fingerprint = fingerprint();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            lock.readLock().lock();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                for (long value : fingerprint) {
+                    out.writeLong(value);
+                }
+
+                // live documents only, renumbered densely
+                int[] renumbered = new int[docs.size()];
+                int live = 0;
+                for (int id = 0; id < docs.size(); id++) {
+                    renumbered[id] = docs.get(id) != null ? live++ : -1;
+                }
+                out.writeInt(live);
+                for (Doc doc : docs) {
+                    if (doc != null) {
+                        out.writeByte(doc.type);
+                        writeString(out, doc.ref);
+                        writeString(out, doc.label);
+                        writeString(out, doc.detail);
+                        out.writeInt(doc.refs);
+                    }
+                }
+
+                out.writeInt(deviceDocs.size());
+                for (Map.Entry<Integer, Integer> device : deviceDocs.entrySet()) {
+                    int[] refs = deviceRefs.getOrDefault(device.getKey(), NO_DOCS);
+                    out.writeInt(device.getKey());
+                    out.writeInt(renumbered[device.getValue()]);
+                    out.writeInt(refs.length);
+                    for (int ref : refs) {
+                        out.writeInt(renumbered[ref]);
+                    }
+                }
+                // changes after this point wait for the write lock, so they count as pending
+                dirty = false;
+            } finally {
+                lock.readLock().unlock();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotBytes = Files.size(path);
+            snapshotMillis = System.currentTimeMillis() - start;
+            snapshotAt = System.currentTimeMillis();
+            System.out.println("Search index snapshot written to " + path + " (" + snapshotBytes + " bytes, "
+                    + snapshotMillis + " ms)");
+        } catch (Exception e) {
+            dirty = true;
+            System.err.println("Could not write search index snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    private boolean loadSnapshot(long[] fingerprint) {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                System.out.println("Search index snapshot " + path + " has an unknown format, rebuilding");
+                return false;
+            }
+            for (long value : fingerprint) {
+                if (in.readLong() != value) {
+                    System.out.println("Search index snapshot " + path + " is out of date, rebuilding");
+                    return false;
+                }
+            }
+
+            clear();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                Doc doc = new Doc(type, readString(in), readString(in), readString(in));
+                doc.refs = in.readInt();
+                addDoc(doc);
+            }
+            int devices = in.readInt();
+            for (int i = 0; i < devices; i++) {
+                int device = in.readInt();
+                deviceDocs.put(device, in.readInt());
+                int[] refs = new int[in.readInt()];
+                for (int k = 0; k < refs.length; k++) {
+                    refs[k] = in.readInt();
+                }
+                deviceRefs.put(device, refs);
+            }
+
+            builtFrom = "snapshot";
+            buildMillis = System.currentTimeMillis() - start;
+            builtAt = System.currentTimeMillis();
+            ready = true;
+            System.out.println("Search index loaded from snapshot " + path + ": " + docs.size() + " documents in "
+                    + buildMillis + " ms");
+            return true;
+        } catch (Exception e) {
+            clear();
+            System.err.println("Could not read search index snapshot " + path + ", rebuilding: " + e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long[] fingerprint() {
+        return jdbcTemplate.queryForObject(FINGERPRINT,
+                (rs, n) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)});
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[(int) (queries % LATENCY_WINDOW)] = nanos;
+            queries++;
+            totalQueryNanos += nanos;
+            maxQueryNanos = Math.max(maxQueryNanos, nanos);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1000.0;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // lowercase letters and digits, everything else collapses to single spaces
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean space = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> tokens(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split(" ")) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static int toIntId(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Device id out of index range: " + id);
+        }
+        return (int) id;
+    }
+}
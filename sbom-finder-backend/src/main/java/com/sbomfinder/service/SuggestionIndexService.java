@@ -0,0 +1,406 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.SuggestionDTO;
+import com.sbomfinder.event.DevicePackagesChangedEvent;
+import com.sbomfinder.event.DevicesDeletedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+// Search bar completions over device names, manufacturers and package names, ranked by how many
+// devices carry them. The terms live in an immutable radix trie: every node covers a contiguous
+// range of the sorted terms, and nodes with more than MAX_SUGGESTIONS terms below them keep
+// their best terms precomputed. A lookup walks the typed characters down the trie and copies
+// at most `limit` prebuilt suggestions, so a keystroke allocates only the result list.
+// Each type gets a trie of its own besides the combined one, so a filtered lookup is bounded
+// the same way. Changes mark the tries stale; they are rebuilt from the database in the
+// background and swapped in whole, so readers never lock.
+@Service
+public class SuggestionIndexService {
+
+    public static final String TYPE_DEVICE = "device";
+    public static final String TYPE_MANUFACTURER = "manufacturer";
+    public static final String TYPE_PACKAGE = "package";
+    public static final int MAX_SUGGESTIONS = 16;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String DEVICE_NAMES =
+            "SELECT device_name, count(*) FROM devices WHERE device_name <> '' GROUP BY device_name";
+    private static final String MANUFACTURERS =
+            "SELECT manufacturer, count(*) FROM devices WHERE manufacturer <> '' GROUP BY manufacturer";
+    private static final String PACKAGE_NAMES =
+            "SELECT name, count(DISTINCT device_id) FROM software_packages WHERE name <> '' GROUP BY name";
+    // longer names are only completed up to here
+    private static final int MAX_KEY_LENGTH = 128;
+
+    // all types, and one per type
+    private volatile Trie trie = Trie.EMPTY;
+    private volatile Map<String, Trie> tries = Map.of();
+    private volatile boolean stale = true;
+
+    private static class Trie {
+        static final Trie EMPTY = new Trie(new String[0], new SuggestionDTO[0]);
+
+        // sorted lowercase keys; values[i] is what keys[i] completes to
+        final String[] keys;
+        final SuggestionDTO[] values;
+
+        // per node: terms [lo, hi), characters matched, children [firstChild, firstChild + childCount)
+        int[] lo;
+        int[] hi;
+        int[] depth;
+        int[] firstChild;
+        int[] childCount;
+        // best terms of large nodes: top[topStart .. topStart + topLength), otherwise topStart = -1
+        int[] topStart;
+        int[] topLength;
+        int[] top;
+        int nodes;
+        int topSize;
+
+        Trie(String[] keys, SuggestionDTO[] values) {
+            this.keys = keys;
+            this.values = values;
+            int capacity = 2 * keys.length + 1;
+            lo = new int[capacity];
+            hi = new int[capacity];
+            depth = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            topStart = new int[capacity];
+            topLength = new int[capacity];
+            top = new int[64];
+
+            int root = nodes++;
+            lo[root] = 0;
+            hi[root] = keys.length;
+            depth[root] = 0;
+            build(root);
+
+            lo = Arrays.copyOf(lo, nodes);
+            hi = Arrays.copyOf(hi, nodes);
+            depth = Arrays.copyOf(depth, nodes);
+            firstChild = Arrays.copyOf(firstChild, nodes);
+            childCount = Arrays.copyOf(childCount, nodes);
+            topStart = Arrays.copyOf(topStart, nodes);
+            topLength = Arrays.copyOf(topLength, nodes);
+            top = Arrays.copyOf(top, topSize);
+        }
+
+        private void build(int node) {
+            int d = depth[node];
+            // keys ending exactly here sort first, the rest group by their next character
+            int start = lo[node];
+            while (start < hi[node] && keys[start].length() == d) start++;
+
+            int children = 0;
+            for (int a = start; a < hi[node]; ) {
+                char c = keys[a].charAt(d);
+                int b = a + 1;
+                while (b < hi[node] && keys[b].charAt(d) == c) b++;
+                children++;
+                a = b;
+            }
+            // children get consecutive ids so a lookup can binary search them
+            int first = nodes;
+            nodes += children;
+            firstChild[node] = first;
+            childCount[node] = children;
+            int child = first;
+            for (int a = start; a < hi[node]; ) {
+                char c = keys[a].charAt(d);
+                int b = a + 1;
+                while (b < hi[node] && keys[b].charAt(d) == c) b++;
+                lo[child] = a;
+                hi[child] = b;
+                depth[child] = commonPrefix(keys[a], keys[b - 1], d + 1);
+                child++;
+                a = b;
+            }
+            for (int k = 0; k < children; k++) {
+                build(first + k);
+            }
+
+            if (hi[node] - lo[node] <= MAX_SUGGESTIONS) {
+                topStart[node] = -1;
+                return;
+            }
+            // best of this node = best of the terms ending here and of each child's best
+            List<Integer> candidates = new ArrayList<>();
+            for (int i = lo[node]; i < start; i++) candidates.add(i);
+            for (int k = 0; k < children; k++) {
+                int c = first + k;
+                if (topStart[c] < 0) {
+                    for (int i = lo[c]; i < hi[c]; i++) candidates.add(i);
+                } else {
+                    for (int i = 0; i < topLength[c]; i++) candidates.add(top[topStart[c] + i]);
+                }
+            }
+            candidates.sort((x, y) -> compare(x, y));
+            if (top.length < topSize + MAX_SUGGESTIONS) {
+                top = Arrays.copyOf(top, Math.max(topSize + MAX_SUGGESTIONS, top.length * 2));
+            }
+            topStart[node] = topSize;
+            int length = 0;
+            for (int i = 0; i < candidates.size() && length < MAX_SUGGESTIONS; i++) {
+                int term = candidates.get(i);
+                // the same value can sit under one node through several of its words
+                if (!containsValue(top, topSize, length, values[term])) {
+                    top[topSize + length++] = term;
+                }
+            }
+            topLength[node] = length;
+            topSize += length;
+        }
+
+        private boolean containsValue(int[] terms, int from, int length, SuggestionDTO value) {
+            for (int i = 0; i < length; i++) {
+                if (values[terms[from + i]] == value) return true;
+            }
+            return false;
+        }
+
+        // most devices first, then shorter and alphabetical
+        int compare(int x, int y) {
+            int c = Integer.compare(values[y].getCount(), values[x].getCount());
+            if (c != 0) return c;
+            c = Integer.compare(values[x].getText().length(), values[y].getText().length());
+            return c != 0 ? c : values[x].getText().compareTo(values[y].getText());
+        }
+
+        // node whose terms all start with the typed text, or -1
+        int find(String query) {
+            int node = 0;
+            int matched = 0;
+            boolean space = true;
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (space) continue;
+                    c = ' ';
+                    space = true;
+                } else {
+                    c = Character.toLowerCase(c);
+                    space = false;
+                }
+                if (matched == depth[node]) {
+                    node = child(node, c);
+                    if (node < 0) return -1;
+                }
+                if (keys[lo[node]].charAt(matched) != c) return -1;
+                matched++;
+            }
+            return node;
+        }
+
+        private int child(int node, char c) {
+            int d = depth[node];
+            int a = firstChild[node];
+            int b = a + childCount[node] - 1;
+            while (a <= b) {
+                int mid = (a + b) >>> 1;
+                char m = keys[lo[mid]].charAt(d);
+                if (m < c) a = mid + 1;
+                else if (m > c) b = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+
+        void collect(int node, int limit, List<SuggestionDTO> result) {
+            if (topStart[node] >= 0) {
+                for (int i = 0; i < topLength[node] && result.size() < limit; i++) {
+                    result.add(values[top[topStart[node] + i]]);
+                }
+                return;
+            }
+            // at most MAX_SUGGESTIONS terms: selection by insertion into the result list itself
+            for (int i = lo[node]; i < hi[node]; i++) {
+                SuggestionDTO value = values[i];
+                int at = result.size();
+                while (at > 0 && better(value, result.get(at - 1))) at--;
+                if (at < limit && !containsRef(result, value)) {
+                    if (result.size() == limit) result.remove(limit - 1);
+                    result.add(at, value);
+                }
+            }
+        }
+
+        private static boolean better(SuggestionDTO a, SuggestionDTO b) {
+            if (a.getCount() != b.getCount()) return a.getCount() > b.getCount();
+            if (a.getText().length() != b.getText().length()) return a.getText().length() < b.getText().length();
+            return a.getText().compareTo(b.getText()) < 0;
+        }
+
+        private static boolean containsRef(List<SuggestionDTO> list, SuggestionDTO value) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) == value) return true;
+            }
+            return false;
+        }
+
+        private static int commonPrefix(String a, String b, int from) {
+            int max = Math.min(a.length(), b.length());
+            int i = from;
+            while (i < max && a.charAt(i) == b.charAt(i)) i++;
+            return i;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicePackagesChanged(DevicePackagesChangedEvent event) {
+        stale = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDevicesDeleted(DevicesDeletedEvent event) {
+        stale = true;
+    }
+
+    // changes are batched: one rebuild covers every upload and delete since the last one
+    @Scheduled(fixedDelayString = "${sbom.suggest.refresh-interval-ms:10000}",
+            initialDelayString = "${sbom.suggest.refresh-interval-ms:10000}")
+    public void refreshIfStale() {
+        if (stale) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        stale = false;
+        try {
+            Map<String, SuggestionDTO> terms = new HashMap<>();
+            loadTerms(DEVICE_NAMES, TYPE_DEVICE, terms);
+            loadTerms(MANUFACTURERS, TYPE_MANUFACTURER, terms);
+            loadTerms(PACKAGE_NAMES, TYPE_PACKAGE, terms);
+
+            // every word start of a term is a key too, so "therm" completes "Smart Thermostat"
+            List<String[]> entries = new ArrayList<>();
+            Map<String, SuggestionDTO> values = new HashMap<>();
+            for (Map.Entry<String, SuggestionDTO> term : terms.entrySet()) {
+                String key = term.getKey().substring(term.getKey().indexOf('\u0000') + 1);
+                for (int at = 0; at >= 0; ) {
+                    String suffix = key.substring(at);
+                    String id = suffix + '\u0000' + term.getKey();
+                    entries.add(new String[]{suffix, id});
+                    values.put(id, term.getValue());
+                    int space = key.indexOf(' ', at);
+                    at = space < 0 ? -1 : space + 1;
+                }
+            }
+            entries.sort((a, b) -> {
+                int c = a[0].compareTo(b[0]);
+                return c != 0 ? c : a[1].compareTo(b[1]);
+            });
+
+            Trie built = build(entries, values, null);
+            Map<String, Trie> builtByType = new HashMap<>();
+            for (String type : List.of(TYPE_DEVICE, TYPE_MANUFACTURER, TYPE_PACKAGE)) {
+                builtByType.put(type, build(entries, values, type));
+            }
+            trie = built;
+            tries = builtByType;
+            System.out.println("Suggestion trie built: " + terms.size() + " terms, " + built.keys.length + " keys, "
+                    + built.nodes + " nodes in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            stale = true;
+            System.err.println("Could not rebuild suggestion trie: " + e.getMessage());
+        }
+    }
+
+    // the trie over the sorted entries of one type, or of all when type is null
+    private static Trie build(List<String[]> entries, Map<String, SuggestionDTO> values, String type) {
+        List<String> keys = new ArrayList<>();
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        for (String[] entry : entries) {
+            SuggestionDTO value = values.get(entry[1]);
+            if (type == null || type.equals(value.getType())) {
+                keys.add(entry[0]);
+                suggestions.add(value);
+            }
+        }
+        return new Trie(keys.toArray(new String[0]), suggestions.toArray(new SuggestionDTO[0]));
+    }
+
+    // Up to `limit` completions of the typed text, most widely deployed first; type is
+    // optional and one of the TYPE_ constants.
+    public List<SuggestionDTO> suggest(String query, String type, int limit) {
+        Trie current = type == null ? trie : tries.getOrDefault(type, Trie.EMPTY);
+        List<SuggestionDTO> result = new ArrayList<>(limit);
+        if (query == null || current.keys.length == 0) {
+            return result;
+        }
+        int node = current.find(query);
+        if (node >= 0) {
+            current.collect(node, Math.min(limit, MAX_SUGGESTIONS), result);
+        }
+        return result;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    private void loadTerms(String sql, String type, Map<String, SuggestionDTO> terms) {
+        // names differing only in case or spacing are one term; the spelling with most devices wins
+        Map<String, int[]> totals = new HashMap<>();
+        Map<String, SuggestionDTO> best = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            String text = rs.getString(1);
+            int count = rs.getInt(2);
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return;
+            }
+            totals.computeIfAbsent(key, k -> new int[1])[0] += count;
+            SuggestionDTO previous = best.get(key);
+            if (previous == null || previous.getCount() < count) {
+                best.put(key, new SuggestionDTO(text.trim(), type, count));
+            }
+        });
+        for (Map.Entry<String, SuggestionDTO> entry : best.entrySet()) {
+            int total = totals.get(entry.getKey())[0];
+            terms.put(type + '\u0000' + entry.getKey(), new SuggestionDTO(entry.getValue().getText(), type, total));
+        }
+    }
+
+    // lowercase with single spaces, the same folding find() applies to typed text
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(Math.min(value.length(), MAX_KEY_LENGTH));
+        boolean space = true;
+        for (int i = 0; i < value.length() && sb.length() < MAX_KEY_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!space) {
+                    sb.append(' ');
+                    space = true;
+                }
+            } else {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,457 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.event.DeviceVulnerabilitiesChangedEvent;
+import com.sbomfinder.model.SoftwarePackage;
+import com.sbomfinder.model.Vulnerability;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Re-evaluates the vulnerabilities of packages that are already stored, so devices uploaded
+// long ago pick up new advisories (and lose withdrawn ones).
+// Every distinct (purl, name, version) in software_packages is a coordinate in
+// vulnerability_scan_state with the time of its last check and when it is due next. Each run
+// registers coordinates of packages added since the checkpoint, then takes the most overdue
+// coordinates in batches, queries them (local advisories or the OSV API with bounded
+// concurrency and a request rate limit) and applies the difference to the links of the
+// coordinate's component. Next checks get random jitter, so coordinates do not all come due
+// at the same moment.
+// All progress lives in the database; a restart continues with whatever is still due.
+@Service
+public class VulnerabilityRescanService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SbomService sbomService;
+
+    @Autowired
+    private LocalAdvisoryService localAdvisoryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${sbom.rescan.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sbom.rescan.period-hours:24}")
+    private double periodHours;
+
+    @Value("${sbom.rescan.jitter:0.2}")
+    private double jitter;
+
+    @Value("${sbom.rescan.batch-size:200}")
+    private int batchSize;
+
+    @Value("${sbom.rescan.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${sbom.rescan.concurrency:4}")
+    private int concurrency;
+
+    @Value("${sbom.rescan.max-requests-per-second:10}")
+    private double maxRequestsPerSecond;
+
+    @Value("${sbom.rescan.retry-delay-ms:3600000}")
+    private long retryDelayMs;
+
+    private static final String CHECKPOINT = "SELECT last_package_id FROM vulnerability_scan_checkpoint WHERE id = 1";
+    private static final String NEW_COORDINATES =
+            "SELECT max(id) FROM (SELECT id FROM software_packages WHERE id > ? ORDER BY id LIMIT ?) p";
+    // new coordinates were checked at upload, so their first re-check lands anywhere in the next period
+    private static final String REGISTER_COORDINATES =
+            "INSERT INTO vulnerability_scan_state (purl, name, version, next_check_at) " +
+            "SELECT DISTINCT coalesce(purl, ''), coalesce(name, ''), coalesce(version, ''), now() + random() * (? * interval '1 second') " +
+            "FROM software_packages WHERE id > ? AND id <= ? ON CONFLICT DO NOTHING";
+    private static final String SAVE_CHECKPOINT =
+            "UPDATE vulnerability_scan_checkpoint SET last_package_id = ?, updated_at = now() WHERE id = 1";
+    private static final String DUE_COORDINATES =
+            "SELECT purl, name, version FROM vulnerability_scan_state WHERE next_check_at <= now() " +
+            "ORDER BY next_check_at LIMIT ?";
+    private static final String COMPONENTS_OF_COORDINATES =
+            "SELECT c.id, c.purl, c.name, c.version FROM components c " +
+            "WHERE (c.purl, c.name, c.version) IN (SELECT * FROM unnest(?::text[], ?::text[], ?::text[])) " +
+            "AND EXISTS (SELECT 1 FROM software_packages sp WHERE sp.component_id = c.id)";
+    private static final String LINKS_OF_COMPONENTS =
+            "SELECT cv.component_id, v.cve_id FROM component_vulnerabilities cv " +
+            "JOIN vulnerabilities v ON v.id = cv.vulnerability_id WHERE cv.component_id = ANY (?)";
+    private static final String DEVICES_OF_COMPONENTS =
+            "SELECT DISTINCT device_id FROM software_packages WHERE component_id = ANY (?) AND device_id IS NOT NULL";
+    private static final String INSERT_VULNERABILITY =
+            "INSERT INTO vulnerabilities (cve_id, description, severity, source_url, severity_level, cvss_score) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String VULNERABILITY_IDS = "SELECT id, cve_id FROM vulnerabilities WHERE cve_id = ANY (?)";
+    private static final String INSERT_LINK =
+            "INSERT INTO component_vulnerabilities (component_id, vulnerability_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String DELETE_LINK =
+            "DELETE FROM component_vulnerabilities WHERE component_id = ? AND vulnerability_id = " +
+            "(SELECT id FROM vulnerabilities WHERE cve_id = ?)";
+    private static final String MARK_CHECKED =
+            "UPDATE vulnerability_scan_state SET last_checked_at = now(), failures = 0, vulnerability_count = ?, " +
+            "next_check_at = now() + ? * interval '1 second' WHERE purl = ? AND name = ? AND version = ?";
+    private static final String MARK_FAILED =
+            "UPDATE vulnerability_scan_state SET failures = failures + 1, " +
+            "next_check_at = now() + ? * interval '1 second' WHERE purl = ? AND name = ? AND version = ?";
+    private static final String DELETE_COORDINATE =
+            "DELETE FROM vulnerability_scan_state WHERE purl = ? AND name = ? AND version = ?";
+    private static final String MARK_ALL_DUE =
+            "UPDATE vulnerability_scan_state SET next_check_at = now() + random() * (? * interval '1 second')";
+    private static final String STATE_SUMMARY =
+            "SELECT count(*), count(*) FILTER (WHERE next_check_at <= now()), count(*) FILTER (WHERE failures > 0), " +
+            "min(last_checked_at) FROM vulnerability_scan_state";
+
+    private static final int REGISTER_BATCH_SIZE = 10000;
+
+    private final Random random = new Random();
+    private boolean running;
+    private long nextRequestAt;
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong linksAdded = new AtomicLong();
+    private final AtomicLong linksRemoved = new AtomicLong();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    // package coordinate: missing purl and version as ''
+    private static class Coordinate {
+        final String purl;
+        final String name;
+        final String version;
+
+        Coordinate(String purl, String name, String version) {
+            this.purl = purl;
+            this.name = name;
+            this.version = version;
+        }
+
+        SoftwarePackage toPackage() {
+            SoftwarePackage pkg = new SoftwarePackage();
+            pkg.setPurl(purl.isEmpty() ? null : purl);
+            pkg.setName(name);
+            pkg.setVersion(version.isEmpty() ? null : version);
+            return pkg;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Coordinate)) return false;
+            Coordinate c = (Coordinate) o;
+            return purl.equals(c.purl) && name.equals(c.name) && version.equals(c.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(purl, name, version);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sbom.rescan.interval-ms:60000}", initialDelayString = "${sbom.rescan.initial-delay-ms:120000}")
+    public void scheduledRescan() {
+        if (enabled) {
+            runRescan();
+        }
+    }
+
+    // One pass over what is due, up to max-batches-per-run batches; null if a pass is running.
+    public Map<String, Object> runRescan() {
+        synchronized (this) {
+            if (running) {
+                return null;
+            }
+            running = true;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int registered = registerNewCoordinates();
+            long[] totals = new long[5]; // checked, failed, removed coordinates, links added, links removed
+            Set<Long> changedDevices = new TreeSet<>();
+            int batches = 0;
+            for (; batches < maxBatchesPerRun; batches++) {
+                List<Coordinate> due = jdbcTemplate.query(DUE_COORDINATES,
+                        (rs, i) -> new Coordinate(rs.getString(1), rs.getString(2), rs.getString(3)), batchSize);
+                if (due.isEmpty()) {
+                    break;
+                }
+                rescanBatch(due, totals, changedDevices);
+                if (due.size() < batchSize) {
+                    batches++;
+                    break;
+                }
+            }
+
+            if (!changedDevices.isEmpty()) {
+                eventPublisher.publishEvent(new DeviceVulnerabilitiesChangedEvent(changedDevices));
+            }
+
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("registeredCoordinates", registered);
+            run.put("batches", batches);
+            run.put("checked", totals[0]);
+            run.put("failed", totals[1]);
+            run.put("removedCoordinates", totals[2]);
+            run.put("linksAdded", totals[3]);
+            run.put("linksRemoved", totals[4]);
+            run.put("changedDevices", changedDevices.size());
+            run.put("elapsedMs", System.currentTimeMillis() - start);
+            lastRun = run;
+            if (totals[0] + totals[1] > 0) {
+                System.out.println("Vulnerability re-scan: " + run);
+            }
+            return run;
+        } finally {
+            synchronized (this) {
+                running = false;
+            }
+        }
+    }
+
+    // After new advisory data: everything is due within one jitter window instead of at once.
+    public int markAllDue() {
+        return jdbcTemplate.update(MARK_ALL_DUE, periodSeconds() * jitter);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", isRunning());
+        jdbcTemplate.query(STATE_SUMMARY, rs -> {
+            status.put("coordinates", rs.getLong(1));
+            status.put("due", rs.getLong(2));
+            status.put("failing", rs.getLong(3));
+            status.put("oldestCheck", rs.getObject(4) != null ? rs.getTimestamp(4).toInstant().toString() : null);
+        });
+        status.put("checked", checked.get());
+        status.put("failed", failed.get());
+        status.put("linksAdded", linksAdded.get());
+        status.put("linksRemoved", linksRemoved.get());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    private synchronized boolean isRunning() {
+        return running;
+    }
+
+    // Registers coordinates of packages stored since the checkpoint, a bounded id range at a time.
+    private int registerNewCoordinates() {
+        int registered = 0;
+        Long lastId = jdbcTemplate.queryForObject(CHECKPOINT, Long.class);
+        while (true) {
+            Long upTo = jdbcTemplate.queryForObject(NEW_COORDINATES, Long.class, lastId, REGISTER_BATCH_SIZE);
+            if (upTo == null) {
+                return registered;
+            }
+            long from = lastId;
+            registered += new TransactionTemplate(transactionManager).execute(tx -> {
+                int rows = jdbcTemplate.update(REGISTER_COORDINATES, periodSeconds(), from, upTo);
+                jdbcTemplate.update(SAVE_CHECKPOINT, upTo);
+                return rows;
+            });
+            lastId = upTo;
+        }
+    }
+
+    private void rescanBatch(List<Coordinate> due, long[] totals, Set<Long> changedDevices) {
+        // query first, outside any transaction; null marks a failed lookup
+        List<List<Vulnerability>> results = fetch(due);
+
+        String[] purls = new String[due.size()];
+        String[] names = new String[due.size()];
+        String[] versions = new String[due.size()];
+        for (int i = 0; i < due.size(); i++) {
+            purls[i] = due.get(i).purl;
+            names[i] = due.get(i).name;
+            versions[i] = due.get(i).version;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            Map<Coordinate, Long> components = new HashMap<>();
+            jdbcTemplate.query(COMPONENTS_OF_COORDINATES, rs -> {
+                components.put(new Coordinate(rs.getString(2), rs.getString(3), rs.getString(4)), rs.getLong(1));
+            }, purls, names, versions);
+
+            Map<Long, Set<String>> current = new HashMap<>();
+            if (!components.isEmpty()) {
+                jdbcTemplate.query(LINKS_OF_COMPONENTS,
+                        rs -> { current.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getString(2)); },
+                        (Object) components.values().toArray(new Long[0]));
+            }
+
+            Map<String, Vulnerability> wanted = new LinkedHashMap<>();
+            List<Object[]> additions = new ArrayList<>(); // component id, cve id
+            List<Object[]> removals = new ArrayList<>();
+            List<Long> changedComponents = new ArrayList<>();
+            for (int i = 0; i < due.size(); i++) {
+                Coordinate coordinate = due.get(i);
+                List<Vulnerability> found = results.get(i);
+                Long componentId = components.get(coordinate);
+                if (componentId == null) {
+                    // no package uses this coordinate any more
+                    jdbcTemplate.update(DELETE_COORDINATE, coordinate.purl, coordinate.name, coordinate.version);
+                    totals[2]++;
+                    continue;
+                }
+                if (found == null) {
+                    jdbcTemplate.update(MARK_FAILED, retryDelayMs / 1000.0 * (1 + jitter * random.nextDouble()),
+                            coordinate.purl, coordinate.name, coordinate.version);
+                    totals[1]++;
+                    continue;
+                }
+
+                Set<String> cveIds = new HashSet<>();
+                for (Vulnerability v : found) {
+                    cveIds.add(v.getCveId());
+                    wanted.putIfAbsent(v.getCveId(), v);
+                }
+                Set<String> linked = current.getOrDefault(componentId, Set.of());
+                boolean changed = false;
+                for (String cveId : cveIds) {
+                    if (!linked.contains(cveId)) {
+                        additions.add(new Object[]{componentId, cveId});
+                        changed = true;
+                    }
+                }
+                for (String cveId : linked) {
+                    if (!cveIds.contains(cveId)) {
+                        removals.add(new Object[]{componentId, cveId});
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    changedComponents.add(componentId);
+                }
+                jdbcTemplate.update(MARK_CHECKED, cveIds.size(), nextCheckSeconds(),
+                        coordinate.purl, coordinate.name, coordinate.version);
+                totals[0]++;
+            }
+
+            if (!changedComponents.isEmpty()) {
+                changedDevices.addAll(jdbcTemplate.queryForList(DEVICES_OF_COMPONENTS, Long.class,
+                        (Object) changedComponents.toArray(new Long[0])));
+            }
+            applyLinks(wanted, additions, removals);
+            totals[3] += additions.size();
+            totals[4] += removals.size();
+        });
+
+        checked.addAndGet(results.stream().filter(Objects::nonNull).count());
+        failed.addAndGet(results.stream().filter(Objects::isNull).count());
+    }
+
+    private void applyLinks(Map<String, Vulnerability> wanted, List<Object[]> additions, List<Object[]> removals) {
+        if (!additions.isEmpty()) {
+            Set<String> added = new HashSet<>();
+            for (Object[] addition : additions) {
+                added.add((String) addition[1]);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (String cveId : added) {
+                Vulnerability v = wanted.get(cveId);
+                rows.add(new Object[]{cveId, truncate(v.getDescription()), v.getSeverity(), truncate(v.getSourceUrl()),
+                        v.getSeverityLevel(), v.getCvssScore()});
+            }
+            jdbcTemplate.batchUpdate(INSERT_VULNERABILITY, rows);
+
+            Map<String, Long> ids = new HashMap<>();
+            jdbcTemplate.query(VULNERABILITY_IDS, rs -> { ids.put(rs.getString(2), rs.getLong(1)); },
+                    (Object) added.toArray(new String[0]));
+            List<Object[]> links = new ArrayList<>(additions.size());
+            for (Object[] addition : additions) {
+                links.add(new Object[]{addition[0], ids.get((String) addition[1])});
+            }
+            jdbcTemplate.batchUpdate(INSERT_LINK, links);
+        }
+        if (!removals.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LINK, removals);
+        }
+        linksAdded.addAndGet(additions.size());
+        linksRemoved.addAndGet(removals.size());
+    }
+
+    // Looks up every coordinate; a null entry means the lookup failed and the links stay as they are.
+    private List<List<Vulnerability>> fetch(List<Coordinate> due) {
+        List<SoftwarePackage> packages = new ArrayList<>(due.size());
+        for (Coordinate coordinate : due) {
+            packages.add(coordinate.toPackage());
+        }
+        if (sbomService.useLocalAdvisories()) {
+            return new ArrayList<>(localAdvisoryService.findVulnerabilities(packages));
+        }
+
+        // OSV API: at most `concurrency` requests in flight, started no faster than the rate limit
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread thread = new Thread(r, "vulnerability-rescan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<List<Vulnerability>>> futures = new ArrayList<>(packages.size());
+        for (SoftwarePackage pkg : packages) {
+            futures.add(pool.submit(() -> {
+                throttle();
+                return sbomService.queryOsv(pkg);
+            }));
+        }
+        pool.shutdown();
+
+        List<List<Vulnerability>> results = new ArrayList<>(packages.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                results.add(null);
+            } catch (ExecutionException e) {
+                System.err.println("Re-scan of " + packages.get(i).getName() + "@" + packages.get(i).getVersion()
+                        + " failed: " + e.getCause().getMessage());
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    // spaces request starts 1 / max-requests-per-second apart across all workers
+    private void throttle() throws InterruptedException {
+        if (maxRequestsPerSecond <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextRequestAt);
+            nextRequestAt = start + (long) (1_000_000_000L / maxRequestsPerSecond);
+            wait = start - now;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+    }
+
+    private double periodSeconds() {
+        return periodHours * 3600;
+    }
+
+    // one period, minus up to `jitter` of it, so checks drift apart instead of bunching up
+    private double nextCheckSeconds() {
+        return periodSeconds() * (1 - jitter * random.nextDouble());
+    }
+
+    // vulnerabilities.description and source_url are varchar(255)
+    private static String truncate(String value) {
+        if (value == null) return null;
+        return value.length() <= 255 ? value : value.substring(0, 252) + "...";
+    }
+}
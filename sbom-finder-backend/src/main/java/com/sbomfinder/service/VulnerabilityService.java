@@ -1,12 +1,16 @@
 package com.sbomfinder.service;
 
+import com.sbomfinder.dto.AffectedDeviceDTO;
+import com.sbomfinder.dto.AffectedPackageDTO;
 import com.sbomfinder.dto.VulnerabilityDTO;
 import com.sbomfinder.model.SoftwarePackage;
 import com.sbomfinder.model.Vulnerability;
 import com.sbomfinder.repository.SoftwarePackageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -17,6 +21,70 @@ import java.util.ArrayList;
 public class VulnerabilityService {
     @Autowired
     private SoftwarePackageRepository softwarePackageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // One (cve, device) pair per group, numbered with dense_rank so a page is a range of
+    // groups no matter how many packages each device has. The total rides along in every row.
+    private static final String AFFECTED_DEVICES =
+            "WITH hits AS (" +
+            "  SELECT v.cve_id, sp.device_id, d.device_name, sp.name, sp.version," +
+            "         dense_rank() OVER (ORDER BY v.cve_id, sp.device_id) AS grp" +
+            "  FROM vulnerabilities v" +
+            "  JOIN component_vulnerabilities cv ON cv.vulnerability_id = v.id" +
+            "  JOIN software_packages sp ON sp.component_id = cv.component_id" +
+            "  JOIN devices d ON d.id = sp.device_id" +
+            "  WHERE v.cve_id = ANY (?)" +
+            "), counted AS (SELECT hits.*, max(grp) OVER () AS total FROM hits) " +
+            "SELECT cve_id, device_id, device_name, name, version, total FROM counted " +
+            "WHERE grp > ? AND grp <= ? ORDER BY grp, name, version";
+
+    private static final String COUNT_AFFECTED_DEVICES =
+            "SELECT count(DISTINCT (v.cve_id, sp.device_id)) FROM vulnerabilities v" +
+            " JOIN component_vulnerabilities cv ON cv.vulnerability_id = v.id" +
+            " JOIN software_packages sp ON sp.component_id = cv.component_id" +
+            " WHERE v.cve_id = ANY (?) AND sp.device_id IS NOT NULL";
+
+    public static class AffectedDevicesPage {
+        private final List<AffectedDeviceDTO> results;
+        private final long total;
+
+        AffectedDevicesPage(List<AffectedDeviceDTO> results, long total) {
+            this.results = results;
+            this.total = total;
+        }
+
+        public List<AffectedDeviceDTO> getResults() { return results; }
+        public long getTotal() { return total; }
+    }
+
+    // Devices (and their package versions) affected by the given CVEs, one entry per CVE and device.
+    public AffectedDevicesPage findAffectedDevices(Collection<String> cveIds, int page, int size) {
+        String[] ids = cveIds.toArray(new String[0]);
+        long offset = (long) page * size;
+        List<AffectedDeviceDTO> results = new ArrayList<>();
+        long[] total = {0};
+
+        jdbcTemplate.query(AFFECTED_DEVICES, rs -> {
+            String cveId = rs.getString(1);
+            long deviceId = rs.getLong(2);
+            AffectedDeviceDTO last = results.isEmpty() ? null : results.get(results.size() - 1);
+            if (last == null || !last.getCveId().equals(cveId) || last.getDeviceId() != deviceId) {
+                last = new AffectedDeviceDTO(cveId, deviceId, rs.getString(3));
+                results.add(last);
+            }
+            last.getPackages().add(new AffectedPackageDTO(rs.getString(4), rs.getString(5)));
+            total[0] = rs.getLong(6);
+        }, ids, offset, offset + size);
+
+        if (results.isEmpty() && page > 0) {
+            // past the last page: the window total is not available
+            Long count = jdbcTemplate.queryForObject(COUNT_AFFECTED_DEVICES, Long.class, (Object) ids);
+            total[0] = count != null ? count : 0;
+        }
+        return new AffectedDevicesPage(results, total[0]);
+    }
     public List<VulnerabilityDTO> getVulnerabilitiesByPackageId(Long packageId) {
         Optional<SoftwarePackage> optionalPkg = softwarePackageRepository.findById(packageId);
         if (optionalPkg.isEmpty()) return new ArrayList<>();
@@ -0,0 +1,85 @@
+package com.sbomfinder.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compression for archived SBOM objects. Each object is a small JSON document (one component,
+// one vulnerability or one manifest), too short for deflate to learn from on its own, so all of
+// them are compressed against a shared preset dictionary of the strings they have in common.
+// The first byte of every payload names the dictionary; a dictionary must never change once
+// payloads were written with it, so new dictionaries get a new id.
+public class ArchiveCodec {
+
+    private static final byte DICTIONARY_V1 = 1;
+
+    // deflate favours matches near the end of the dictionary, so the most common strings go last
+    private static final byte[] DICTIONARY_V1_BYTES = (
+            "pkg:composer/pkg:cargo/pkg:golang/github.com/pkg:maven/org.apache.pkg:pypi/"
+            + "\"severity\":\"CVSS_V3\",\"severity\":\"Unknown\",\"cvssScore\":0.0,"
+            + "{\"cveId\":\"GHSA-\",\"cveId\":\"CVE-20\",\"cvssScore\":"
+            + ",\"affectedComponents\":[\"pkg:npm/"
+            + "{\"deviceName\":\"\",\"version\":\"\",\"components\":[\"\",\"vulnerabilities\":[\""
+            + "\",\"supplier\":\"Unknown\"}\",\"supplier\":\"NOASSERTION\"}"
+            + "{\"name\":\"\",\"version\":\"^~>=\",\"purl\":\"pkg:npm/"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    public static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY_V1_BYTES);
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            out.write(DICTIONARY_V1);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] decompress(byte[] payload, int rawLength) throws IOException {
+        if (payload.length == 0 || payload[0] != DICTIONARY_V1) {
+            throw new IOException("Unknown archive payload dictionary: " + (payload.length == 0 ? "empty" : payload[0]));
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, 1, payload.length - 1);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength) {
+                int n = inflater.inflate(raw, offset, rawLength - offset);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY_V1_BYTES);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        throw new IOException("Archive payload is shorter than its recorded length");
+                    }
+                }
+                offset += n;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // content address of an object: SHA-256 of its uncompressed bytes
+    public static String hash(byte[] raw) {
+        return DigestUtils.sha256Hex(raw);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sbomfinder.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// CVSS v3.0/v3.1 base score from a vector string such as
+// "CVSS:3.1/AV:N/AC:L/PR:N/UI:N/S:U/C:H/I:H/A:H" (9.8), following the formula in the
+// FIRST specification. OSV records carry the vector, not the number.
+public class CvssScore {
+
+    // null for anything that is not a complete v3 vector (v2, v4, plain numbers are handled by the caller)
+    public static Double baseScore(String vector) {
+        if (vector == null || !vector.startsWith("CVSS:3.")) {
+            return null;
+        }
+        Map<String, String> metrics = new HashMap<>();
+        for (String part : vector.split("/")) {
+            int colon = part.indexOf(':');
+            if (colon > 0) {
+                metrics.put(part.substring(0, colon), part.substring(colon + 1));
+            }
+        }
+
+        boolean scopeChanged = "C".equals(metrics.get("S"));
+        Double av = weight(metrics.get("AV"), "N", 0.85, "A", 0.62, "L", 0.55, "P", 0.2);
+        Double ac = weight(metrics.get("AC"), "L", 0.77, "H", 0.44);
+        Double pr = scopeChanged
+                ? weight(metrics.get("PR"), "N", 0.85, "L", 0.68, "H", 0.5)
+                : weight(metrics.get("PR"), "N", 0.85, "L", 0.62, "H", 0.27);
+        Double ui = weight(metrics.get("UI"), "N", 0.85, "R", 0.62);
+        Double c = weight(metrics.get("C"), "H", 0.56, "L", 0.22, "N", 0.0);
+        Double i = weight(metrics.get("I"), "H", 0.56, "L", 0.22, "N", 0.0);
+        Double a = weight(metrics.get("A"), "H", 0.56, "L", 0.22, "N", 0.0);
+        if (av == null || ac == null || pr == null || ui == null || c == null || i == null || a == null
+                || !metrics.containsKey("S")) {
+            return null;
+        }
+
+        double iss = 1 - (1 - c) * (1 - i) * (1 - a);
+        double impact = scopeChanged
+                ? 7.52 * (iss - 0.029) - 3.25 * Math.pow(iss - 0.02, 15)
+                : 6.42 * iss;
+        if (impact <= 0) {
+            return 0.0;
+        }
+        double exploitability = 8.22 * av * ac * pr * ui;
+        return roundUp(Math.min(scopeChanged ? 1.08 * (impact + exploitability) : impact + exploitability, 10));
+    }
+
+    private static Double weight(String value, Object... pairs) {
+        for (int k = 0; k < pairs.length; k += 2) {
+            if (pairs[k].equals(value)) {
+                return (Double) pairs[k + 1];
+            }
+        }
+        return null;
+    }
+
+    // the specification's Roundup: smallest one-decimal number >= x, robust to float error
+    private static double roundUp(double x) {
+        long scaled = Math.round(x * 100000);
+        if (scaled % 10000 == 0) {
+            return scaled / 100000.0;
+        }
+        return (Math.floor(scaled / 10000.0) + 1) / 10.0;
+    }
+}
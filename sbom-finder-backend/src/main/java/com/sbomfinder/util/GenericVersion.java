@@ -0,0 +1,27 @@
+package com.sbomfinder.util;
+
+// Ecosystems without a dedicated scheme (RubyGems, NuGet, Packagist, distro packages, ...):
+// VersionComparator's numeric-aware ordering on the raw text.
+public class GenericVersion implements ParsedVersion {
+
+    private final String raw;
+
+    public GenericVersion(String raw) {
+        this.raw = raw;
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(ParsedVersion other) {
+        return VersionComparator.compareVersions(raw, other.getRaw());
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
@@ -0,0 +1,165 @@
+package com.sbomfinder.util;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+// Maven's ComparableVersion ordering: the version splits into numbers and qualifiers at '.',
+// '-' and digit/letter transitions, '-' and digit/letter transitions open a nested list, and
+// trailing "null" items (0, "", "final", "ga", "release") are dropped, so 1.0 == 1 == 1-ga.
+// Known qualifiers order alpha < beta < milestone < rc = cr < snapshot < release < sp, unknown
+// ones come after them alphabetically; "a1", "b2", "m3" are alpha, beta and milestone.
+public class MavenVersion implements ParsedVersion {
+
+    private static final List<String> QUALIFIERS = Arrays.asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+    private static final String RELEASE_INDEX = String.valueOf(QUALIFIERS.indexOf(""));
+
+    private final String raw;
+    private final Items items;
+
+    private MavenVersion(String raw, Items items) {
+        this.raw = raw;
+        this.items = items;
+    }
+
+    // numbers are Long, qualifiers are their comparable form (String), sub-lists are Items
+    private static class Items extends ArrayList<Object> {
+        void normalize() {
+            for (int i = size() - 1; i >= 0; i--) {
+                Object item = get(i);
+                if (isNull(item)) {
+                    remove(i);
+                } else if (!(item instanceof Items)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public static MavenVersion parse(String raw) {
+        String version = raw.trim().toLowerCase(Locale.ROOT);
+        Items list = new Items();
+        Items root = list;
+        Deque<Items> stack = new ArrayDeque<>();
+        stack.push(list);
+
+        boolean digit = false;
+        int start = 0;
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+            if (c == '.') {
+                list.add(i == start ? (Object) 0L : item(digit, version.substring(start, i), false));
+                start = i + 1;
+            } else if (c == '-') {
+                list.add(i == start ? (Object) 0L : item(digit, version.substring(start, i), false));
+                start = i + 1;
+                Items sub = new Items();
+                list.add(sub);
+                list = sub;
+                stack.push(list);
+            } else if (Character.isDigit(c)) {
+                if (!digit && i > start) {
+                    // "rc1": the qualifier, then the number in a nested list
+                    list.add(item(false, version.substring(start, i), true));
+                    start = i;
+                    Items sub = new Items();
+                    list.add(sub);
+                    list = sub;
+                    stack.push(list);
+                }
+                digit = true;
+            } else {
+                if (digit && i > start) {
+                    list.add(item(true, version.substring(start, i), false));
+                    start = i;
+                    Items sub = new Items();
+                    list.add(sub);
+                    list = sub;
+                    stack.push(list);
+                }
+                digit = false;
+            }
+        }
+        if (version.length() > start) {
+            list.add(item(digit, version.substring(start), false));
+        }
+        while (!stack.isEmpty()) {
+            stack.pop().normalize();
+        }
+        return new MavenVersion(raw, root);
+    }
+
+    private static Object item(boolean digit, String text, boolean followedByDigit) {
+        if (digit) {
+            String trimmed = text.replaceFirst("^0+(?=.)", "");
+            return trimmed.length() > 18 ? Long.MAX_VALUE : Long.parseLong(trimmed);
+        }
+        String q = text;
+        if (followedByDigit && q.length() == 1) {
+            q = q.equals("a") ? "alpha" : q.equals("b") ? "beta" : q.equals("m") ? "milestone" : q;
+        }
+        switch (q) {
+            case "ga": case "final": case "release": q = ""; break;
+            case "cr": q = "rc"; break;
+            default: break;
+        }
+        int index = QUALIFIERS.indexOf(q);
+        return index >= 0 ? String.valueOf(index) : QUALIFIERS.size() + "-" + q;
+    }
+
+    private static boolean isNull(Object item) {
+        if (item instanceof Long) return (Long) item == 0L;
+        if (item instanceof String) return RELEASE_INDEX.equals(item);
+        return ((Items) item).isEmpty();
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(ParsedVersion other) {
+        if (!(other instanceof MavenVersion)) {
+            return VersionComparator.compareVersions(raw, other.getRaw());
+        }
+        return compare(items, ((MavenVersion) other).items);
+    }
+
+    // ComparableVersion.Item.compareTo, with null standing for a missing item
+    private static int compare(Object a, Object b) {
+        if (a == null) {
+            return b == null ? 0 : -compare(b, null);
+        }
+        if (a instanceof Long) {
+            if (b == null) return (Long) a == 0L ? 0 : 1;
+            if (b instanceof Long) return Long.compare((Long) a, (Long) b);
+            return 1; // a number is newer than a qualifier or a sub-list
+        }
+        if (a instanceof String) {
+            if (b == null) return ((String) a).compareTo(RELEASE_INDEX);
+            if (b instanceof String) return ((String) a).compareTo((String) b);
+            return -1;
+        }
+        Items list = (Items) a;
+        if (b == null) {
+            return list.isEmpty() ? 0 : compare(list.get(0), null);
+        }
+        if (b instanceof Long) return -1;
+        if (b instanceof String) return 1;
+        Items o = (Items) b;
+        for (int i = 0; i < Math.max(list.size(), o.size()); i++) {
+            int cmp = compare(i < list.size() ? list.get(i) : null, i < o.size() ? o.get(i) : null);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
@@ -0,0 +1,386 @@
+package com.sbomfinder.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Parsed package URL (https://github.com/package-url/purl-spec):
+// pkg:type/namespace/name@version?qualifiers#subpath
+// Components are stored percent-decoded and normalized per type (lower-cased where the spec
+// says the type is case-insensitive, PyPI "_" -> "-", Maven "group:artifact" names as written
+// by older uploads split into namespace and name). toString() gives the canonical, encoded form.
+// Instances are immutable; parse() caches them by input string, and the type, namespace and
+// qualifier keys are interned, since a fleet repeats the same few thousand of those.
+public final class PackageUrl {
+
+    private static final int CACHE_LIMIT = 100_000;
+    private static final int INTERN_LIMIT = 50_000;
+
+    private static final Map<String, PackageUrl> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, String> INTERNED = new ConcurrentHashMap<>();
+    // cached marker for strings that are not purls
+    private static final PackageUrl INVALID = new PackageUrl("", null, "", null, Map.of(), null);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String type;
+    private final String namespace;
+    private final String name;
+    private final String version;
+    private final Map<String, String> qualifiers;
+    private final String subpath;
+    private String canonical;
+
+    private PackageUrl(String type, String namespace, String name, String version,
+                       Map<String, String> qualifiers, String subpath) {
+        this.type = type;
+        this.namespace = namespace;
+        this.name = name;
+        this.version = version;
+        this.qualifiers = qualifiers;
+        this.subpath = subpath;
+    }
+
+    // Builds a purl from its parts; the parts are normalized like parsed ones.
+    public static PackageUrl of(String type, String namespace, String name, String version) {
+        if (type == null || type.isBlank() || name == null || name.isBlank()) {
+            throw new IllegalArgumentException("A package URL needs a type and a name");
+        }
+        String t = intern(type.trim().toLowerCase(Locale.ROOT));
+        String[] nsAndName = normalize(t, emptyToNull(namespace), name);
+        return new PackageUrl(t, nsAndName[0], nsAndName[1], emptyToNull(version), Map.of(), null);
+    }
+
+    // Purl for a package name as the dependency file spells it: npm "@scope/name", Maven
+    // "group:artifact", Go and Composer paths, or a plain name.
+    public static PackageUrl forPackage(String type, String packageName, String version) {
+        String t = type.trim().toLowerCase(Locale.ROOT);
+        String p = packageName.trim();
+        int sep = "maven".equals(t) ? p.lastIndexOf(':') : p.lastIndexOf('/');
+        if (sep > 0 && sep < p.length() - 1) {
+            return of(t, p.substring(0, sep), p.substring(sep + 1), version);
+        }
+        return of(t, null, p, version);
+    }
+
+    // The parsed purl, or null when the string is not a valid purl. Cached.
+    public static PackageUrl tryParse(String purl) {
+        if (purl == null || purl.isEmpty()) {
+            return null;
+        }
+        PackageUrl parsed = CACHE.get(purl);
+        if (parsed == null) {
+            if (CACHE.size() >= CACHE_LIMIT) {
+                // cheaper than LRU bookkeeping on every hit; the working set refills quickly
+                CACHE.clear();
+            }
+            try {
+                parsed = parseUncached(purl);
+            } catch (IllegalArgumentException e) {
+                parsed = INVALID;
+            }
+            CACHE.put(purl, parsed);
+        }
+        return parsed == INVALID ? null : parsed;
+    }
+
+    public static PackageUrl parse(String purl) {
+        PackageUrl parsed = tryParse(purl);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid package URL: " + purl);
+        }
+        return parsed;
+    }
+
+    // The purl-spec parsing procedure: split off #subpath, ?qualifiers, the scheme, type,
+    // @version (from the right), then name and namespace segments.
+    private static PackageUrl parseUncached(String purl) {
+        String rest = purl.trim();
+
+        String subpath = null;
+        int hash = rest.lastIndexOf('#');
+        if (hash >= 0) {
+            subpath = normalizeSubpath(rest.substring(hash + 1));
+            rest = rest.substring(0, hash);
+        }
+
+        Map<String, String> qualifiers = Map.of();
+        int question = rest.lastIndexOf('?');
+        if (question >= 0) {
+            qualifiers = parseQualifiers(rest.substring(question + 1));
+            rest = rest.substring(0, question);
+        }
+
+        if (!rest.regionMatches(true, 0, "pkg:", 0, 4)) {
+            throw new IllegalArgumentException("Missing pkg: scheme");
+        }
+        rest = stripSlashes(rest.substring(4));
+
+        int slash = rest.indexOf('/');
+        if (slash <= 0) {
+            throw new IllegalArgumentException("Missing type or name");
+        }
+        String type = rest.substring(0, slash).toLowerCase(Locale.ROOT);
+        for (int i = 0; i < type.length(); i++) {
+            char c = type.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '.' || c == '+' || c == '-')) {
+                throw new IllegalArgumentException("Invalid type: " + type);
+            }
+        }
+        rest = rest.substring(slash + 1);
+
+        String version = null;
+        int at = rest.lastIndexOf('@');
+        // an '@' right after a slash (or at the start) begins a scope such as npm's @angular
+        if (at > 0 && rest.charAt(at - 1) != '/') {
+            version = emptyToNull(percentDecode(rest.substring(at + 1)));
+            rest = rest.substring(0, at);
+        }
+
+        rest = stripSlashes(rest);
+        int lastSlash = rest.lastIndexOf('/');
+        String name = percentDecode(rest.substring(lastSlash + 1));
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Missing name");
+        }
+        String namespace = null;
+        if (lastSlash > 0) {
+            StringBuilder ns = new StringBuilder();
+            for (String segment : rest.substring(0, lastSlash).split("/")) {
+                if (!segment.isEmpty()) {
+                    if (ns.length() > 0) ns.append('/');
+                    ns.append(percentDecode(segment));
+                }
+            }
+            namespace = emptyToNull(ns.toString());
+        }
+
+        String internedType = intern(type);
+        String[] nsAndName = normalize(internedType, namespace, name);
+        return new PackageUrl(internedType, nsAndName[0], nsAndName[1], version, qualifiers, subpath);
+    }
+
+    private static Map<String, String> parseQualifiers(String query) {
+        Map<String, String> qualifiers = new TreeMap<>();
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String value = percentDecode(pair.substring(eq + 1));
+            // qualifiers without a value are the same as absent ones
+            if (!value.isEmpty()) {
+                qualifiers.put(intern(pair.substring(0, eq).toLowerCase(Locale.ROOT)), value);
+            }
+        }
+        return qualifiers.isEmpty() ? Map.of() : Collections.unmodifiableMap(qualifiers);
+    }
+
+    private static String normalizeSubpath(String raw) {
+        StringBuilder subpath = new StringBuilder();
+        for (String segment : raw.split("/")) {
+            String decoded = percentDecode(segment);
+            if (!decoded.isEmpty() && !decoded.equals(".") && !decoded.equals("..")) {
+                if (subpath.length() > 0) subpath.append('/');
+                subpath.append(decoded);
+            }
+        }
+        return emptyToNull(subpath.toString());
+    }
+
+    // [namespace, name] with the case rules of the type
+    private static String[] normalize(String type, String namespace, String name) {
+        switch (type) {
+            case "maven":
+                // SbomService used to write pkg:maven/group:artifact
+                if (namespace == null && name.indexOf(':') > 0) {
+                    int colon = name.indexOf(':');
+                    namespace = name.substring(0, colon);
+                    name = name.substring(colon + 1);
+                }
+                break;
+            case "pypi":
+                name = name.toLowerCase(Locale.ROOT).replace('_', '-');
+                break;
+            case "npm":
+            case "github":
+            case "bitbucket":
+            case "golang":
+            case "composer":
+            case "deb":
+            case "apk":
+                namespace = namespace != null ? namespace.toLowerCase(Locale.ROOT) : null;
+                name = name.toLowerCase(Locale.ROOT);
+                break;
+            default:
+                break;
+        }
+        return new String[]{namespace != null ? intern(namespace) : null, name};
+    }
+
+    public String getType() { return type; }
+    public String getNamespace() { return namespace; }
+    public String getName() { return name; }
+    public String getVersion() { return version; }
+    public Map<String, String> getQualifiers() { return qualifiers; }
+    public String getSubpath() { return subpath; }
+
+    public PackageUrl withVersion(String newVersion) {
+        String v = emptyToNull(newVersion);
+        return Objects.equals(v, version) ? this : new PackageUrl(type, namespace, name, v, qualifiers, subpath);
+    }
+
+    // Identity of the package regardless of version, qualifiers and subpath, unencoded:
+    // "pkg:npm/@angular/core", "pkg:maven/org.apache.logging.log4j/log4j-core".
+    public String packageKey() {
+        return "pkg:" + type + "/" + (namespace != null ? namespace + "/" : "") + name;
+    }
+
+    // OSV ecosystem for the type, or null when OSV has none for it
+    public String osvEcosystem() {
+        switch (type) {
+            case "npm": return "npm";
+            case "pypi": return "PyPI";
+            case "maven": return "Maven";
+            case "golang": return "Go";
+            case "cargo": return "crates.io";
+            case "gem": return "RubyGems";
+            case "nuget": return "NuGet";
+            case "composer": return "Packagist";
+            case "hex": return "Hex";
+            case "pub": return "Pub";
+            case "hackage": return "Hackage";
+            case "cran": return "CRAN";
+            default: return null;
+        }
+    }
+
+    // Package name the way OSV spells it: npm keeps its @scope, Maven is group:artifact,
+    // Go and Packagist keep the full path.
+    public String osvName() {
+        if (namespace == null) {
+            return name;
+        }
+        return namespace + ("maven".equals(type) ? ":" : "/") + name;
+    }
+
+    @Override
+    public String toString() {
+        String s = canonical;
+        if (s == null) {
+            StringBuilder sb = new StringBuilder("pkg:").append(type).append('/');
+            if (namespace != null) {
+                for (String segment : namespace.split("/")) {
+                    sb.append(percentEncode(segment)).append('/');
+                }
+            }
+            sb.append(percentEncode(name));
+            if (version != null) {
+                sb.append('@').append(percentEncode(version));
+            }
+            if (!qualifiers.isEmpty()) {
+                char sep = '?';
+                for (Map.Entry<String, String> q : qualifiers.entrySet()) {
+                    sb.append(sep).append(q.getKey()).append('=').append(percentEncode(q.getValue()));
+                    sep = '&';
+                }
+            }
+            if (subpath != null) {
+                sb.append('#');
+                String[] segments = subpath.split("/");
+                for (int i = 0; i < segments.length; i++) {
+                    if (i > 0) sb.append('/');
+                    sb.append(percentEncode(segments[i]));
+                }
+            }
+            s = sb.toString();
+            canonical = s;
+        }
+        return s;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PackageUrl)) return false;
+        PackageUrl p = (PackageUrl) o;
+        return type.equals(p.type) && Objects.equals(namespace, p.namespace) && name.equals(p.name)
+                && Objects.equals(version, p.version) && qualifiers.equals(p.qualifiers) && Objects.equals(subpath, p.subpath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, namespace, name, version, qualifiers, subpath);
+    }
+
+    private static String intern(String value) {
+        String interned = INTERNED.get(value);
+        if (interned == null) {
+            if (INTERNED.size() >= INTERN_LIMIT) {
+                INTERNED.clear();
+            }
+            interned = INTERNED.putIfAbsent(value, value);
+            if (interned == null) {
+                interned = value;
+            }
+        }
+        return interned;
+    }
+
+    private static String stripSlashes(String value) {
+        int start = 0, end = value.length();
+        while (start < end && value.charAt(start) == '/') start++;
+        while (end > start && value.charAt(end - 1) == '/') end--;
+        return value.substring(start, end);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    // everything but unreserved characters and ':' is encoded, as in the spec's canonical form
+    private static String percentEncode(String value) {
+        int i = 0;
+        while (i < value.length() && isPlain(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+        for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            int u = b & 0xff;
+            if (isPlain((char) u)) {
+                sb.append((char) u);
+            } else {
+                sb.append('%').append(HEX[u >> 4]).append(HEX[u & 0xf]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isPlain(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '.' || c == '-' || c == '_' || c == '~' || c == ':';
+    }
+
+    static String percentDecode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length() && Character.digit(value.charAt(i + 1), 16) >= 0
+                    && Character.digit(value.charAt(i + 2), 16) >= 0) {
+                out.write(Integer.parseInt(value.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                int cp = value.codePointAt(i);
+                out.writeBytes(new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8));
+                i += Character.charCount(cp) - 1;
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
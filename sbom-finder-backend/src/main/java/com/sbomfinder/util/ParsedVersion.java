@@ -0,0 +1,8 @@
+package com.sbomfinder.util;
+
+// A version string parsed once under one VersionScheme, so repeated comparisons do not
+// re-tokenize it. Versions of different schemes fall back to VersionComparator on the raw text.
+public interface ParsedVersion extends Comparable<ParsedVersion> {
+
+    String getRaw();
+}
@@ -0,0 +1,140 @@
+package com.sbomfinder.util;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// PEP 440 ordering for PyPI: [N!]N(.N)*[{a|b|rc}N][.postN][.devN][+local], with the spellings
+// the spec normalizes ("1.0-alpha.1", "1.0c1", "1.0-1", "1.0.r2", "v1.0") and its sort key:
+// 1.0.dev0 < 1.0a1.dev0 < 1.0a1 < 1.0b1 < 1.0rc1 < 1.0 < 1.0+local < 1.0.post1.dev0 < 1.0.post1.
+// Strings that are not PEP 440 sort before all that are, and among themselves by VersionComparator.
+public class Pep440Version implements ParsedVersion {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "v?(?:(?<epoch>[0-9]+)!)?(?<release>[0-9]+(?:\\.[0-9]+)*)"
+            + "(?<pre>[-_.]?(?<prel>alpha|a|beta|b|preview|pre|c|rc)[-_.]?(?<pren>[0-9]+)?)?"
+            + "(?<post>-(?<postn1>[0-9]+)|[-_.]?(?<postl>post|rev|r)[-_.]?(?<postn2>[0-9]+)?)?"
+            + "(?<dev>[-_.]?dev[-_.]?(?<devn>[0-9]+)?)?"
+            + "(?:\\+(?<local>[a-z0-9]+(?:[-_.][a-z0-9]+)*))?");
+
+    // pre-release phase: a dev-only release sorts before every pre-release, a final release after
+    private static final int PRE_DEV_ONLY = -1;
+    private static final int PRE_NONE = 3;
+
+    private final String raw;
+    private final boolean valid;
+    private long epoch;
+    private long[] release;
+    private int prePhase;
+    private long preNumber;
+    private long post = Long.MIN_VALUE;
+    private long dev = Long.MAX_VALUE;
+    private String[] local;
+
+    private Pep440Version(String raw, boolean valid) {
+        this.raw = raw;
+        this.valid = valid;
+    }
+
+    public static Pep440Version parse(String raw) {
+        Matcher m = PATTERN.matcher(raw.trim().toLowerCase(Locale.ROOT));
+        if (!m.matches()) {
+            return new Pep440Version(raw, false);
+        }
+        Pep440Version v = new Pep440Version(raw, true);
+        v.epoch = m.group("epoch") != null ? number(m.group("epoch")) : 0;
+
+        String[] parts = m.group("release").split("\\.");
+        int length = parts.length;
+        // 1.0 == 1.0.0
+        while (length > 1 && number(parts[length - 1]) == 0) length--;
+        v.release = new long[length];
+        for (int i = 0; i < length; i++) {
+            v.release[i] = number(parts[i]);
+        }
+
+        if (m.group("pre") != null) {
+            String label = m.group("prel");
+            v.prePhase = label.startsWith("a") ? 0 : label.startsWith("b") ? 1 : 2;
+            v.preNumber = m.group("pren") != null ? number(m.group("pren")) : 0;
+        } else {
+            v.prePhase = m.group("post") == null && m.group("dev") != null ? PRE_DEV_ONLY : PRE_NONE;
+        }
+        if (m.group("post") != null) {
+            String n = m.group("postn1") != null ? m.group("postn1") : m.group("postn2");
+            v.post = n != null ? number(n) : 0;
+        }
+        if (m.group("dev") != null) {
+            v.dev = m.group("devn") != null ? number(m.group("devn")) : 0;
+        }
+        if (m.group("local") != null) {
+            v.local = m.group("local").split("[-_.]");
+        }
+        return v;
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(ParsedVersion other) {
+        if (!(other instanceof Pep440Version)) {
+            return VersionComparator.compareVersions(raw, other.getRaw());
+        }
+        Pep440Version o = (Pep440Version) other;
+        // unparseable versions sort before all valid ones, so mixing both stays transitive
+        if (!valid || !o.valid) {
+            return valid == o.valid ? VersionComparator.compareVersions(raw, o.raw) : (valid ? 1 : -1);
+        }
+        int cmp = Long.compare(epoch, o.epoch);
+        if (cmp != 0) return cmp;
+        for (int i = 0; i < Math.max(release.length, o.release.length); i++) {
+            cmp = Long.compare(i < release.length ? release[i] : 0, i < o.release.length ? o.release[i] : 0);
+            if (cmp != 0) return cmp;
+        }
+        cmp = Integer.compare(prePhase, o.prePhase);
+        if (cmp != 0) return cmp;
+        cmp = Long.compare(preNumber, o.preNumber);
+        if (cmp != 0) return cmp;
+        cmp = Long.compare(post, o.post);
+        if (cmp != 0) return cmp;
+        cmp = Long.compare(dev, o.dev);
+        if (cmp != 0) return cmp;
+        return compareLocal(local, o.local);
+    }
+
+    // no local label sorts first; numeric segments sort after alphanumeric ones
+    private static int compareLocal(String[] a, String[] b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : (a == null ? -1 : 1);
+        }
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            boolean numA = isNumeric(a[i]);
+            boolean numB = isNumeric(b[i]);
+            int cmp;
+            if (numA && numB) cmp = Long.compare(number(a[i]), number(b[i]));
+            else if (numA != numB) cmp = numA ? 1 : -1;
+            else cmp = a[i].compareTo(b[i]);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static boolean isNumeric(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        }
+        return !s.isEmpty();
+    }
+
+    private static long number(String digits) {
+        return digits.length() > 18 ? Long.MAX_VALUE : Long.parseLong(digits);
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
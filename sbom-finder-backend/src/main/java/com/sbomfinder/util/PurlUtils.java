@@ -0,0 +1,39 @@
+package com.sbomfinder.util;
+
+import java.util.Locale;
+
+// Helpers for matching packages across SBOMs by package URL. Parsing is done (and cached) by
+// PackageUrl; these keep working for components with no purl or a malformed one.
+public class PurlUtils {
+
+    // Identity of a package regardless of version: the purl without version, qualifiers and
+    // subpath, with the parts the purl spec treats as case-insensitive lower-cased.
+    // Components without a usable purl fall back to their name.
+    public static String packageKey(String purl, String name) {
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        if (parsed != null) {
+            return parsed.packageKey();
+        }
+        if (purl != null && purl.startsWith("pkg:")) {
+            // malformed, but still better than the name to tell packages apart
+            return purl.trim().toLowerCase(Locale.ROOT);
+        }
+        return "name:" + (name != null ? name.trim().toLowerCase(Locale.ROOT) : "");
+    }
+
+    // OSV ecosystem for the purl's type, or null when OSV has none for it
+    public static String osvEcosystem(String purl) {
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        return parsed != null ? parsed.osvEcosystem() : null;
+    }
+
+    // Package name the way OSV spells it: npm keeps its @scope, Maven is group:artifact,
+    // Go and Packagist keep the full path. Falls back to the component name without a purl.
+    public static String osvName(String purl, String fallbackName) {
+        PackageUrl parsed = PackageUrl.tryParse(purl);
+        if (parsed != null) {
+            return parsed.osvName();
+        }
+        return fallbackName != null ? fallbackName.trim() : "";
+    }
+}
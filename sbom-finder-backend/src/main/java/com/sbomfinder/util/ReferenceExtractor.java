@@ -0,0 +1,171 @@
+package com.sbomfinder.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Set;
+
+public class ReferenceExtractor {
+
+    public static final String TYPE_VCS = "VCS";
+    public static final String TYPE_ISSUE_TRACKER = "ISSUE_TRACKER";
+    public static final String TYPE_LICENSE = "LICENSE";
+    public static final String TYPE_DOWNLOAD = "DOWNLOAD";
+    public static final String TYPE_WEBSITE = "WEBSITE";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_URL_LENGTH = 2048;
+
+    // prefix states: "http" -> optional "s" -> "://"
+    private static final byte[] PREFIX = "http".getBytes(StandardCharsets.US_ASCII);
+    private static final int STATE_SCHEME_END = PREFIX.length;   // after "http", expecting 's' or ':'
+    private static final int STATE_COLON = STATE_SCHEME_END + 1; // after ':', expecting '/'
+    private static final int STATE_SLASH = STATE_COLON + 1;      // after ":/", expecting '/'
+    private static final int STATE_BODY = STATE_SLASH + 1;       // inside the URL
+    private static final int STATE_SKIP = STATE_BODY + 1;        // rest of a URL past MAX_URL_LENGTH
+
+    private static final boolean[] URL_CHARS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) URL_CHARS[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) URL_CHARS[c] = true;
+        for (char c = '0'; c <= '9'; c++) URL_CHARS[c] = true;
+        for (char c : "_./%-~:?#=&+@".toCharArray()) URL_CHARS[c] = true;
+    }
+
+    // Streams the file through a fixed buffer and adds every http(s) URL it finds to the sink.
+    // Matching runs on raw bytes, so the file is never decoded or split into lines.
+    public static void scan(Path file, Set<String> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] url = new byte[MAX_URL_LENGTH];
+            int urlLength = 0;
+            int state = 0;
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                byte[] data = buffer.array();
+                int limit = buffer.limit();
+
+                for (int i = 0; i < limit; i++) {
+                    int b = data[i] & 0xFF;
+
+                    boolean urlChar = b < 128 && URL_CHARS[b];
+                    if (state == STATE_BODY) {
+                        if (urlChar && urlLength < MAX_URL_LENGTH) {
+                            url[urlLength++] = (byte) b;
+                            continue;
+                        }
+                        // an overlong URL is kept truncated; its tail is not scanned for more URLs
+                        emit(url, urlLength, sink);
+                        state = urlChar ? STATE_SKIP : 0;
+                        urlLength = 0;
+                    }
+                    if (state == STATE_SKIP) {
+                        if (urlChar) {
+                            continue;
+                        }
+                        state = 0;
+                    }
+
+                    int lower = (b >= 'A' && b <= 'Z') ? b + 32 : b;
+                    if (state < STATE_SCHEME_END) {
+                        if (lower == PREFIX[state]) {
+                            state++;
+                        } else {
+                            state = lower == 'h' ? 1 : 0;
+                        }
+                    } else if (state == STATE_SCHEME_END) {
+                        if (lower == 's' && urlLength == 0) {
+                            urlLength = 1; // remember the https scheme while matching "://"
+                        } else if (b == ':') {
+                            state = STATE_COLON;
+                        } else {
+                            state = lower == 'h' ? 1 : 0;
+                            urlLength = 0;
+                        }
+                    } else if (state == STATE_COLON || state == STATE_SLASH) {
+                        if (b == '/') {
+                            state++;
+                            if (state == STATE_BODY) {
+                                urlLength = writeScheme(url, urlLength == 1);
+                            }
+                        } else {
+                            state = lower == 'h' ? 1 : 0;
+                            urlLength = 0;
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+
+            if (state == STATE_BODY) {
+                emit(url, urlLength, sink);
+            }
+        }
+    }
+
+    private static int writeScheme(byte[] url, boolean secure) {
+        byte[] scheme = (secure ? "https://" : "http://").getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(scheme, 0, url, 0, scheme.length);
+        return scheme.length;
+    }
+
+    private static void emit(byte[] url, int length, Set<String> sink) {
+        // drop trailing punctuation that belongs to the surrounding sentence
+        while (length > 0) {
+            byte last = url[length - 1];
+            if (last == '.' || last == ',' || last == ':' || last == '?' || last == '#') {
+                length--;
+            } else {
+                break;
+            }
+        }
+        int schemeLength = url[4] == 's' ? 8 : 7;
+        if (length > schemeLength) {
+            sink.add(new String(url, 0, length, StandardCharsets.US_ASCII));
+        }
+    }
+
+    // Maps a URL to the reference type it most likely points at.
+    public static String classify(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+
+        if (lower.contains("/issues") || lower.contains("/pulls") || lower.contains("bugzilla")
+                || lower.contains("jira") || lower.contains("/bugs")) {
+            return TYPE_ISSUE_TRACKER;
+        }
+        if (lower.contains("licen") || lower.contains("opensource.org") || lower.contains("spdx.org")
+                || lower.contains("creativecommons.org")) {
+            return TYPE_LICENSE;
+        }
+        if (lower.contains("/releases/download") || lower.contains("/archive/")
+                || lower.endsWith(".zip") || lower.endsWith(".tar.gz") || lower.endsWith(".tgz")
+                || lower.endsWith(".tar.xz") || lower.endsWith(".jar") || lower.endsWith(".whl")
+                || lower.endsWith(".deb") || lower.endsWith(".rpm")) {
+            return TYPE_DOWNLOAD;
+        }
+        if (lower.endsWith(".git") || isRepositoryRoot(lower)) {
+            return TYPE_VCS;
+        }
+        return TYPE_WEBSITE;
+    }
+
+    // github.com/owner/repo style links with nothing past the repository name
+    private static boolean isRepositoryRoot(String lower) {
+        int hostStart = lower.indexOf("://") + 3;
+        int pathStart = lower.indexOf('/', hostStart);
+        if (pathStart < 0) return false;
+
+        String host = lower.substring(hostStart, pathStart).replace("www.", "");
+        if (!host.equals("github.com") && !host.equals("gitlab.com") && !host.equals("bitbucket.org")) {
+            return false;
+        }
+        String[] segments = lower.substring(pathStart + 1).split("/");
+        return segments.length == 2;
+    }
+}
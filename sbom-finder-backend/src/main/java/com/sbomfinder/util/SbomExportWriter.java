@@ -0,0 +1,192 @@
+package com.sbomfinder.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.dto.UnifiedComponent;
+import com.sbomfinder.dto.UnifiedVulnerability;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Converts archived UnifiedSbomData JSON into CycloneDX or SPDX while reading it.
+// Components and vulnerabilities are read and written one at a time, so memory use
+// does not grow with the size of the SBOM.
+public class SbomExportWriter {
+
+    public static final String FORMAT_CYCLONEDX = "cyclonedx";
+    public static final String FORMAT_SPDX = "spdx";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_CYCLONEDX.equalsIgnoreCase(format) || FORMAT_SPDX.equalsIgnoreCase(format);
+    }
+
+    public static void write(String format, String unifiedJson, OutputStream out, boolean pretty) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(unifiedJson)) {
+            write(format, parser, out, pretty);
+        }
+    }
+
+    public static void write(String format, InputStream unifiedJson, OutputStream out, boolean pretty) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(unifiedJson)) {
+            write(format, parser, out, pretty);
+        }
+    }
+
+    private static void write(String format, JsonParser parser, OutputStream out, boolean pretty) throws IOException {
+        try (JsonGenerator gen = FACTORY.createGenerator(out)) {
+            // the caller owns the stream (servlet response, gzip wrapper, ...)
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (pretty) {
+                gen.useDefaultPrettyPrinter();
+            }
+
+            if (FORMAT_CYCLONEDX.equalsIgnoreCase(format)) {
+                writeCycloneDx(parser, gen);
+            } else if (FORMAT_SPDX.equalsIgnoreCase(format)) {
+                writeSpdx(parser, gen);
+            } else {
+                throw new IllegalArgumentException("Unsupported SBOM format: " + format);
+            }
+        }
+    }
+
+    private static void writeCycloneDx(JsonParser parser, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("bomFormat", "CycloneDX");
+        gen.writeStringField("specVersion", "1.4");
+        gen.writeNumberField("version", 1);
+
+        boolean componentsWritten = false;
+        expectObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("components".equals(field) && value == JsonToken.START_ARRAY) {
+                gen.writeArrayFieldStart("components");
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    writeCycloneDxComponent(gen, MAPPER.readValue(parser, UnifiedComponent.class));
+                }
+                gen.writeEndArray();
+                componentsWritten = true;
+            } else if ("vulnerabilities".equals(field) && value == JsonToken.START_ARRAY) {
+                // only emitted when there is at least one entry
+                boolean started = false;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (!started) {
+                        gen.writeArrayFieldStart("vulnerabilities");
+                        started = true;
+                    }
+                    writeCycloneDxVulnerability(gen, MAPPER.readValue(parser, UnifiedVulnerability.class));
+                }
+                if (started) {
+                    gen.writeEndArray();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (!componentsWritten) {
+            gen.writeArrayFieldStart("components");
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeCycloneDxComponent(JsonGenerator gen, UnifiedComponent comp) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "library");
+        gen.writeStringField("name", comp.getName());
+        gen.writeStringField("version", comp.getVersion());
+        gen.writeStringField("supplier", comp.getSupplier() != null ? comp.getSupplier() : "NOASSERTION");
+        gen.writeStringField("purl", comp.getPurl() != null ? comp.getPurl() : "NOASSERTION");
+        gen.writeEndObject();
+    }
+
+    private static void writeCycloneDxVulnerability(JsonGenerator gen, UnifiedVulnerability vuln) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", vuln.getCveId());
+        gen.writeObjectFieldStart("source");
+        gen.writeStringField("name", "NVD");
+        gen.writeEndObject();
+
+        gen.writeArrayFieldStart("ratings");
+        gen.writeStartObject();
+        gen.writeNumberField("score", vuln.getCvssScore() != null ? vuln.getCvssScore() : 0.0);
+        gen.writeStringField("severity", vuln.getSeverity() != null ? vuln.getSeverity() : "UNKNOWN");
+        gen.writeStringField("method", "CVSSv3");
+        gen.writeStringField("vector", "NOASSERTION");
+        gen.writeEndObject();
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("affects");
+        if (vuln.getAffectedComponents() != null) {
+            for (String ref : vuln.getAffectedComponents()) {
+                gen.writeStartObject();
+                gen.writeStringField("ref", ref);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeSpdx(JsonParser parser, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("spdxVersion", "SPDX-2.2");
+        gen.writeStringField("SPDXID", "SPDXRef-DOCUMENT");
+
+        boolean packagesWritten = false;
+        expectObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("deviceName".equals(field)) {
+                gen.writeStringField("name", value == JsonToken.VALUE_NULL ? null : parser.getText());
+            } else if ("components".equals(field) && value == JsonToken.START_ARRAY) {
+                gen.writeArrayFieldStart("packages");
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    writeSpdxPackage(gen, MAPPER.readValue(parser, UnifiedComponent.class));
+                }
+                gen.writeEndArray();
+                packagesWritten = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (!packagesWritten) {
+            gen.writeArrayFieldStart("packages");
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeSpdxPackage(JsonGenerator gen, UnifiedComponent pkg) throws IOException {
+        String name = pkg.getName() != null ? pkg.getName() : "";
+        gen.writeStartObject();
+        gen.writeStringField("SPDXID", "SPDXRef-Package-" + name.replaceAll("[^a-zA-Z0-9]", ""));
+        gen.writeStringField("name", pkg.getName());
+        gen.writeStringField("supplier", pkg.getSupplier() != null ? pkg.getSupplier() : "NOASSERTION");
+        gen.writeStringField("versionInfo", pkg.getVersion() != null ? pkg.getVersion() : "NOASSERTION");
+        gen.writeStringField("downloadLocation", "NOASSERTION");
+        gen.writeEndObject();
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Archived SBOM content is not a JSON object");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.sbomfinder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Semantic Versioning 2.0 ordering, as used by npm, Cargo and Go modules: numeric
+// major.minor.patch, then a release sorts after all of its pre-releases, whose dot-separated
+// identifiers compare numerically when numeric and lower than alphanumeric ones. Build metadata
+// is ignored. Parsing is lenient: a leading "v" or "=", missing minor/patch parts ("1.2") and
+// extra parts ("1.2.3.4") are accepted; anything else sorts before all valid versions, and
+// among itself by VersionComparator.
+// Go pseudo-versions (v0.0.0-20191109021931-daa7c04131f5, v1.2.4-0.2019...) are pre-releases
+// whose first identifier is the commit timestamp, so they order by time as Go requires.
+public class SemanticVersion implements ParsedVersion {
+
+    private static final long[] NO_CORE = new long[0];
+
+    private final String raw;
+    private final long[] core;
+    private final Object[] preRelease; // Long or String identifiers, empty for a release
+    private final boolean valid;
+
+    private SemanticVersion(String raw, long[] core, Object[] preRelease, boolean valid) {
+        this.raw = raw;
+        this.core = core;
+        this.preRelease = preRelease;
+        this.valid = valid;
+    }
+
+    public static SemanticVersion parse(String raw) {
+        String v = raw.trim();
+        while (!v.isEmpty() && (v.charAt(0) == 'v' || v.charAt(0) == 'V' || v.charAt(0) == '=')) {
+            v = v.substring(1);
+        }
+        int plus = v.indexOf('+');
+        if (plus >= 0) {
+            v = v.substring(0, plus);
+        }
+        int dash = v.indexOf('-');
+        String corePart = dash >= 0 ? v.substring(0, dash) : v;
+        String prePart = dash >= 0 ? v.substring(dash + 1) : "";
+
+        String[] parts = corePart.split("\\.");
+        long[] core = new long[Math.max(3, parts.length)];
+        for (int i = 0; i < parts.length; i++) {
+            Long n = number(parts[i]);
+            if (n == null) {
+                return new SemanticVersion(raw, NO_CORE, new Object[0], false);
+            }
+            core[i] = n;
+        }
+
+        List<Object> identifiers = new ArrayList<>();
+        if (dash >= 0) {
+            for (String id : prePart.split("\\.", -1)) {
+                Long n = number(id);
+                identifiers.add(n != null ? n : id);
+            }
+        }
+        return new SemanticVersion(raw, core, identifiers.toArray(), true);
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(ParsedVersion other) {
+        if (!(other instanceof SemanticVersion)) {
+            return VersionComparator.compareVersions(raw, other.getRaw());
+        }
+        SemanticVersion o = (SemanticVersion) other;
+        // unparseable versions sort before all valid ones, so mixing both stays transitive
+        if (!valid || !o.valid) {
+            return valid == o.valid ? VersionComparator.compareVersions(raw, o.raw) : (valid ? 1 : -1);
+        }
+        int length = Math.max(core.length, o.core.length);
+        for (int i = 0; i < length; i++) {
+            long a = i < core.length ? core[i] : 0;
+            long b = i < o.core.length ? o.core[i] : 0;
+            if (a != b) {
+                return Long.compare(a, b);
+            }
+        }
+
+        // a release sorts after its pre-releases
+        if (preRelease.length == 0 || o.preRelease.length == 0) {
+            return preRelease.length == o.preRelease.length ? 0 : (preRelease.length == 0 ? 1 : -1);
+        }
+        for (int i = 0; i < Math.min(preRelease.length, o.preRelease.length); i++) {
+            int cmp = compareIdentifiers(preRelease[i], o.preRelease[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(preRelease.length, o.preRelease.length);
+    }
+
+    private static int compareIdentifiers(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare((Long) a, (Long) b);
+        }
+        if (a instanceof Long || b instanceof Long) {
+            return a instanceof Long ? -1 : 1;
+        }
+        return ((String) a).compareTo((String) b);
+    }
+
+    // digits only; numbers too large for a long saturate, which only matters past 18 digits
+    private static Long number(String s) {
+        if (s.isEmpty()) {
+            return null;
+        }
+        long n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            n = n > (Long.MAX_VALUE - 9) / 10 ? Long.MAX_VALUE : n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
@@ -0,0 +1,121 @@
+package com.sbomfinder.util;
+
+import java.util.Comparator;
+
+// Orders version strings the way package managers mostly do: numeric segments compare as
+// numbers ("1.10" > "1.9"), everything else as text, and a release sorts after its
+// pre-releases ("1.0.0" > "1.0.0-rc1"). Leading "v" and build metadata ("+...") are ignored.
+public class VersionComparator implements Comparator<String> {
+
+    public static final VersionComparator INSTANCE = new VersionComparator();
+
+    public static int compareVersions(String a, String b) {
+        return INSTANCE.compare(a, b);
+    }
+
+    @Override
+    public int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        String left = strip(a);
+        String right = strip(b);
+
+        // case only decides between versions that are otherwise equal ("1.0-RC1" vs "1.0-rc1")
+        int caseOrder = 0;
+        int i = 0, j = 0;
+        while (i < left.length() && j < right.length()) {
+            char cl = left.charAt(i);
+            char cr = right.charAt(j);
+
+            if (isSeparator(cl) && isSeparator(cr)) {
+                // "-" starts a pre-release, which sorts before "." continuing the release
+                if (cl != cr && (cl == '-' || cr == '-')) {
+                    return cl == '-' ? -1 : 1;
+                }
+                i++;
+                j++;
+                continue;
+            }
+
+            if (Character.isDigit(cl) && Character.isDigit(cr)) {
+                int endL = digitsEnd(left, i);
+                int endR = digitsEnd(right, j);
+                int cmp = compareNumbers(left, i, endL, right, j, endR);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                i = endL;
+                j = endR;
+                continue;
+            }
+
+            if (cl != cr) {
+                if (isSeparator(cl) || isSeparator(cr)) {
+                    // "1.0" vs "1a": the longer numeric release wins, but a pre-release stays
+                    // below the suffixed version ("1.0-rc1" < "1.0" < "1.0a")
+                    char separator = isSeparator(cl) ? cl : cr;
+                    int sign = isSeparator(cl) ? 1 : -1;
+                    return separator == '-' ? -sign : sign;
+                }
+                int cmp = Character.compare(Character.toLowerCase(cl), Character.toLowerCase(cr));
+                if (cmp != 0) {
+                    return cmp;
+                }
+                if (caseOrder == 0) {
+                    caseOrder = Character.compare(cl, cr);
+                }
+            }
+            i++;
+            j++;
+        }
+
+        if (i == left.length() && j == right.length()) {
+            return caseOrder;
+        }
+        // "1.0.0" vs "1.0.0-rc1": the release is newer; "1.0" vs "1.0.1": the longer is newer
+        String rest = i < left.length() ? left.substring(i) : right.substring(j);
+        int sign = i < left.length() ? 1 : -1;
+        return rest.charAt(0) == '-' ? -sign : sign;
+    }
+
+    private static String strip(String version) {
+        String v = version.trim();
+        int plus = v.indexOf('+');
+        if (plus >= 0) {
+            v = v.substring(0, plus);
+        }
+        if (v.length() > 1 && (v.charAt(0) == 'v' || v.charAt(0) == 'V') && Character.isDigit(v.charAt(1))) {
+            v = v.substring(1);
+        }
+        return v;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-' || c == '_';
+    }
+
+    private static int digitsEnd(String s, int start) {
+        int end = start;
+        while (end < s.length() && Character.isDigit(s.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    // compares digit runs of any length without parsing them
+    private static int compareNumbers(String s, int start, int end, String t, int tStart, int tEnd) {
+        while (start < end - 1 && s.charAt(start) == '0') start++;
+        while (tStart < tEnd - 1 && t.charAt(tStart) == '0') tStart++;
+        if (end - start != tEnd - tStart) {
+            return Integer.compare(end - start, tEnd - tStart);
+        }
+        for (; start < end; start++, tStart++) {
+            int cmp = Character.compare(s.charAt(start), t.charAt(tStart));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}
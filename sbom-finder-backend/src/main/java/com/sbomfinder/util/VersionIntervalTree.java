@@ -0,0 +1,117 @@
+package com.sbomfinder.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Static interval tree over version ranges: which intervals contain a given version.
+// Intervals are sorted by lower bound and viewed as a balanced binary tree (the middle of every
+// sub-range is its root); each root stores the highest upper bound below it, so a query skips
+// every subtree that ends before the version and every right subtree that starts after it.
+// Bounds are ParsedVersions of one scheme; a null bound is open.
+public class VersionIntervalTree<T> {
+
+    private final ParsedVersion[] lower;
+    private final ParsedVersion[] upper;
+    private final boolean[] upperInclusive;
+    private final Object[] values;
+    // highest upper bound in the subtree rooted at i (null = unbounded)
+    private final ParsedVersion[] maxUpper;
+    private final boolean[] maxUpperInclusive;
+
+    public static class Builder<T> {
+        private final List<Object[]> intervals = new ArrayList<>();
+
+        // lower inclusive; upper exclusive unless upperInclusive
+        public Builder<T> add(ParsedVersion lower, ParsedVersion upper, boolean upperInclusive, T value) {
+            intervals.add(new Object[]{lower, upper, upperInclusive, value});
+            return this;
+        }
+
+        public VersionIntervalTree<T> build() {
+            intervals.sort(Comparator.comparing(i -> (ParsedVersion) i[0], Comparator.nullsFirst(Comparator.naturalOrder())));
+            return new VersionIntervalTree<>(intervals);
+        }
+    }
+
+    private VersionIntervalTree(List<Object[]> sorted) {
+        int n = sorted.size();
+        lower = new ParsedVersion[n];
+        upper = new ParsedVersion[n];
+        upperInclusive = new boolean[n];
+        values = new Object[n];
+        maxUpper = new ParsedVersion[n];
+        maxUpperInclusive = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Object[] interval = sorted.get(i);
+            lower[i] = (ParsedVersion) interval[0];
+            upper[i] = (ParsedVersion) interval[1];
+            upperInclusive[i] = (Boolean) interval[2];
+            values[i] = interval[3];
+        }
+        augment(0, n);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    // adds the value of every interval containing the version
+    public void collect(ParsedVersion version, Collection<T> into) {
+        collect(version, 0, values.length, into);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(ParsedVersion version, int lo, int hi, Collection<T> into) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (!reaches(maxUpper[mid], maxUpperInclusive[mid], version)) {
+                return;
+            }
+            collect(version, lo, mid, into);
+            if (lower[mid] != null && version.compareTo(lower[mid]) < 0) {
+                // everything to the right starts even later
+                return;
+            }
+            if (reaches(upper[mid], upperInclusive[mid], version)) {
+                into.add((T) values[mid]);
+            }
+            lo = mid + 1;
+        }
+    }
+
+    private static boolean reaches(ParsedVersion bound, boolean inclusive, ParsedVersion version) {
+        if (bound == null) {
+            return true;
+        }
+        int cmp = version.compareTo(bound);
+        return inclusive ? cmp <= 0 : cmp < 0;
+    }
+
+    // fills maxUpper for the subtree over [lo, hi) and returns its root, or -1 when empty
+    private int augment(int lo, int hi) {
+        if (lo >= hi) {
+            return -1;
+        }
+        int mid = (lo + hi) >>> 1;
+        ParsedVersion max = upper[mid];
+        boolean inclusive = upperInclusive[mid];
+        for (int child : new int[]{augment(lo, mid), augment(mid + 1, hi)}) {
+            if (child >= 0 && higher(maxUpper[child], maxUpperInclusive[child], max, inclusive)) {
+                max = maxUpper[child];
+                inclusive = maxUpperInclusive[child];
+            }
+        }
+        maxUpper[mid] = max;
+        maxUpperInclusive[mid] = inclusive;
+        return mid;
+    }
+
+    private static boolean higher(ParsedVersion a, boolean aInclusive, ParsedVersion b, boolean bInclusive) {
+        if (b == null) return false;
+        if (a == null) return true;
+        int cmp = a.compareTo(b);
+        return cmp > 0 || (cmp == 0 && aInclusive && !bInclusive);
+    }
+}
@@ -0,0 +1,96 @@
+package com.sbomfinder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Simple version range expression: comparator constraints joined by "," or spaces (all must
+// hold), alternatives separated by "||". Examples: "<2.17", ">=2.0, <2.17.1", "1.2.3",
+// "<1.0 || >=2.0 <2.3". "*" or an empty expression matches everything.
+// Versions are compared with the given scheme (the package's ecosystem ordering), so
+// "<1.0" excludes 1.0rc1 for PyPI and 1.0.0-beta for npm.
+public class VersionRange {
+
+    private final List<List<String[]>> alternatives; // [operator, version]
+    private final VersionScheme scheme;
+
+    private VersionRange(List<List<String[]>> alternatives, VersionScheme scheme) {
+        this.alternatives = alternatives;
+        this.scheme = scheme;
+    }
+
+    public static VersionRange parse(String expression) {
+        return parse(expression, VersionScheme.GENERIC);
+    }
+
+    public static VersionRange parse(String expression, VersionScheme scheme) {
+        List<List<String[]>> alternatives = new ArrayList<>();
+        if (expression == null || expression.isBlank() || expression.trim().equals("*")) {
+            return new VersionRange(alternatives, scheme);
+        }
+
+        for (String alternative : expression.split("\\|\\|")) {
+            List<String[]> constraints = new ArrayList<>();
+            // "< 2.17" is read the same as "<2.17"
+            String normalized = alternative.trim().replaceAll("([<>=!]=?)\\s+", "$1");
+            for (String token : normalized.split("[,\\s]+")) {
+                if (!token.isEmpty()) {
+                    constraints.add(parseConstraint(token));
+                }
+            }
+            if (!constraints.isEmpty()) {
+                alternatives.add(constraints);
+            }
+        }
+        return new VersionRange(alternatives, scheme);
+    }
+
+    private static String[] parseConstraint(String token) {
+        for (String op : new String[]{">=", "<=", "!=", "==", ">", "<", "="}) {
+            if (token.startsWith(op)) {
+                String version = token.substring(op.length());
+                if (version.isEmpty()) {
+                    throw new IllegalArgumentException("Missing version after '" + op + "'");
+                }
+                return new String[]{op.equals("==") ? "=" : op, version};
+            }
+        }
+        return new String[]{"=", token};
+    }
+
+    public boolean matchesAll() {
+        return alternatives.isEmpty();
+    }
+
+    public boolean matches(String version) {
+        if (alternatives.isEmpty()) {
+            return true;
+        }
+        if (version == null) {
+            return false;
+        }
+        for (List<String[]> constraints : alternatives) {
+            boolean all = true;
+            for (String[] c : constraints) {
+                if (!holds(c[0], scheme.compare(version, c[1]))) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean holds(String op, int cmp) {
+        switch (op) {
+            case ">=": return cmp >= 0;
+            case "<=": return cmp <= 0;
+            case ">": return cmp > 0;
+            case "<": return cmp < 0;
+            case "!=": return cmp != 0;
+            default: return cmp == 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.sbomfinder.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// How an ecosystem orders its versions. Parsed versions are cached per scheme, so matching
+// many packages against many ranges parses each distinct version string once.
+public enum VersionScheme {
+    SEMVER,
+    PEP440,
+    MAVEN,
+    GENERIC;
+
+    private static final int CACHE_LIMIT = 200_000;
+
+    private final Map<String, ParsedVersion> cache = new ConcurrentHashMap<>();
+
+    // OSV ecosystem names (case-insensitive, "Debian:11" style suffixes allowed) or purl types
+    public static VersionScheme forEcosystem(String ecosystem) {
+        if (ecosystem == null) {
+            return GENERIC;
+        }
+        String e = ecosystem.toLowerCase(Locale.ROOT);
+        int colon = e.indexOf(':');
+        if (colon >= 0) {
+            e = e.substring(0, colon);
+        }
+        switch (e) {
+            case "npm":
+            case "crates.io":
+            case "cargo":
+            case "go":
+            case "golang":
+                return SEMVER;
+            case "pypi":
+                return PEP440;
+            case "maven":
+                return MAVEN;
+            default:
+                return GENERIC;
+        }
+    }
+
+    public ParsedVersion parse(String version) {
+        ParsedVersion parsed = cache.get(version);
+        if (parsed == null) {
+            if (cache.size() >= CACHE_LIMIT) {
+                // cheaper than LRU bookkeeping on every hit; the working set refills quickly
+                cache.clear();
+            }
+            parsed = create(version);
+            cache.put(version, parsed);
+        }
+        return parsed;
+    }
+
+    public int compare(String a, String b) {
+        return parse(a).compareTo(parse(b));
+    }
+
+    private ParsedVersion create(String version) {
+        switch (this) {
+            case SEMVER: return SemanticVersion.parse(version);
+            case PEP440: return Pep440Version.parse(version);
+            case MAVEN: return MavenVersion.parse(version);
+            default: return new GenericVersion(version);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+-- Drops the per-package link table V8 replaced with component_vulnerabilities. Any link V8 did
+-- not carry over is copied first, so nothing is lost whatever state the table was left in.
+DO $$
+DECLARE
+    missing BIGINT;
+BEGIN
+    IF to_regclass('vulnerability_packages_pre_v8') IS NULL THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO component_vulnerabilities (component_id, vulnerability_id)
+    SELECT DISTINCT sp.component_id, vp.vulnerability_id
+    FROM vulnerability_packages_pre_v8 vp
+    JOIN software_packages sp ON sp.id = vp.software_package_id
+    WHERE sp.component_id IS NOT NULL
+    ON CONFLICT DO NOTHING;
+    GET DIAGNOSTICS missing = ROW_COUNT;
+    IF missing > 0 THEN
+        RAISE NOTICE 'V10: % vulnerability link(s) were missing from component_vulnerabilities and have been copied', missing;
+    END IF;
+
+    DROP TABLE vulnerability_packages_pre_v8;
+END;
+$$;
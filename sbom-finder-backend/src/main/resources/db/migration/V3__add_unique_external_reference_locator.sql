@@ -0,0 +1,10 @@
+-- Drop duplicate links left behind by the old check-then-insert path
+DELETE FROM external_references a
+    USING external_references b
+    WHERE a.sbom_id = b.sbom_id
+      AND a.reference_locator = b.reference_locator
+      AND a.id > b.id;
+
+-- Conflict target for the bulk INSERT ... ON CONFLICT DO NOTHING in ExternalReferenceService
+CREATE UNIQUE INDEX IF NOT EXISTS ux_external_references_sbom_locator
+    ON external_references (sbom_id, reference_locator);
@@ -0,0 +1,46 @@
+-- Secondary indexes for the hot lookup paths.
+--
+-- Several of these tables and columns are created by Hibernate (ddl-auto=update), which runs
+-- after Flyway. On a fresh database they do not exist yet when this migration runs; there the
+-- same indexes are declared on the entities and created by Hibernate. Here they are only added
+-- to existing databases, hence the existence checks.
+--
+-- Already covered by unique constraints: vulnerabilities.cve_id, sbom_files.hash,
+-- external_references (sbom_id, reference_locator) (V3), and the primary key of
+-- vulnerability_packages (software_package_id, vulnerability_id).
+
+CREATE OR REPLACE FUNCTION pg_temp.create_index_if_columns_exist(tbl TEXT, cols TEXT[], ddl TEXT)
+RETURNS VOID AS $$
+BEGIN
+    IF (SELECT count(*) FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = tbl AND column_name = ANY (cols)) = cardinality(cols) THEN
+        EXECUTE ddl;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.create_index_if_columns_exist('software_packages', ARRAY['device_id'],
+    'CREATE INDEX IF NOT EXISTS ix_software_packages_device ON software_packages (device_id)');
+SELECT pg_temp.create_index_if_columns_exist('software_packages', ARRAY['sbom_id'],
+    'CREATE INDEX IF NOT EXISTS ix_software_packages_sbom ON software_packages (sbom_id)');
+SELECT pg_temp.create_index_if_columns_exist('software_packages', ARRAY['supplier_id'],
+    'CREATE INDEX IF NOT EXISTS ix_software_packages_supplier ON software_packages (supplier_id)');
+SELECT pg_temp.create_index_if_columns_exist('vulnerability_packages', ARRAY['vulnerability_id'],
+    'CREATE INDEX IF NOT EXISTS ix_vulnerability_packages_vulnerability ON vulnerability_packages (vulnerability_id)');
+SELECT pg_temp.create_index_if_columns_exist('sbom_files', ARRAY['device_id'],
+    'CREATE INDEX IF NOT EXISTS ix_sbom_files_device ON sbom_files (device_id)');
+SELECT pg_temp.create_index_if_columns_exist('sbom_archive', ARRAY['device_id', 'is_latest'],
+    'CREATE INDEX IF NOT EXISTS ix_sbom_archive_device_latest ON sbom_archive (device_id, is_latest)');
+SELECT pg_temp.create_index_if_columns_exist('supplier', ARRAY['name'],
+    'CREATE INDEX IF NOT EXISTS ix_supplier_name ON supplier (name)');
+
+-- Device search (DeviceRepository.searchWithFuzzyFilters): trigram indexes for the ILIKE and
+-- similarity() conditions, and the full-text expression it matches with plainto_tsquery.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_devices_device_name_trgm
+    ON devices USING gin (device_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_devices_device_name_compact_trgm
+    ON devices USING gin ((replace(lower(device_name), ' ', '')) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_devices_device_name_fts
+    ON devices USING gin (to_tsvector('english', device_name));
@@ -0,0 +1,10 @@
+-- Stored full-text vector for device search (DeviceSearchService). The name weighs most, then
+-- the manufacturer, then category and operating system. The 'simple' configuration keeps model
+-- numbers such as "RT-AC68U" intact instead of stemming them.
+ALTER TABLE devices ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple'::regconfig, coalesce(device_name, '')), 'A') ||
+    setweight(to_tsvector('simple'::regconfig, coalesce(manufacturer, '')), 'B') ||
+    setweight(to_tsvector('simple'::regconfig, coalesce(category, '') || ' ' || coalesce(operating_system, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS ix_devices_search_vector ON devices USING gin (search_vector);
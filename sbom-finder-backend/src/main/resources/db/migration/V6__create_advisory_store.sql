@@ -0,0 +1,32 @@
+-- Local copy of OSV advisories, loaded from the per-ecosystem zip exports by
+-- AdvisoryImportService and matched by LocalAdvisoryService without calling the OSV API.
+-- Ecosystem and package name are stored lower-case (PyPI names in their PEP 503 form), so
+-- lookups are plain equality on the (ecosystem, package_name) index.
+CREATE TABLE IF NOT EXISTS advisories (
+    id           TEXT PRIMARY KEY,
+    summary      TEXT,
+    severity_type TEXT,
+    cvss_score   DOUBLE PRECISION,
+    source_url   TEXT,
+    aliases      TEXT,
+    modified     TIMESTAMP WITH TIME ZONE,
+    withdrawn    BOOLEAN NOT NULL DEFAULT FALSE,
+    imported_at  TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- One row per affected interval: introduced <= version < fixed, or <= last_affected.
+-- A NULL bound is open. range_type is SEMVER, ECOSYSTEM or GIT as in the OSV record, or EXACT
+-- for entries that only list affected versions (introduced = last_affected = the version).
+CREATE TABLE IF NOT EXISTS advisory_ranges (
+    id            BIGSERIAL PRIMARY KEY,
+    advisory_id   TEXT NOT NULL REFERENCES advisories (id) ON DELETE CASCADE,
+    ecosystem     TEXT NOT NULL,
+    package_name  TEXT NOT NULL,
+    range_type    TEXT NOT NULL,
+    introduced    TEXT,
+    fixed         TEXT,
+    last_affected TEXT
+);
+
+CREATE INDEX IF NOT EXISTS ix_advisory_ranges_package ON advisory_ranges (ecosystem, package_name);
+CREATE INDEX IF NOT EXISTS ix_advisory_ranges_advisory ON advisory_ranges (advisory_id);
@@ -0,0 +1,29 @@
+-- Scheduled vulnerability re-scans (VulnerabilityRescanService). One row per distinct package
+-- coordinate (purl, name, version) found in software_packages, with the watermark of its last
+-- check and when it is due next. Missing purls and versions are stored as ''.
+CREATE TABLE IF NOT EXISTS vulnerability_scan_state (
+    purl            TEXT NOT NULL,
+    name            TEXT NOT NULL,
+    version         TEXT NOT NULL,
+    last_checked_at TIMESTAMP WITH TIME ZONE,
+    next_check_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    failures        INTEGER NOT NULL DEFAULT 0,
+    vulnerability_count INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (purl, name, version)
+);
+
+CREATE INDEX IF NOT EXISTS ix_vulnerability_scan_state_due ON vulnerability_scan_state (next_check_at);
+
+-- Single-row checkpoint: software_packages rows up to last_package_id have been registered
+-- as coordinates, so discovery resumes where it stopped after a restart.
+CREATE TABLE IF NOT EXISTS vulnerability_scan_checkpoint (
+    id              INTEGER PRIMARY KEY,
+    last_package_id BIGINT NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+INSERT INTO vulnerability_scan_checkpoint (id, last_package_id) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+-- Packages of one coordinate, for applying re-scan results to vulnerability_packages
+CREATE INDEX IF NOT EXISTS ix_software_packages_coordinate
+    ON software_packages ((coalesce(purl, '')), name, (coalesce(version, '')));
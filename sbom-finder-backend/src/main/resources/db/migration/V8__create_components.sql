@@ -0,0 +1,66 @@
+-- Package coordinates shared across devices and SBOMs. software_packages rows point at their
+-- component, and vulnerabilities are linked to components instead of to every package row, so
+-- a coordinate found on hundreds of devices has its vulnerability links stored (and refreshed)
+-- once. Missing purls, names and versions are stored as '' so the coordinate can be a unique key.
+CREATE TABLE IF NOT EXISTS components (
+    id          BIGSERIAL PRIMARY KEY,
+    purl        TEXT NOT NULL,
+    name        TEXT NOT NULL,
+    version     TEXT NOT NULL,
+    ecosystem   TEXT,
+    supplier_id BIGINT,
+    CONSTRAINT ux_components_coordinate UNIQUE (purl, name, version)
+);
+
+CREATE TABLE IF NOT EXISTS component_vulnerabilities (
+    component_id     BIGINT NOT NULL REFERENCES components (id) ON DELETE CASCADE,
+    vulnerability_id BIGINT NOT NULL,
+    PRIMARY KEY (component_id, vulnerability_id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_component_vulnerabilities_vulnerability ON component_vulnerabilities (vulnerability_id);
+
+ALTER TABLE software_packages ADD COLUMN IF NOT EXISTS component_id BIGINT REFERENCES components (id);
+CREATE INDEX IF NOT EXISTS ix_software_packages_component ON software_packages (component_id);
+
+-- Existing data: one component per distinct coordinate (supplier taken from the newest package),
+-- package rows pointed at it, and the per-package links collapsed onto the components.
+-- supplier_id and vulnerability_packages only exist where Hibernate created them. The old link
+-- table is kept as vulnerability_packages_pre_v8 until V10 has checked the copy and drops it.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema()
+               AND table_name = 'software_packages' AND column_name = 'supplier_id') THEN
+        INSERT INTO components (purl, name, version, ecosystem, supplier_id)
+        SELECT DISTINCT ON (coalesce(purl, ''), coalesce(name, ''), coalesce(version, ''))
+               coalesce(purl, ''), coalesce(name, ''), coalesce(version, ''),
+               CASE WHEN purl LIKE 'pkg:%/%' THEN lower(split_part(substr(purl, 5), '/', 1)) END, supplier_id
+        FROM software_packages
+        ORDER BY coalesce(purl, ''), coalesce(name, ''), coalesce(version, ''), id DESC
+        ON CONFLICT ON CONSTRAINT ux_components_coordinate DO NOTHING;
+    ELSE
+        INSERT INTO components (purl, name, version, ecosystem)
+        SELECT DISTINCT coalesce(purl, ''), coalesce(name, ''), coalesce(version, ''),
+               CASE WHEN purl LIKE 'pkg:%/%' THEN lower(split_part(substr(purl, 5), '/', 1)) END
+        FROM software_packages
+        ON CONFLICT ON CONSTRAINT ux_components_coordinate DO NOTHING;
+    END IF;
+
+    UPDATE software_packages sp SET component_id = c.id
+    FROM components c
+    WHERE sp.component_id IS NULL
+      AND c.purl = coalesce(sp.purl, '') AND c.name = coalesce(sp.name, '') AND c.version = coalesce(sp.version, '');
+
+    IF to_regclass('vulnerability_packages') IS NOT NULL THEN
+        INSERT INTO component_vulnerabilities (component_id, vulnerability_id)
+        SELECT DISTINCT sp.component_id, vp.vulnerability_id
+        FROM vulnerability_packages vp
+        JOIN software_packages sp ON sp.id = vp.software_package_id
+        ON CONFLICT DO NOTHING;
+        ALTER TABLE vulnerability_packages RENAME TO vulnerability_packages_pre_v8;
+    END IF;
+END;
+$$;
+
+-- re-scans find coordinates through components now
+DROP INDEX IF EXISTS ix_software_packages_coordinate;
@@ -0,0 +1,12 @@
+-- Dependency files an SBOM was generated from, with their SHA-256 (as in the device's digital
+-- footprint). The next version of the device compares against these and only re-parses the
+-- files whose content changed; the packages of the others are carried over by source_file.
+CREATE TABLE IF NOT EXISTS sbom_source_files (
+    sbom_id      BIGINT NOT NULL REFERENCES sbom_files (id) ON DELETE CASCADE,
+    path         TEXT NOT NULL,
+    content_hash TEXT NOT NULL,
+    PRIMARY KEY (sbom_id, path)
+);
+
+-- path (relative to the uploaded source root) of the file a package was extracted from
+ALTER TABLE software_packages ADD COLUMN IF NOT EXISTS source_file TEXT;
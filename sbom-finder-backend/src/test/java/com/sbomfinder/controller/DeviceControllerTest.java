@@ -0,0 +1,34 @@
+package com.sbomfinder.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceControllerTest {
+
+    @Test
+    void gzipIsAcceptedWhenListed() {
+        assertTrue(DeviceController.acceptsGzip("gzip"));
+        assertTrue(DeviceController.acceptsGzip("deflate, GZIP;q=0.5, br"));
+        assertTrue(DeviceController.acceptsGzip("x-gzip"));
+        assertTrue(DeviceController.acceptsGzip("br, *"));
+    }
+
+    @Test
+    void explicitRefusalIsHonoured() {
+        assertFalse(DeviceController.acceptsGzip("gzip;q=0"));
+        assertFalse(DeviceController.acceptsGzip("gzip; q=0.0, identity"));
+        assertFalse(DeviceController.acceptsGzip("*, gzip;q=0"));
+        assertFalse(DeviceController.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    void gzipIsNotAssumed() {
+        assertFalse(DeviceController.acceptsGzip(null));
+        assertFalse(DeviceController.acceptsGzip(""));
+        assertFalse(DeviceController.acceptsGzip("identity"));
+        assertFalse(DeviceController.acceptsGzip("br, deflate"));
+        assertFalse(DeviceController.acceptsGzip("gzip;q=abc"));
+    }
+}
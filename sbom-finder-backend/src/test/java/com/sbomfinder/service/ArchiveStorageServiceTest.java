@@ -0,0 +1,154 @@
+package com.sbomfinder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sbomfinder.dto.UnifiedComponent;
+import com.sbomfinder.dto.UnifiedSbomData;
+import com.sbomfinder.dto.UnifiedVulnerability;
+import com.sbomfinder.model.Device;
+import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.repository.DeviceRepository;
+import com.sbomfinder.repository.SbomArchiveManifestRepository;
+import com.sbomfinder.repository.SbomArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Stores a run of versions of one device with a keyframe every third version and reads each
+// one back: versions rebuilt from a delta chain must equal what was written.
+@SpringBootTest(properties = {
+        "sbom.archive.keyframe-interval=3",
+        "sbom.schema-check.fail-on-problems=false",
+        "sbom.rescan.enabled=false",
+        "sbom.gc.enabled=false",
+        "sbom.search-index.enabled=false",
+        "sbom.details-cache.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ArchiveStorageServiceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private ArchiveStorageService archiveStorageService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SbomArchiveRepository sbomArchiveRepository;
+
+    @Autowired
+    private SbomArchiveManifestRepository sbomArchiveManifestRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void deltasRoundTripAcrossKeyframes() throws IOException {
+        Device device = deviceRepository.save(new Device("gateway", "Acme", null, null, null, null, null));
+
+        List<SbomArchive> archives = new ArrayList<>();
+        List<UnifiedSbomData> written = new ArrayList<>();
+        SbomArchive previous = null;
+        for (int v = 0; v < 7; v++) {
+            UnifiedSbomData data = version(v);
+            // stored in a different order than load() returns it
+            UnifiedSbomData shuffled = version(v);
+            Collections.reverse(shuffled.getComponents());
+            Collections.reverse(shuffled.getVulnerabilities());
+
+            previous = storeVersion(device.getId(), shuffled, previous);
+            archives.add(previous);
+            written.add(data);
+        }
+
+        List<Integer> depths = new ArrayList<>();
+        for (SbomArchive archive : archives) {
+            depths.add(sbomArchiveManifestRepository.findByArchiveId(archive.getId()).orElseThrow().getDeltaDepth());
+        }
+        assertEquals(List.of(0, 1, 2, 0, 1, 2, 0), depths);
+
+        for (int v = archives.size() - 1; v >= 0; v--) {
+            assertEquals(MAPPER.writeValueAsString(written.get(v)),
+                    MAPPER.writeValueAsString(archiveStorageService.load(archives.get(v))), "version " + v);
+        }
+    }
+
+    private SbomArchive storeVersion(Long deviceId, UnifiedSbomData data, SbomArchive previous) throws IOException {
+        try {
+            return new TransactionTemplate(transactionManager).execute(tx -> {
+                SbomArchive archive = new SbomArchive();
+                archive.setDevice(deviceRepository.getReferenceById(deviceId));
+                archive.setVersion(data.getVersion());
+                sbomArchiveRepository.save(archive);
+                try {
+                    archiveStorageService.store(archive, data, previous);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return archive;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Version v, in load order: one more library bumped than in v - 1, one component replaced
+    // by a differently named one, one vulnerability added and, from v 4 on, one re-rated.
+    private static UnifiedSbomData version(int v) {
+        List<UnifiedComponent> components = new ArrayList<>();
+        components.add(component("extra-" + v, "1.0"));
+        for (int i = 0; i < 12; i++) {
+            components.add(component(String.format("lib-%02d", i), i < v ? "1.1" : "1.0"));
+        }
+
+        List<UnifiedVulnerability> vulnerabilities = new ArrayList<>();
+        for (int i = 0; i <= v; i++) {
+            UnifiedVulnerability vulnerability = new UnifiedVulnerability();
+            vulnerability.setCveId(String.format("CVE-2024-%04d", i));
+            vulnerability.setSeverity(i == 0 && v >= 4 ? "CRITICAL" : "HIGH");
+            vulnerability.setCvssScore(i == 0 && v >= 4 ? 9.8 : 7.5);
+            vulnerability.setAffectedComponents(List.of("pkg:generic/lib-00@1.0"));
+            vulnerabilities.add(vulnerability);
+        }
+
+        UnifiedSbomData data = new UnifiedSbomData();
+        data.setDeviceName("gateway");
+        data.setVersion("v" + v);
+        data.setComponents(components);
+        data.setVulnerabilities(vulnerabilities);
+        return data;
+    }
+
+    private static UnifiedComponent component(String name, String version) {
+        UnifiedComponent component = new UnifiedComponent(name, version, "pkg:generic/" + name + "@" + version);
+        component.setSupplier("Acme");
+        return component;
+    }
+}
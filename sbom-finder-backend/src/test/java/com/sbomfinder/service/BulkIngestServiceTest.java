@@ -0,0 +1,101 @@
+package com.sbomfinder.service;
+
+import com.sbomfinder.dto.UnifiedSbomData;
+import com.sbomfinder.model.SbomArchive;
+import com.sbomfinder.repository.SbomArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs a bulk ingest on its own pool threads, which have no open session (open-session-in-view
+// only covers web requests): the device must be generated and archived completely.
+@SpringBootTest(properties = {
+        "sbom.vulnerabilities.source=local",
+        "sbom.schema-check.fail-on-problems=false",
+        "sbom.rescan.enabled=false",
+        "sbom.gc.enabled=false",
+        "sbom.search-index.enabled=false",
+        "sbom.details-cache.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class BulkIngestServiceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    static final Path STAGING;
+
+    static {
+        try {
+            STAGING = Files.createTempDirectory("bulk-staging");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("sbom.bulk.staging-dir", STAGING::toString);
+    }
+
+    @Autowired
+    private BulkIngestService bulkIngestService;
+
+    @Autowired
+    private SbomArchiveRepository sbomArchiveRepository;
+
+    @Autowired
+    private ArchiveStorageService archiveStorageService;
+
+    @Test
+    void ingestsAndArchivesOffTheRequestThread() throws Exception {
+        writeZip(STAGING.resolve("gateway.zip"), "gateway/requirements.txt", "requests==2.19.0\nflask==1.0\n");
+
+        BulkIngestService.BulkBatch batch = bulkIngestService.start(
+                "[{\"deviceName\": \"gateway\", \"manufacturer\": \"Acme\", \"archive\": \"gateway.zip\"}]");
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (batch.finishedAt == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        BulkIngestService.BulkEntry entry = batch.entries.get(0);
+        assertNull(entry.error);
+        assertEquals("done", entry.state);
+
+        Long deviceId = entry.result.getDevice().getId();
+        List<SbomArchive> archives = sbomArchiveRepository.findAllByDeviceId(deviceId);
+        assertEquals(1, archives.size());
+        UnifiedSbomData archived = archiveStorageService.load(archives.get(0));
+        assertTrue(archived.getComponents().size() >= 2, "archived components: " + archived.getComponents().size());
+    }
+
+    private static void writeZip(Path zip, String entryName, String content) throws IOException {
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            zipOut.putNextEntry(new ZipEntry(entryName));
+            zipOut.write(content.getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.sbomfinder.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Builds the schema from scratch in a throwaway PostgreSQL (Flyway, then Hibernate's update)
+// and EXPLAINs every hot query of SchemaSelfCheckService: none may plan a sequential scan.
+@SpringBootTest(properties = {
+        "sbom.schema-check.fail-on-problems=false",
+        "sbom.rescan.enabled=false",
+        "sbom.gc.enabled=false",
+        "sbom.search-index.enabled=false",
+        "sbom.details-cache.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaSelfCheckServiceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private SchemaSelfCheckService schemaSelfCheckService;
+
+    @Test
+    void hotQueriesDoNotSeqScan() {
+        List<String> problems = schemaSelfCheckService.runChecks();
+
+        List<String> planProblems = problems.stream()
+                .filter(p -> p.startsWith("sequential scan") || p.startsWith("schema check could not run"))
+                .toList();
+        assertTrue(planProblems.isEmpty(), "Hot queries without an index: " + planProblems);
+    }
+
+    @Test
+    void expectedIndexesExist() {
+        List<String> problems = schemaSelfCheckService.runChecks();
+
+        assertTrue(problems.isEmpty(), "Schema self-check problems: " + problems);
+    }
+}
@@ -0,0 +1,52 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MavenVersionTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(MavenVersion.parse(a).compareTo(MavenVersion.parse(b)));
+    }
+
+    private static void assertAscending(String... versions) {
+        for (int i = 0; i + 1 < versions.length; i++) {
+            assertEquals(-1, compare(versions[i], versions[i + 1]), versions[i] + " < " + versions[i + 1]);
+            assertEquals(1, compare(versions[i + 1], versions[i]), versions[i + 1] + " > " + versions[i]);
+        }
+    }
+
+    @Test
+    void knownQualifiersInOrder() {
+        assertAscending("1.0-alpha-1", "1.0-beta-1", "1.0-milestone-1", "1.0-rc-1", "1.0-SNAPSHOT", "1.0", "1.0-sp-1");
+    }
+
+    @Test
+    void unknownQualifiersSortAfterKnownOnesAlphabetically() {
+        assertAscending("1.0-sp", "1.0-abc", "1.0-xyz");
+    }
+
+    @Test
+    void releaseAliasesAreEqual() {
+        assertEquals(0, compare("1", "1.0"));
+        assertEquals(0, compare("1.0", "1.0.0"));
+        assertEquals(0, compare("1.0", "1-ga"));
+        assertEquals(0, compare("1.0", "1.0-final"));
+        assertEquals(0, compare("1.0", "1.0-RELEASE"));
+    }
+
+    @Test
+    void qualifierShorthands() {
+        assertEquals(0, compare("1.0-cr1", "1.0-rc1"));
+        assertEquals(0, compare("1.0a1", "1.0-alpha-1"));
+        assertEquals(0, compare("1.0b2", "1.0-beta-2"));
+        assertEquals(0, compare("1.0m3", "1.0-milestone-3"));
+    }
+
+    @Test
+    void numbersCompareNumerically() {
+        assertAscending("1.9", "1.10", "2.0");
+        assertAscending("1.0-rc1", "1.0-rc2", "1.0-rc10");
+    }
+}
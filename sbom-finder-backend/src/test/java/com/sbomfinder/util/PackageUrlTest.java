@@ -0,0 +1,92 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PackageUrlTest {
+
+    // parsing the canonical form gives back the same purl
+    private static PackageUrl roundTrip(String purl) {
+        PackageUrl parsed = PackageUrl.parse(purl);
+        assertEquals(parsed, PackageUrl.parse(parsed.toString()), purl);
+        assertEquals(parsed.toString(), PackageUrl.parse(parsed.toString()).toString(), purl);
+        return parsed;
+    }
+
+    @Test
+    void npmScopes() {
+        PackageUrl purl = roundTrip("pkg:npm/%40angular/core@16.0.0");
+        assertEquals("npm", purl.getType());
+        assertEquals("@angular", purl.getNamespace());
+        assertEquals("core", purl.getName());
+        assertEquals("16.0.0", purl.getVersion());
+        assertEquals("pkg:npm/%40angular/core@16.0.0", purl.toString());
+        assertEquals("pkg:npm/@angular/core", purl.packageKey());
+        assertEquals("@angular/core", purl.osvName());
+
+        // unencoded scope and upper case as older uploads wrote them
+        assertEquals(purl, roundTrip("pkg:npm/@Angular/Core@16.0.0"));
+        assertEquals(purl, PackageUrl.forPackage("npm", "@angular/core", "16.0.0"));
+    }
+
+    @Test
+    void mavenGroupAndArtifact() {
+        PackageUrl purl = roundTrip("pkg:maven/org.apache.logging.log4j:log4j-core@2.17.1");
+        assertEquals("org.apache.logging.log4j", purl.getNamespace());
+        assertEquals("log4j-core", purl.getName());
+        assertEquals("pkg:maven/org.apache.logging.log4j/log4j-core@2.17.1", purl.toString());
+        assertEquals("org.apache.logging.log4j:log4j-core", purl.osvName());
+
+        assertEquals(purl, roundTrip("pkg:maven/org.apache.logging.log4j/log4j-core@2.17.1"));
+        assertEquals(purl, PackageUrl.forPackage("maven", "org.apache.logging.log4j:log4j-core", "2.17.1"));
+        // Maven names are case-sensitive
+        assertEquals("Log4j-Core", PackageUrl.parse("pkg:maven/org.apache/Log4j-Core@1").getName());
+    }
+
+    @Test
+    void qualifiersAreSortedAndEncoded() {
+        PackageUrl purl = roundTrip("pkg:deb/debian/curl@7.50.3-1?distro=jessie&ARCH=i386&empty=");
+        assertEquals(Map.of("arch", "i386", "distro", "jessie"), purl.getQualifiers());
+        assertEquals("pkg:deb/debian/curl@7.50.3-1?arch=i386&distro=jessie", purl.toString());
+
+        PackageUrl encoded = roundTrip("pkg:maven/org.apache/xmlgraphics@1.0?repository_url=repo.example.com%2Fmaven%3Fx%3D1");
+        assertEquals("repo.example.com/maven?x=1", encoded.getQualifiers().get("repository_url"));
+        assertEquals("pkg:maven/org.apache/xmlgraphics@1.0?repository_url=repo.example.com%2Fmaven%3Fx%3D1", encoded.toString());
+    }
+
+    @Test
+    void subpaths() {
+        PackageUrl purl = roundTrip("pkg:golang/google.golang.org/genproto@v0.0.0#googleapis/api/annotations");
+        assertEquals("google.golang.org", purl.getNamespace());
+        assertEquals("genproto", purl.getName());
+        assertEquals("googleapis/api/annotations", purl.getSubpath());
+        assertEquals("pkg:golang/google.golang.org/genproto@v0.0.0#googleapis/api/annotations", purl.toString());
+
+        // empty, "." and ".." segments are dropped
+        assertEquals("googleapis/api", roundTrip("pkg:golang/google.golang.org/genproto#/./googleapis/../api/").getSubpath());
+        assertEquals("a b/c", roundTrip("pkg:github/org/repo@1.0?vcs=git#a%20b/c").getSubpath());
+    }
+
+    @Test
+    void versionWithEncodedCharacters() {
+        PackageUrl purl = roundTrip("pkg:pypi/Django_Rest@1.0%2Blocal");
+        assertEquals("django-rest", purl.getName());
+        assertEquals("1.0+local", purl.getVersion());
+        assertEquals("pkg:pypi/django-rest@1.0%2Blocal", purl.toString());
+    }
+
+    @Test
+    void invalidPurls() {
+        assertNull(PackageUrl.tryParse("npm/left-pad@1.0"));
+        assertNull(PackageUrl.tryParse("pkg:npm"));
+        assertNull(PackageUrl.tryParse("pkg:n%pm/left-pad"));
+        assertNull(PackageUrl.tryParse(""));
+        assertThrows(IllegalArgumentException.class, () -> PackageUrl.parse("pkg:/left-pad"));
+        assertThrows(IllegalArgumentException.class, () -> PackageUrl.of("npm", null, " ", "1.0"));
+    }
+}
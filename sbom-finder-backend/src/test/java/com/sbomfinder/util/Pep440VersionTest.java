@@ -0,0 +1,54 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Pep440VersionTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(Pep440Version.parse(a).compareTo(Pep440Version.parse(b)));
+    }
+
+    private static void assertAscending(String... versions) {
+        for (int i = 0; i + 1 < versions.length; i++) {
+            assertEquals(-1, compare(versions[i], versions[i + 1]), versions[i] + " < " + versions[i + 1]);
+            assertEquals(1, compare(versions[i + 1], versions[i]), versions[i + 1] + " > " + versions[i]);
+        }
+    }
+
+    // the sort order spelled out in PEP 440
+    @Test
+    void specOrdering() {
+        assertAscending("1.0.dev0", "1.0a1.dev0", "1.0a1", "1.0b1", "1.0rc1", "1.0", "1.0+local",
+                "1.0.post1.dev0", "1.0.post1", "1.1.dev1");
+    }
+
+    @Test
+    void epochsOutrankTheRelease() {
+        assertAscending("2024.1", "1!0.1", "1!1.0", "2!0.0.1");
+        assertEquals(0, compare("0!1.0", "1.0"));
+    }
+
+    @Test
+    void postReleases() {
+        assertAscending("1.0", "1.0.post1", "1.0.post2", "1.0.post10", "1.0.1");
+        assertEquals(0, compare("1.0-1", "1.0.post1"));
+        assertEquals(0, compare("1.0.r1", "1.0.post1"));
+        assertEquals(0, compare("1.0.post", "1.0.post0"));
+    }
+
+    @Test
+    void normalizedSpellings() {
+        assertEquals(0, compare("1.0", "1.0.0"));
+        assertEquals(0, compare("v1.0", "1.0"));
+        assertEquals(0, compare("1.0-alpha.1", "1.0a1"));
+        assertEquals(0, compare("1.0c1", "1.0rc1"));
+    }
+
+    @Test
+    void invalidVersionsSortFirst() {
+        assertEquals(-1, compare("not-a-version", "0.0.1"));
+        assertEquals(1, compare("0.0.1", "not-a-version"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReferenceExtractorTest {
+
+    private static final int MAX_URL_LENGTH = 2048;
+
+    @TempDir
+    Path dir;
+
+    private Set<String> scan(String content) throws IOException {
+        Path file = dir.resolve("scanned.txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Set<String> urls = new LinkedHashSet<>();
+        ReferenceExtractor.scan(file, urls);
+        return urls;
+    }
+
+    @Test
+    void findsUrlsInText() throws IOException {
+        assertEquals(Set.of("https://github.com/owner/repo", "http://example.com/a?b=c"),
+                scan("see https://github.com/owner/repo. Or (HTTP://example.com/a?b=c), not httpx://nope"));
+    }
+
+    @Test
+    void urlAtTheCapIsKeptWhole() throws IOException {
+        String url = "https://example.com/" + "a".repeat(MAX_URL_LENGTH - "https://example.com/".length());
+        assertEquals(MAX_URL_LENGTH, url.length());
+        assertEquals(Set.of(url), scan(url + " trailing"));
+    }
+
+    @Test
+    void longerUrlIsTruncatedAtTheCap() throws IOException {
+        String prefix = "https://example.com/?q=";
+        String url = prefix + "b".repeat(MAX_URL_LENGTH) + "&next=http://embedded.example.com/x";
+
+        Set<String> urls = scan(url + " then https://after.example.com");
+
+        // the tail of the overlong URL is not picked up as a URL of its own
+        assertEquals(Set.of(url.substring(0, MAX_URL_LENGTH), "https://after.example.com"), urls);
+        assertEquals(MAX_URL_LENGTH, urls.iterator().next().getBytes(StandardCharsets.US_ASCII).length);
+    }
+
+    @Test
+    void urlSpanningTheReadBufferIsFound() throws IOException {
+        // the scan reads 64 KiB at a time
+        String padding = " ".repeat(64 * 1024 - 10);
+        assertEquals(Set.of("https://example.com/spans/the/boundary"),
+                scan(padding + "https://example.com/spans/the/boundary\n"));
+    }
+
+    @Test
+    void classifiesReferences() {
+        assertEquals(ReferenceExtractor.TYPE_VCS, ReferenceExtractor.classify("https://github.com/owner/repo"));
+        assertEquals(ReferenceExtractor.TYPE_ISSUE_TRACKER, ReferenceExtractor.classify("https://github.com/owner/repo/issues"));
+        assertEquals(ReferenceExtractor.TYPE_LICENSE, ReferenceExtractor.classify("https://opensource.org/licenses/MIT"));
+        assertEquals(ReferenceExtractor.TYPE_DOWNLOAD, ReferenceExtractor.classify("https://example.com/pkg-1.0.tar.gz"));
+        assertEquals(ReferenceExtractor.TYPE_WEBSITE, ReferenceExtractor.classify("https://example.com/docs"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SemanticVersionTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(SemanticVersion.parse(a).compareTo(SemanticVersion.parse(b)));
+    }
+
+    private static void assertAscending(String... versions) {
+        for (int i = 0; i + 1 < versions.length; i++) {
+            assertEquals(-1, compare(versions[i], versions[i + 1]), versions[i] + " < " + versions[i + 1]);
+            assertEquals(1, compare(versions[i + 1], versions[i]), versions[i + 1] + " > " + versions[i]);
+        }
+    }
+
+    // the precedence example of the SemVer 2.0 spec
+    @Test
+    void preReleasesSortBeforeTheRelease() {
+        assertAscending("1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta", "1.0.0-beta",
+                "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0", "1.0.1-alpha", "1.0.1");
+    }
+
+    @Test
+    void numericIdentifiersCompareNumerically() {
+        assertAscending("1.2.3-2", "1.2.3-10", "1.2.3-a");
+        assertAscending("1.9.0", "1.10.0", "10.0.0");
+    }
+
+    @Test
+    void buildMetadataIsIgnored() {
+        assertEquals(0, compare("1.0.0+build.1", "1.0.0+build.2"));
+        assertEquals(0, compare("1.0.0+20130313144700", "1.0.0"));
+        assertEquals(-1, compare("1.0.0-rc.1+build.5", "1.0.0"));
+    }
+
+    @Test
+    void lenientSpellings() {
+        assertEquals(0, compare("v1.2", "1.2.0"));
+        assertEquals(0, compare("=1.2.3", "1.2.3"));
+        assertAscending("1.2.3", "1.2.3.4");
+    }
+
+    @Test
+    void goPseudoVersionsOrderByTime() {
+        assertAscending("v0.0.0-20191109021931-daa7c04131f5", "v0.0.0-20200101000000-0123456789ab", "v0.1.0");
+    }
+
+    @Test
+    void mixedValidAndInvalidVersionsOrderTransitively() {
+        List<String> versions = List.of("1.0.0", "2.0.0", "1.0.0-rc.1", "banana", "latest", "1.x", "", "0.9", "1.0.0a");
+        for (String a : versions) {
+            for (String b : versions) {
+                assertEquals(compare(a, b), -compare(b, a), a + " vs " + b);
+                for (String c : versions) {
+                    if (compare(a, b) < 0 && compare(b, c) < 0) {
+                        assertTrue(compare(a, c) < 0, a + " < " + b + " < " + c);
+                    }
+                }
+            }
+        }
+        assertEquals(-1, compare("banana", "0.0.1"));
+    }
+}
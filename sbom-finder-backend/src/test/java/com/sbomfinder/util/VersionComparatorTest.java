@@ -0,0 +1,71 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionComparatorTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(VersionComparator.compareVersions(a, b));
+    }
+
+    @Test
+    void numericAndPreReleaseOrdering() {
+        assertEquals(1, compare("1.10", "1.9"));
+        assertEquals(-1, compare("1.0.0-rc1", "1.0.0"));
+        assertEquals(-1, compare("1.0", "1.0.1"));
+        assertEquals(0, compare("v1.2.3+build.7", "1.2.3"));
+        assertEquals(-1, compare("1.0-rc1", "1.0a"));
+        assertEquals(1, compare("1.0", "1a"));
+    }
+
+    @Test
+    void mixedCasePreReleaseLabels() {
+        // case must not end the comparison early
+        assertEquals(1, compare("1.0-Alpha.2", "1.0-alpha.1"));
+        assertEquals(-1, compare("1.0-alpha.1", "1.0-Alpha.2"));
+        assertEquals(-1, compare("1.0-Beta2", "1.0-rc1"));
+        assertEquals(1, compare("1.0-rc.10", "1.0-RC.9"));
+
+        // otherwise equal versions are told apart by case, consistently in both directions
+        assertEquals(-compare("1.0-ALPHA.1", "1.0-alpha.1"), compare("1.0-alpha.1", "1.0-ALPHA.1"));
+        assertTrue(compare("1.0-ALPHA.1", "1.0-alpha.1") != 0);
+    }
+
+    @Test
+    void orderIsTransitive() {
+        List<String> versions = List.of("1.0-Alpha.2", "1.0-alpha.1", "1.0-ALPHA.1", "1.0-alpha.2", "1.0-Beta",
+                "1.0-beta", "1.0", "1.0.0", "1.0-rc1", "1.0-RC1", "1.0a", "1.0A", "1.0_1", "1.0.1", "01.0", "abc", "ABC");
+        for (String a : versions) {
+            for (String b : versions) {
+                assertEquals(compare(a, b), -compare(b, a), a + " vs " + b);
+                for (String c : versions) {
+                    if (compare(a, b) <= 0 && compare(b, c) <= 0) {
+                        assertTrue(compare(a, c) <= 0, a + " <= " + b + " <= " + c);
+                    }
+                    if (compare(a, b) == 0 && compare(b, c) == 0) {
+                        assertEquals(0, compare(a, c), a + " = " + b + " = " + c);
+                    }
+                }
+            }
+        }
+
+        // TimSort checks the contract on larger inputs
+        List<String> shuffled = new ArrayList<>();
+        for (int n = 0; n < 100; n++) {
+            shuffled.addAll(versions);
+        }
+        Collections.shuffle(shuffled, new Random(7));
+        shuffled.sort(VersionComparator.INSTANCE);
+        for (int n = 1; n < shuffled.size(); n++) {
+            assertTrue(compare(shuffled.get(n - 1), shuffled.get(n)) <= 0);
+        }
+    }
+}
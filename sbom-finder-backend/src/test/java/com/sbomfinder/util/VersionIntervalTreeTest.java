@@ -0,0 +1,98 @@
+package com.sbomfinder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionIntervalTreeTest {
+
+    private static ParsedVersion v(String version) {
+        return version != null ? VersionScheme.SEMVER.parse(version) : null;
+    }
+
+    private static Set<String> matches(VersionIntervalTree<String> tree, String version) {
+        Set<String> found = new TreeSet<>();
+        tree.collect(v(version), found);
+        return found;
+    }
+
+    @Test
+    void exclusiveAndInclusiveUpperBounds() {
+        VersionIntervalTree<String> tree = new VersionIntervalTree.Builder<String>()
+                .add(v("1.0.0"), v("2.0.0"), false, "exclusive")
+                .add(v("1.0.0"), v("2.0.0"), true, "inclusive")
+                .build();
+
+        assertEquals(Set.of(), matches(tree, "0.9.9"));
+        assertEquals(Set.of("exclusive", "inclusive"), matches(tree, "1.0.0"));
+        assertEquals(Set.of("exclusive", "inclusive"), matches(tree, "1.9.9"));
+        assertEquals(Set.of("exclusive", "inclusive"), matches(tree, "2.0.0-rc.1"));
+        assertEquals(Set.of("inclusive"), matches(tree, "2.0.0"));
+        assertEquals(Set.of(), matches(tree, "2.0.1"));
+    }
+
+    @Test
+    void openBounds() {
+        VersionIntervalTree<String> tree = new VersionIntervalTree.Builder<String>()
+                .add(null, v("1.0.0"), false, "below 1")
+                .add(v("3.0.0"), null, false, "from 3")
+                .add(null, null, false, "everything")
+                .build();
+
+        assertEquals(Set.of("below 1", "everything"), matches(tree, "0.0.1"));
+        assertEquals(Set.of("everything"), matches(tree, "1.0.0"));
+        assertEquals(Set.of("everything"), matches(tree, "2.9.9"));
+        assertEquals(Set.of("everything", "from 3"), matches(tree, "3.0.0"));
+        assertEquals(Set.of("everything", "from 3"), matches(tree, "99.0.0"));
+    }
+
+    @Test
+    void emptyTree() {
+        VersionIntervalTree<String> tree = new VersionIntervalTree.Builder<String>().build();
+
+        assertEquals(0, tree.size());
+        assertEquals(Set.of(), matches(tree, "1.0.0"));
+    }
+
+    // the subtree pruning must never skip a match: compare with a linear scan
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(42);
+        List<Object[]> intervals = new ArrayList<>();
+        VersionIntervalTree.Builder<String> builder = new VersionIntervalTree.Builder<>();
+        for (int i = 0; i < 300; i++) {
+            String lower = random.nextInt(10) == 0 ? null : version(random);
+            String upper = random.nextInt(10) == 0 ? null : version(random);
+            boolean inclusive = random.nextBoolean();
+            intervals.add(new Object[]{lower, upper, inclusive});
+            builder.add(v(lower), v(upper), inclusive, "#" + i);
+        }
+        VersionIntervalTree<String> tree = builder.build();
+
+        for (int q = 0; q < 500; q++) {
+            String version = version(random);
+            Set<String> expected = new TreeSet<>();
+            for (int i = 0; i < intervals.size(); i++) {
+                Object[] interval = intervals.get(i);
+                ParsedVersion lower = v((String) interval[0]);
+                ParsedVersion upper = v((String) interval[1]);
+                int cmpUpper = upper == null ? -1 : v(version).compareTo(upper);
+                if ((lower == null || v(version).compareTo(lower) >= 0)
+                        && ((Boolean) interval[2] ? cmpUpper <= 0 : cmpUpper < 0)) {
+                    expected.add("#" + i);
+                }
+            }
+            assertEquals(expected, matches(tree, version), "intervals containing " + version);
+        }
+    }
+
+    private static String version(Random random) {
+        return random.nextInt(4) + "." + random.nextInt(6) + "." + random.nextInt(6);
+    }
+}